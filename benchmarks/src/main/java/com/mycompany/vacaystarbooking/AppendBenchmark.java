@@ -0,0 +1,66 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Append throughput of the booking store: the single-booking path used by saveBooking
+ * (log append plus unit allocation) and the group-committed batch used by the ingest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AppendBenchmark {
+
+    Path dir;
+    BookingLog log;
+    UnitInventory inventory;
+    Booking booking;
+    List<Booking> batch;
+    long day;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("vacaystar-append");
+        log = BookingLog.open(dir.resolve("bookings.dat"));
+        inventory = new UnitInventory(VacayStarBooking.ACCOMMODATION_UNITS);
+        booking = BenchmarkData.booking(0);
+        batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(BenchmarkData.booking(i));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        log.close();
+        BenchmarkData.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public Booking saveBooking() throws IOException {
+        Booking stored = log.append(booking);
+        // week-long stays back to back, each placed by the best-fit allocator
+        long in = LocalDate.of(2030, 1, 1).toEpochDay() + (day++ % 100_000) * 7;
+        int unit = inventory.allocate(stored.accIndex(), in, in + 7, in);
+        if (unit >= 0) {
+            inventory.add(stored.withUnit(unit));
+        }
+        return stored;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public List<Booking> appendBatchOf1000() throws IOException {
+        return log.appendAll(batch);
+    }
+}
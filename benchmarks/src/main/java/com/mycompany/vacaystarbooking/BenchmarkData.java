@@ -0,0 +1,37 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic bookings and temp-directory cleanup shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] NAMES = { "Tom Hanks", "Meryl Streep", "Zendaya", "Samuel L Jackson", "Emma Stone" };
+
+    private BenchmarkData() {
+    }
+
+    static Booking booking(int i) {
+        LocalDate in = LocalDate.of(2030, 1, 1).plusDays(i % 3650);
+        int days = 1 + i % 21;
+        int accIndex = i % VacayStarBooking.ACCOMMODATION_NAMES.length;
+        long quote = PricingEngine.quote(accIndex, days);
+        return new Booking(0, NAMES[i % NAMES.length], "07" + (100000000 + i % 900000000),
+            "guest" + i + "@email.fake", accIndex, in, in.plusDays(days),
+            PricingEngine.discountPence(quote), PricingEngine.totalPence(quote));
+    }
+
+    static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
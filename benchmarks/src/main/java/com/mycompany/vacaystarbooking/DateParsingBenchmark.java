@@ -0,0 +1,33 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * parseDate with each accepted input shape: ddmmyyyy, dd/mm/yyyy, d/m/yyyy and the other separators,
+ * and one bookings.csv row through the CSV loader's parser.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateParsingBenchmark {
+
+    @Param({ "25062030", "25/06/2030", "9/9/2030", "25-06-2030", "25.06.2030", "25 06 2030" })
+    String input;
+
+    CsvTokenizer tokens = new CsvTokenizer();
+
+    @Benchmark
+    public LocalDate parseDate() {
+        return VacayStarBooking.parseDate(input, false);
+    }
+
+    @Benchmark
+    public Booking parseCsvLine() {
+        return BookingCsv.parseLine("Meryl Streep,7234567890,meryl.streep@email.fake,Sunshine Apt.,18,22/08/2025,9/9/2025,504,5209.61", tokens);
+    }
+}
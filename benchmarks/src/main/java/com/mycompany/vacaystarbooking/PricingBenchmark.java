@@ -0,0 +1,72 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Price calculation for each accommodation option across short, discounted and very long stays:
+ * the floating-point calculateTotal against the PricingEngine quote table, and a dated
+ * quote from DynamicPricing with 300 seasonal rules (plus any set in PRICING_RULES), so it
+ * measures the rate calendar rather than the no-rules shortcut to the table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+    @Param({ "1", "7", "14", "30", "365" })
+    int days;
+
+    @Param({ "0", "1", "2", "3", "4" })
+    int accIndex;
+
+    double dailyRate;
+    double cardFee;
+    double discountRate;
+
+    DynamicPricing pricing;
+    LocalDate checkIn;
+    LocalDate checkOut;
+
+    @Setup
+    public void setup() {
+        double[] row = VacayStarBooking.ACCOMMODATION_DATA[accIndex];
+        dailyRate = row[VacayStarBooking.IDX_DAILY_RATE];
+        cardFee = row[VacayStarBooking.IDX_CARD_FEE];
+        discountRate = row[VacayStarBooking.IDX_DISCOUNT_RATE];
+
+        List<PricingRule> rules = new ArrayList<>(VacayStarBooking.PRICING_RULES);
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            rules.add(new PricingRule.Season(random.nextInt(6) - 1,
+                MonthDay.of(1 + random.nextInt(12), 1 + random.nextInt(28)),
+                MonthDay.of(1 + random.nextInt(12), 1 + random.nextInt(28)), random.nextInt(400) - 200));
+        }
+        pricing = new DynamicPricing(new UnitInventory(VacayStarBooking.ACCOMMODATION_UNITS), rules);
+        checkIn = LocalDate.now().plusDays(30);
+        checkOut = checkIn.plusDays(days);
+    }
+
+    @Benchmark
+    public double[] calculateTotal() {
+        return VacayStarBooking.calculateTotal(days, cardFee, dailyRate, discountRate);
+    }
+
+    @Benchmark
+    public long pricingEngineQuote() {
+        return PricingEngine.quote(accIndex, days);
+    }
+
+    @Benchmark
+    public long dynamicPricingQuote() {
+        return pricing.quote(accIndex, checkIn, checkOut);
+    }
+}
@@ -0,0 +1,152 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Admin-area operations at 1k, 100k and 1M bookings:
+ * rendering every row (the old full listing), rendering one page of the paged viewer,
+ * looking up and deleting one booking by number, the revenue and occupancy report over every row
+ * (from the booking log and from the columnar export, with reading and parsing the CSV as a baseline),
+ * and the old CSV-style delete (read all lines, drop one, rewrite) as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    int rows;
+
+    Path dir;
+    Path csv;
+    BookingLog log;
+    ColumnarBookings columns;
+    SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("vacaystar-scan");
+        log = BookingLog.open(dir.resolve("bookings.dat"));
+        List<Booking> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(BenchmarkData.booking(i));
+            if (batch.size() == 10_000) {
+                log.appendAll(batch);
+                batch.clear();
+            }
+        }
+        log.appendAll(batch);
+        csv = dir.resolve("bookings.csv");
+        BookingCsv.exportTo(log, csv);
+        ColumnarBookings.export(log, dir.resolve("bookings.vsc"));
+        columns = ColumnarBookings.open(dir.resolve("bookings.vsc"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        columns.close();
+        log.close();
+        BenchmarkData.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public void viewBookings(Blackhole bh) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        int size = log.size();
+        for (int i = 0; i < size; i++) {
+            Booking b = log.get(i);
+            sb.setLength(0);
+            sb.append(i + 1).append(" | ").append(b.name()).append(" | ").append(b.contact())
+              .append(" | ").append(b.email()).append(" | ").append(b.accommodation())
+              .append(" | ").append(b.days()).append(" | ").append(b.inDate().format(VacayStarBooking.DATE_FORMAT))
+              .append(" | ").append(b.outDate().format(VacayStarBooking.DATE_FORMAT))
+              .append(" | GBP ").append(VacayStarBooking.formatMoney(b.discountPence()))
+              .append(" | GBP ").append(VacayStarBooking.formatMoney(b.totalPence()));
+            bh.consume(sb.length());
+        }
+    }
+
+    @Benchmark
+    public int viewFirstPage() throws IOException {
+        StringBuilder sb = new StringBuilder(8192);
+        BookingBrowser.appendHeader(sb);
+        int end = Math.min(log.size(), BookingBrowser.PAGE_SIZE);
+        for (int i = 0; i < end; i++) {
+            BookingBrowser.appendRow(sb, i + 1, log.get(i));
+        }
+        return sb.length();
+    }
+
+    @Benchmark
+    public long revenueReport() throws IOException {
+        return BookingAnalytics.aggregate(log, null, null).scanned;
+    }
+
+    @Benchmark
+    public long revenueReportColumnar() {
+        return BookingAnalytics.aggregate(columns, null, null).scanned;
+    }
+
+    @Benchmark
+    public long revenueTotalFromCsv() throws IOException {
+        long total = 0;
+        try (BufferedReader br = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            br.readLine(); // header
+            String line;
+            while ((line = br.readLine()) != null) {
+                Booking b = BookingCsv.parseLine(line);
+                if (b != null) {
+                    total += b.totalPence();
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Booking findBookingByNumber() throws IOException {
+        return log.get(random.nextInt(log.size()));
+    }
+
+    @Benchmark
+    public Booking deleteBookingByNumber() throws IOException {
+        // Put the row back afterwards so every invocation sees the same number of bookings.
+        Booking removed = log.delete(random.nextInt(log.size()));
+        log.append(removed);
+        return removed;
+    }
+
+    @Benchmark
+    public int csvRewriteDelete() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        String removed = lines.remove(1 + random.nextInt(lines.size() - 1));
+        lines.add(removed);
+        Path temp = dir.resolve("rewrite.csv");
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                pw.println(line);
+            }
+        }
+        return lines.size();
+    }
+}
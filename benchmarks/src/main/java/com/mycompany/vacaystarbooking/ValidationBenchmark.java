@@ -0,0 +1,46 @@
+package com.mycompany.vacaystarbooking;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The regex validators used by the booking wizard and the bulk ingest, with valid and invalid input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    @Param({ "valid", "invalid" })
+    String kind;
+
+    String name;
+    String phone;
+    String email;
+
+    @Setup
+    public void setup() {
+        boolean valid = kind.equals("valid");
+        name = valid ? "Scarlett Johansson" : "Scarlett J0hansson";
+        phone = valid ? "07456789012" : "7456789012x";
+        email = valid ? "scarlett.johansson@email.fake" : "scarlett.johansson@email";
+    }
+
+    @Benchmark
+    public boolean isValidName() {
+        return VacayStarBooking.isValidName(name);
+    }
+
+    @Benchmark
+    public boolean isValidUKPhone() {
+        return VacayStarBooking.isValidUKPhone(phone);
+    }
+
+    @Benchmark
+    public boolean isValidEmail() {
+        return VacayStarBooking.isValidEmail(email);
+    }
+}
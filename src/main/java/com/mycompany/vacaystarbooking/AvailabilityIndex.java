@@ -0,0 +1,217 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Day-by-day occupancy bitmaps, one per accommodation unit.
+ * Bit d is set when the night starting on day d is booked on that unit. The bitmap covers a
+ * rolling window from a little before today to about three years ahead, so the
+ * free-window search walks a few dozen longs and skips whole booked or free
+ * 64-day words at a time.
+ * The unit inventory stays the source of truth: after a delete the freed nights
+ * are re-marked from any other stay still covering them.
+ * The bitmaps hold bookings only; a search lays the units' current holds (see
+ * ReservationHolds) over a copy, so it never offers dates another guest is holding.
+ */
+final class AvailabilityIndex implements BookingListener {
+
+    static final int HORIZON_WORDS = 18;                 // 18 * 64 = 1152 days (just over 3 years)
+    static final int HORIZON_DAYS = HORIZON_WORDS * 64;
+    private static final int PAST_DAYS_KEPT = 64;
+
+    // One free window found by the search: check-in day, and the first booked day after it
+    // (null when nothing is booked after it within the horizon).
+    record Window(LocalDate checkIn, LocalDate freeUntil) {
+    }
+
+    private final UnitInventory inventory;
+    private final long[][] occupied; // indexed by UnitInventory.key
+    private long baseDay; // epoch day of bit 0, always a multiple of 64
+
+    AvailabilityIndex(UnitInventory inventory) {
+        this.inventory = inventory;
+        this.occupied = new long[inventory.totalUnits()][HORIZON_WORDS];
+        this.baseDay = alignedBase(LocalDate.now().toEpochDay());
+        for (int key = 0; key < occupied.length; key++) {
+            remark(key, baseDay, baseDay + HORIZON_DAYS);
+        }
+    }
+
+    static long alignedBase(long today) {
+        return Math.floorDiv(today - PAST_DAYS_KEPT, 64) * 64;
+    }
+
+    // --- STORE CHANGES ---
+    @Override
+    public synchronized void onAdded(Booking booking) {
+        if (!inventory.hasUnit(booking.accIndex(), booking.unit())) {
+            return; // not in the inventory either (see UnitInventory.add)
+        }
+        roll();
+        int key = inventory.key(booking.accIndex(), booking.unit());
+        setRange(occupied[key], booking.inDate().toEpochDay(), booking.outDate().toEpochDay(), true);
+    }
+
+    // The inventory has already dropped this stay: clear its nights, then put back
+    // any that another (older, overlapping) stay still occupies.
+    @Override
+    public synchronized void onDeleted(Booking booking) {
+        if (!inventory.hasUnit(booking.accIndex(), booking.unit())) {
+            return;
+        }
+        roll();
+        long in = booking.inDate().toEpochDay();
+        long out = booking.outDate().toEpochDay();
+        int key = inventory.key(booking.accIndex(), booking.unit());
+        setRange(occupied[key], in, out, false);
+        remark(key, in, out);
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        for (long[] words : occupied) {
+            Arrays.fill(words, 0L);
+        }
+    }
+
+    // --- QUERIES ---
+    // Finds up to 'limit' free windows of 'nights' nights, on any unit of the type, with
+    // check-in on or after 'from' and check-out no later than 'to'. Each window is the
+    // earliest check-in of a separate free gap on some unit, so the guest gets a spread
+    // of choices rather than consecutive start days inside one gap; when several units
+    // free up on the same day, the one free for longest is shown.
+    synchronized List<Window> findFreeWindows(int accIndex, int nights, LocalDate from, LocalDate to, int limit) {
+        roll();
+        long end = Math.min(to.toEpochDay(), baseDay + HORIZON_DAYS) - baseDay;
+        long start = Math.max(from.toEpochDay(), baseDay) - baseDay;
+        // gaps[] packs (freeStart << 32) | freeEnd; sorting it orders by check-in, then by length
+        long[] gaps = new long[limit * Math.min(inventory.units(accIndex), 64)];
+        int found = 0;
+        int firstKey = inventory.firstKey(accIndex);
+        for (int key = firstKey; key < firstKey + inventory.units(accIndex); key++) {
+            long[] words = withHolds(key);
+            long pos = start;
+            int taken = 0;
+            while (taken < limit && pos + nights <= end) {
+                int freeStart = nextClear(words, (int) pos);
+                if (freeStart < 0 || freeStart + nights > end) {
+                    break;
+                }
+                int freeEnd = nextSet(words, freeStart);
+                if (freeEnd - freeStart >= nights) {
+                    if (found == gaps.length) {
+                        gaps = Arrays.copyOf(gaps, gaps.length * 2);
+                    }
+                    gaps[found++] = ((long) freeStart << 32) | freeEnd;
+                    taken++;
+                }
+                pos = freeEnd;
+            }
+        }
+        Arrays.sort(gaps, 0, found);
+        List<Window> windows = new ArrayList<>(limit);
+        for (int i = 0; i < found && windows.size() < limit; i++) {
+            // the longest gap for a check-in day sorts last among that day's entries
+            if (i + 1 < found && (gaps[i + 1] >>> 32) == (gaps[i] >>> 32)) {
+                continue;
+            }
+            int freeStart = (int) (gaps[i] >>> 32);
+            int freeEnd = (int) gaps[i];
+            windows.add(new Window(LocalDate.ofEpochDay(baseDay + freeStart),
+                freeEnd < HORIZON_DAYS ? LocalDate.ofEpochDay(baseDay + freeEnd) : null));
+        }
+        return windows;
+    }
+
+    // The unit's bitmap, copied with its held nights marked if it has any holds.
+    private long[] withHolds(int key) {
+        long[] words = occupied[key];
+        long[][] copy = new long[1][];
+        inventory.forEachHold(key, baseDay, baseDay + HORIZON_DAYS, (in, out) -> {
+            if (copy[0] == null) {
+                copy[0] = words.clone();
+            }
+            setRange(copy[0], in, out, true);
+        });
+        return copy[0] != null ? copy[0] : words;
+    }
+
+    LocalDate horizonEnd() {
+        return LocalDate.ofEpochDay(baseDay + HORIZON_DAYS);
+    }
+
+    // --- BIT SCANS ---
+    // First clear bit at or after 'from', or -1 if the rest of the horizon is booked.
+    private static int nextClear(long[] words, int from) {
+        int w = from >>> 6;
+        if (w >= words.length) {
+            return -1;
+        }
+        long bits = ~words[w] & (-1L << from);
+        while (bits == 0) {
+            if (++w == words.length) {
+                return -1;
+            }
+            bits = ~words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // First set bit at or after 'from', or HORIZON_DAYS if there is none.
+    private static int nextSet(long[] words, int from) {
+        int w = from >>> 6;
+        if (w >= words.length) {
+            return HORIZON_DAYS;
+        }
+        long bits = words[w] & (-1L << from);
+        while (bits == 0) {
+            if (++w == words.length) {
+                return HORIZON_DAYS;
+            }
+            bits = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // Sets or clears the nights [inDay, outDay), clipped to the horizon.
+    private void setRange(long[] words, long inDay, long outDay, boolean value) {
+        long from = Math.max(inDay, baseDay) - baseDay;
+        long to = Math.min(outDay, baseDay + HORIZON_DAYS) - baseDay;
+        for (long bit = from; bit < to; ) {
+            int w = (int) (bit >>> 6);
+            int lo = (int) (bit & 63);
+            int hi = (int) Math.min(64, lo + (to - bit));
+            long mask = (hi == 64 ? -1L : (1L << hi) - 1) & (-1L << lo);
+            words[w] = value ? words[w] | mask : words[w] & ~mask;
+            bit += hi - lo;
+        }
+    }
+
+    // Marks every stay on the unit that covers part of [fromDay, toDay).
+    private void remark(int key, long fromDay, long toDay) {
+        long[] words = occupied[key];
+        inventory.forEachOverlap(key, fromDay, toDay,
+            (in, out) -> setRange(words, Math.max(in, fromDay), Math.min(out, toDay), true));
+    }
+
+    // Slides the window forward by whole words as the calendar moves on,
+    // filling the new far end from the unit inventory.
+    private void roll() {
+        long wanted = alignedBase(LocalDate.now().toEpochDay());
+        if (wanted <= baseDay) {
+            return;
+        }
+        int shift = (int) Math.min(HORIZON_WORDS, (wanted - baseDay) >>> 6);
+        long oldEnd = baseDay + HORIZON_DAYS;
+        baseDay = wanted;
+        for (int key = 0; key < occupied.length; key++) {
+            long[] words = occupied[key];
+            System.arraycopy(words, shift, words, 0, HORIZON_WORDS - shift);
+            Arrays.fill(words, HORIZON_WORDS - shift, HORIZON_WORDS, 0L);
+            remark(key, Math.max(oldEnd, baseDay), baseDay + HORIZON_DAYS);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * One saved booking as held by the storage engine.
+ * Money is kept in pence so nothing is lost to floating point on the way to disk.
+ * The id is assigned by the store on save and never reused; the unit (0-based, which
+ * lodge, cabin or caravan of the type) is chosen by the allocator when the booking is saved.
+ */
+record Booking(long id, String name, String contact, String email, int accIndex,
+               LocalDate inDate, LocalDate outDate, long discountPence, long totalPence, int unit) {
+
+    // A booking that has not been given a unit yet.
+    Booking(long id, String name, String contact, String email, int accIndex,
+            LocalDate inDate, LocalDate outDate, long discountPence, long totalPence) {
+        this(id, name, contact, email, accIndex, inDate, outDate, discountPence, totalPence, 0);
+    }
+
+    int days() {
+        return (int) ChronoUnit.DAYS.between(inDate, outDate);
+    }
+
+    String accommodation() {
+        return VacayStarBooking.ACCOMMODATION_NAMES[accIndex];
+    }
+
+    Booking withId(long newId) {
+        return new Booking(newId, name, contact, email, accIndex, inDate, outDate, discountPence, totalPence, unit);
+    }
+
+    Booking withUnit(int newUnit) {
+        return new Booking(id, name, contact, email, accIndex, inDate, outDate, discountPence, totalPence, newUnit);
+    }
+
+    // Shown to guests and admins as e.g. "Standard Cabin 3".
+    String unitName() {
+        return accommodation() + " " + (unit + 1);
+    }
+}
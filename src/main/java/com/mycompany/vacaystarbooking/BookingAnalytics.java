@@ -0,0 +1,361 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Revenue and occupancy report, grouped by accommodation and month.
+ * Reads the booking records straight from the mapped log files: each log's slots
+ * are split into ranges that a fork-join pool scans in parallel, every task filling
+ * its own accumulator from the raw fields (no Booking objects, no Strings), and the
+ * accumulators are merged as the tasks join.
+ *
+ * Bookings, revenue, discounts and stay length count towards the month a booking
+ * checks in. Occupied nights count towards the month each night falls in, so a stay
+ * over a month end adds to both months. Occupancy is occupied nights over the
+ * nights the type's units could have been let in the month.
+ */
+final class BookingAnalytics {
+
+    // Slot ranges at most this long are scanned by one task without splitting further.
+    static final int SPLIT_SLOTS = 16_384;
+
+    // --- ACCUMULATOR FIELDS ---
+    // One row of these per accommodation per month.
+    private static final int BOOKINGS = 0;
+    private static final int NIGHTS = 1;
+    private static final int REVENUE = 2;
+    private static final int DISCOUNT = 3;
+    private static final int DISCOUNTED = 4;
+    private static final int OCCUPIED = 5;
+    private static final int FIELDS = 6;
+
+    private static final int LINE_WIDTH = 142;
+
+    private BookingAnalytics() {
+    }
+
+    // --- ENTRY POINTS ---
+    // Aggregates the bookings checking in between the two dates (inclusive; null means open-ended).
+    static Accumulator aggregate(BookingStore store, LocalDate from, LocalDate to) throws IOException {
+        long start = System.nanoTime();
+        int fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        List<Accumulator> parts = store.scanRecords(from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to,
+            (records, live, slots) -> ForkJoinPool.commonPool().invoke(new ScanTask(records, live, 0, slots, fromDay, toDay)));
+        Accumulator total = new Accumulator();
+        for (Accumulator part : parts) {
+            total.merge(part);
+        }
+        Metrics.REPORT.record(start, total.scanned * BookingLog.RECORD_SIZE);
+        return total;
+    }
+
+    // The same report from a columnar export. Only the accommodation, date and money
+    // columns are read, blocks whose check-in range misses [from, to] are skipped on
+    // their statistics, and the remaining blocks are decoded and counted in parallel.
+    static Accumulator aggregate(ColumnarBookings columns, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        int fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        int mask = (1 << ColumnarBookings.ACCOMMODATION) | (1 << ColumnarBookings.CHECK_IN)
+            | (1 << ColumnarBookings.CHECK_OUT) | (1 << ColumnarBookings.DISCOUNT) | (1 << ColumnarBookings.TOTAL);
+        // The export's own dictionary says which accommodation each code stands for.
+        int[] accIndex = new int[columns.accommodationCount()];
+        for (int code = 0; code < accIndex.length; code++) {
+            accIndex[code] = VacayStarBooking.accommodationIndex(columns.accommodationName(code));
+        }
+        int[] blocks = IntStream.range(0, columns.blockCount())
+            .filter(b -> columns.mayHoldCheckIns(b, fromDay, toDay)).toArray();
+        Accumulator total = IntStream.of(blocks).parallel().mapToObj(b -> {
+            ColumnarBookings.Block block = columns.read(b, mask, null);
+            Accumulator acc = new Accumulator();
+            for (int r = 0; r < block.rows; r++) {
+                int inDay = block.checkIns[r];
+                if (inDay >= fromDay && inDay <= toDay) {
+                    acc.add(accIndex[block.accommodations[r] & 0xFF], inDay, block.checkOuts[r],
+                        block.totals[r], block.discounts[r]);
+                }
+            }
+            return acc;
+        }).collect(Accumulator::new, Accumulator::merge, Accumulator::merge);
+        long bytes = 0;
+        for (int b : blocks) {
+            bytes += columns.bytes(b, mask);
+        }
+        Metrics.REPORT.record(start, bytes);
+        return total;
+    }
+
+    // Headless modes: report [from-month] [to-month] reads the booking store;
+    // report-columns <file> [from-month] [to-month] reads a columnar export. Months as mm/yyyy.
+    static void run(String[] args) {
+        boolean columnar = args[0].equals("report-columns");
+        int first = columnar ? 2 : 1;
+        if (columnar && args.length < 2) {
+            System.out.println("Usage: report-columns <file> [from mm/yyyy] [to mm/yyyy]");
+            return;
+        }
+        try {
+            LocalDate from = args.length > first ? YearMonth.parse(args[first], VacayStarBooking.MONTH_FORMAT).atDay(1) : null;
+            LocalDate to = args.length > first + 1
+                ? YearMonth.parse(args[first + 1], VacayStarBooking.MONTH_FORMAT).atEndOfMonth() : null;
+            Accumulator result;
+            long start;
+            if (columnar) {
+                try (ColumnarBookings columns = ColumnarBookings.open(Path.of(args[1]))) {
+                    start = System.nanoTime();
+                    result = aggregate(columns, from, to);
+                }
+            } else {
+                BookingStore store = VacayStarBooking.store();
+                start = System.nanoTime();
+                result = aggregate(store, from, to);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.print(render(result));
+            System.out.printf("%d bookings counted in %.2f s\n", result.scanned, seconds);
+        } catch (java.time.format.DateTimeParseException e) {
+            System.out.println(columnar ? "Usage: report-columns <file> [from mm/yyyy] [to mm/yyyy]"
+                : "Usage: report [from mm/yyyy] [to mm/yyyy]");
+        } catch (IOException e) {
+            System.out.println("Error reading bookings: " + e.getMessage());
+        }
+    }
+
+    // --- SCANNING ---
+    @SuppressWarnings("serial") // tasks are never serialized
+    private static final class ScanTask extends RecursiveTask<Accumulator> {
+        private final ByteBuffer records;
+        private final long[] live;
+        private final int fromSlot;
+        private final int toSlot;
+        private final int fromDay;
+        private final int toDay;
+
+        ScanTask(ByteBuffer records, long[] live, int fromSlot, int toSlot, int fromDay, int toDay) {
+            this.records = records;
+            this.live = live;
+            this.fromSlot = fromSlot;
+            this.toSlot = toSlot;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (toSlot - fromSlot <= SPLIT_SLOTS) {
+                return scan();
+            }
+            int mid = (fromSlot + toSlot) >>> 1;
+            ScanTask left = new ScanTask(records, live, fromSlot, mid, fromDay, toDay);
+            left.fork();
+            Accumulator right = new ScanTask(records, live, mid, toSlot, fromDay, toDay).compute();
+            Accumulator merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+
+        // Walks the live bits a word at a time, so runs of deleted records cost nothing.
+        private Accumulator scan() {
+            Accumulator acc = new Accumulator();
+            int slot = fromSlot;
+            while (slot < toSlot) {
+                long word = live[slot >>> 6] >>> (slot & 63);
+                if (word == 0) {
+                    slot = (slot | 63) + 1;
+                    continue;
+                }
+                slot += Long.numberOfTrailingZeros(word);
+                if (slot >= toSlot) {
+                    break;
+                }
+                int base = BookingLog.HEADER_SIZE + slot * BookingLog.RECORD_SIZE;
+                int inDay = records.getInt(base + BookingLog.OFF_IN_DAY);
+                if (inDay >= fromDay && inDay <= toDay) {
+                    acc.add(records.get(base + BookingLog.OFF_ACC), inDay,
+                        records.getInt(base + BookingLog.OFF_OUT_DAY),
+                        records.getLong(base + BookingLog.OFF_TOTAL),
+                        records.getLong(base + BookingLog.OFF_DISCOUNT));
+                }
+                slot++;
+            }
+            return acc;
+        }
+    }
+
+    // --- ACCUMULATOR ---
+    // Totals for a run of months, each month one row of FIELDS per accommodation.
+    // Grows a year at a time in whichever direction a booking falls outside it.
+    static final class Accumulator {
+        private final int accCount = VacayStarBooking.ACCOMMODATION_NAMES.length;
+        private final int monthSize = accCount * FIELDS;
+        private int firstMonth; // year * 12 + month - 1
+        private int months;
+        private long[] cells = new long[0];
+        long scanned;
+
+        void add(int acc, int inDay, int outDay, long totalPence, long discountPence) {
+            scanned++;
+            if (acc < 0 || acc >= accCount) {
+                return;
+            }
+            int cell = cell(epochMonth(inDay), acc);
+            cells[cell + BOOKINGS]++;
+            cells[cell + NIGHTS] += outDay - inDay;
+            cells[cell + REVENUE] += totalPence;
+            cells[cell + DISCOUNT] += discountPence;
+            if (discountPence > 0) {
+                cells[cell + DISCOUNTED]++;
+            }
+            // Split the nights at each month end.
+            int day = inDay;
+            while (day < outDay) {
+                int month = epochMonth(day);
+                int next = Math.min(outDay, firstDay(month + 1));
+                int occupied = cell(month, acc) + OCCUPIED; // may grow 'cells', so index first
+                cells[occupied] += next - day;
+                day = next;
+            }
+        }
+
+        void merge(Accumulator other) {
+            scanned += other.scanned;
+            if (other.months == 0) {
+                return;
+            }
+            cover(other.firstMonth);
+            cover(other.firstMonth + other.months - 1);
+            int offset = (other.firstMonth - firstMonth) * monthSize;
+            for (int i = 0; i < other.cells.length; i++) {
+                cells[offset + i] += other.cells[i];
+            }
+        }
+
+        long get(int month, int acc, int field) {
+            if (month < firstMonth || month >= firstMonth + months) {
+                return 0;
+            }
+            return cells[(month - firstMonth) * monthSize + acc * FIELDS + field];
+        }
+
+        private int cell(int month, int acc) {
+            cover(month);
+            return (month - firstMonth) * monthSize + acc * FIELDS;
+        }
+
+        private void cover(int month) {
+            if (months == 0) {
+                firstMonth = month;
+                months = 1;
+                cells = new long[monthSize];
+                return;
+            }
+            if (month >= firstMonth && month < firstMonth + months) {
+                return;
+            }
+            int newFirst = month < firstMonth ? Math.min(month, firstMonth - 12) : firstMonth;
+            int newEnd = month < firstMonth ? firstMonth + months : Math.max(month + 1, firstMonth + months + 12);
+            long[] bigger = new long[(newEnd - newFirst) * monthSize];
+            System.arraycopy(cells, 0, bigger, (firstMonth - newFirst) * monthSize, cells.length);
+            cells = bigger;
+            firstMonth = newFirst;
+            months = newEnd - newFirst;
+        }
+    }
+
+    // --- CALENDAR ---
+    // Epoch day to year * 12 + month - 1 and back, without building LocalDates
+    // (civil-from-days over 400-year eras, as in java.time).
+    static int epochMonth(int epochDay) {
+        int z = epochDay + 719_468;
+        int era = Math.floorDiv(z, 146_097);
+        int dayOfEra = z - era * 146_097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 = March
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    static int firstDay(int epochMonth) {
+        int year = Math.floorDiv(epochMonth, 12);
+        int month = Math.floorMod(epochMonth, 12) + 1;
+        if (month <= 2) {
+            year--;
+        }
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    // --- REPORT ---
+    // One line per accommodation per month that has bookings or occupied nights,
+    // then a total per accommodation over the whole run of months.
+    static String render(Accumulator result) {
+        StringBuilder sb = new StringBuilder(8192);
+        sb.append(String.format("%-8s | %-18s | %8s | %8s | %14s | %12s | %8s | %8s | %9s\n",
+            "Month", "Accommodation", "Bookings", "Avg stay", "Revenue GBP", "Discount GBP",
+            "Uptake", "Occupied", "Occupancy"));
+        sb.append("-".repeat(LINE_WIDTH)).append('\n');
+        if (result.months == 0) {
+            sb.append("No bookings in this period.\n");
+            return sb.toString();
+        }
+        int first = result.firstMonth + result.months;
+        int last = result.firstMonth - 1;
+        for (int month = result.firstMonth; month < result.firstMonth + result.months; month++) {
+            String label = YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1)
+                .format(VacayStarBooking.MONTH_FORMAT);
+            int nights = firstDay(month + 1) - firstDay(month);
+            for (int acc = 0; acc < result.accCount; acc++) {
+                if (result.get(month, acc, BOOKINGS) == 0 && result.get(month, acc, OCCUPIED) == 0) {
+                    continue;
+                }
+                first = Math.min(first, month);
+                last = Math.max(last, month);
+                appendLine(sb, label, acc, result, month, month, nights);
+            }
+        }
+        sb.append("-".repeat(LINE_WIDTH)).append('\n');
+        int nights = firstDay(last + 1) - firstDay(first);
+        for (int acc = 0; acc < result.accCount; acc++) {
+            appendLine(sb, "Total", acc, result, first, last, nights);
+        }
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String label, int acc, Accumulator result,
+                                   int fromMonth, int toMonth, int nights) {
+        long bookings = 0;
+        long booked = 0;
+        long revenue = 0;
+        long discount = 0;
+        long discounted = 0;
+        long occupied = 0;
+        for (int month = fromMonth; month <= toMonth; month++) {
+            bookings += result.get(month, acc, BOOKINGS);
+            booked += result.get(month, acc, NIGHTS);
+            revenue += result.get(month, acc, REVENUE);
+            discount += result.get(month, acc, DISCOUNT);
+            discounted += result.get(month, acc, DISCOUNTED);
+            occupied += result.get(month, acc, OCCUPIED);
+        }
+        sb.append(String.format("%-8s | %-18s | %8d | %8.1f | %14s | %12s | %7.1f%% | %8d | %8.1f%%\n",
+            label, VacayStarBooking.ACCOMMODATION_NAMES[acc], bookings,
+            bookings == 0 ? 0.0 : (double) booked / bookings,
+            VacayStarBooking.formatMoney(revenue), VacayStarBooking.formatMoney(discount),
+            bookings == 0 ? 0.0 : 100.0 * discounted / bookings,
+            occupied, 100.0 * occupied / ((long) nights * VacayStarBooking.ACCOMMODATION_UNITS[acc])));
+    }
+}
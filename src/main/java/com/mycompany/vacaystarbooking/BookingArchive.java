@@ -0,0 +1,50 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip-compressed CSV of bookings taken out of the store by a bulk delete, in the
+ * same columns as bookings.csv (so it can be unzipped and imported again).
+ * Rows are streamed through as they are found; sync() flushes the compressor and
+ * the file to disk, which the bulk delete does before each rewritten month is
+ * swapped in, so a booking is never gone from the store without being archived.
+ */
+final class BookingArchive implements Closeable {
+
+    private final FileOutputStream file;
+    private final Writer out;
+
+    BookingArchive(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        file = new FileOutputStream(path.toFile());
+        out = new OutputStreamWriter(new GZIPOutputStream(file, 64 * 1024, true), StandardCharsets.UTF_8);
+        out.write(BookingCsv.HEADER);
+        out.write('\n');
+    }
+
+    void write(Booking b) throws IOException {
+        out.write(BookingCsv.formatLine(b));
+        out.write('\n');
+    }
+
+    // Everything written so far is on disk as a readable gzip stream when this returns.
+    void sync() throws IOException {
+        out.flush();
+        file.getFD().sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,388 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.function.Predicate;
+
+/**
+ * Paged admin view of the bookings.
+ * Without filters or sorting a page is read straight from the log by booking number,
+ * so the first page shows up immediately however large the store is. Filters stream
+ * forward from a remembered cursor per page; sorting has to look at every matching
+ * booking once and then keeps only their numbers. A check-in date filter also
+ * narrows the scan to the booking numbers the store keeps for those months. Each page is rendered into one
+ * reused buffer and printed with a single write.
+ */
+final class BookingBrowser {
+
+    static final int PAGE_SIZE = 20;
+    static final int LINE_WIDTH = 172;
+
+    private static final String SEPARATOR = "-".repeat(LINE_WIDTH);
+
+    private final BookingStore log;
+    private final StringBuilder buffer = new StringBuilder(PAGE_SIZE * 2 * (LINE_WIDTH + 1) + 1024);
+
+    // Active filters (all must match) with a short description of each for the header.
+    private final List<Predicate<Booking>> filters = new ArrayList<>();
+    private final List<String> filterNames = new ArrayList<>();
+    private Comparator<Booking> sort;
+    private String sortName;
+    private int[] checkInRange; // booking numbers [from, to) to scan, or null for all
+
+    // Filtered view: log position where each visited page starts. Sorted view: booking numbers.
+    private final List<Integer> pageStarts = new ArrayList<>();
+    private int[] sortedPositions;
+    private int page;
+    private boolean lastPage;
+    private long recordsRead; // per page, for the view metrics
+
+    // The booking each number on screen stood for when it was last shown. Numbers are
+    // positions in the store, so they move when other sessions add or delete bookings.
+    private final Map<Integer, Booking> shown = new HashMap<>();
+
+    BookingBrowser(BookingStore log) {
+        this.log = log;
+        resetCursor();
+    }
+
+    // --- INTERACTIVE LOOP ---
+    void browse(Scanner input) throws IOException {
+        while (true) {
+            renderPage();
+            VacayStarBooking.out().print("N = next, P = previous, J = jump to page, F = filter, S = sort, C = clear, 0 = back: ");
+            String command = input.nextLine().trim().toUpperCase(Locale.ROOT);
+            switch (command) {
+                case "N" -> {
+                    if (!lastPage) {
+                        page++;
+                    }
+                }
+                case "P" -> page = Math.max(0, page - 1);
+                case "J" -> {
+                    VacayStarBooking.out().print("Page number: ");
+                    page = Math.max(0, VacayStarBooking.getIntInput(input) - 1);
+                }
+                case "F" -> addFilter(input);
+                case "S" -> chooseSort(input);
+                case "C" -> {
+                    filters.clear();
+                    filterNames.clear();
+                    checkInRange = null;
+                    sort = null;
+                    resetCursor();
+                }
+                case "0", "Q" -> {
+                    return;
+                }
+                default -> VacayStarBooking.out().println("Invalid option.");
+            }
+        }
+    }
+
+    private void resetCursor() {
+        page = 0;
+        pageStarts.clear();
+        pageStarts.add(checkInRange != null ? checkInRange[0] : 0);
+        sortedPositions = null;
+    }
+
+    // --- PAGE RENDERING ---
+    // Renders the current page (clamped to the last page) into the buffer and prints it once.
+    private void renderPage() throws IOException {
+        long start = System.nanoTime();
+        recordsRead = 0;
+        buffer.setLength(0);
+        buffer.append("\n==============================================================\n");
+        buffer.append("-----------------------  All Bookings  -----------------------\n");
+        buffer.append("==============================================================\n");
+        if (!filterNames.isEmpty()) {
+            buffer.append("Filters: ").append(String.join(", ", filterNames)).append('\n');
+        }
+        if (sort != null) {
+            buffer.append("Sorted by: ").append(sortName).append('\n');
+        }
+        int[] positions = pagePositions();
+        if (positions.length == 0 && page == 0) {
+            buffer.append(filters.isEmpty() ? "No bookings available to display. Please make a booking first.\n"
+                                            : "No bookings match these filters.\n");
+        } else {
+            appendHeader(buffer);
+            for (int position : positions) {
+                Booking booking = read(position);
+                shown.put(position + 1, booking);
+                appendRow(buffer, position + 1, booking);
+            }
+            buffer.append("Page ").append(page + 1);
+            int total = totalPages();
+            if (total > 0) {
+                buffer.append(" of ").append(total);
+            } else if (!lastPage) {
+                buffer.append(" (more)");
+            }
+            buffer.append('\n');
+        }
+        Metrics.VIEW.record(start, recordsRead * BookingLog.RECORD_SIZE);
+        PrintStream out = VacayStarBooking.out();
+        out.append(buffer);
+        out.flush();
+    }
+
+    // The booking shown as this number on the most recent page that listed it, or null.
+    Booking shown(int number) {
+        return shown.get(number);
+    }
+
+    private Booking read(int position) throws IOException {
+        recordsRead++;
+        return log.get(position);
+    }
+
+    // Number of pages if known without scanning (-1 while a filtered view is still open-ended).
+    private int totalPages() {
+        if (sortedPositions != null) {
+            return Math.max(1, (sortedPositions.length + PAGE_SIZE - 1) / PAGE_SIZE);
+        }
+        if (filters.isEmpty()) {
+            return Math.max(1, (log.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        }
+        return lastPage ? page + 1 : -1;
+    }
+
+    // Finds the booking positions (0-based) on the current page.
+    private int[] pagePositions() throws IOException {
+        if (sort != null) {
+            if (sortedPositions == null) {
+                sortedPositions = sortAll();
+            }
+            return slice(sortedPositions.length, i -> sortedPositions[i]);
+        }
+        if (filters.isEmpty()) {
+            return slice(log.size(), i -> i);
+        }
+        // Walk forward page by page from the furthest page we know the start of.
+        while (pageStarts.size() <= page) {
+            int[] positions = scanPage(pageStarts.get(pageStarts.size() - 1));
+            if (lastPage) {
+                page = pageStarts.size() - 1;
+                return positions;
+            }
+        }
+        return scanPage(pageStarts.get(page));
+    }
+
+    private interface PositionAt {
+        int get(int index);
+    }
+
+    private int[] slice(int count, PositionAt positionAt) {
+        int pages = Math.max(1, (count + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.min(page, pages - 1);
+        lastPage = page == pages - 1;
+        int from = page * PAGE_SIZE;
+        int to = Math.min(count, from + PAGE_SIZE);
+        int[] positions = new int[Math.max(0, to - from)];
+        for (int i = from; i < to; i++) {
+            positions[i - from] = positionAt.get(i);
+        }
+        return positions;
+    }
+
+    // Collects up to one page of matches starting at a log position. The scan runs on
+    // to one match past the page, which is where the following page starts; reaching
+    // the end first means this is the last page. Either way it never reads further
+    // than the next page's first match.
+    private int[] scanPage(int start) throws IOException {
+        int[] positions = new int[PAGE_SIZE];
+        int found = 0;
+        int size = scanEnd();
+        int position = start;
+        int nextStart = -1;
+        while (position < size) {
+            if (matches(read(position))) {
+                if (found == PAGE_SIZE) {
+                    nextStart = position;
+                    break;
+                }
+                positions[found++] = position;
+            }
+            position++;
+        }
+        lastPage = nextStart < 0;
+        if (!lastPage && pageStarts.indexOf(start) == pageStarts.size() - 1) {
+            pageStarts.add(nextStart);
+        }
+        return Arrays.copyOf(positions, found);
+    }
+
+    private int scanEnd() {
+        return checkInRange != null ? Math.min(checkInRange[1], log.size()) : log.size();
+    }
+
+    private boolean matches(Booking b) {
+        for (Predicate<Booking> filter : filters) {
+            if (!filter.test(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Sorted views must visit every matching booking once; only their numbers are kept.
+    private int[] sortAll() throws IOException {
+        record Keyed(int position, Booking booking) {
+        }
+        List<Keyed> matching = new ArrayList<>();
+        int size = scanEnd();
+        for (int i = checkInRange != null ? checkInRange[0] : 0; i < size; i++) {
+            Booking b = read(i);
+            if (matches(b)) {
+                matching.add(new Keyed(i, b));
+            }
+        }
+        matching.sort(Comparator.comparing(Keyed::booking, sort));
+        int[] positions = new int[matching.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = matching.get(i).position();
+        }
+        return positions;
+    }
+
+    // --- FILTERS AND SORTING ---
+    private void addFilter(Scanner input) {
+        PrintStream out = VacayStarBooking.out();
+        out.println("\nFilter by: 1. Accommodation  2. Check-in date range  3. Name starts with  4. Email starts with");
+        out.print("Choose an option: ");
+        int option = VacayStarBooking.getIntInput(input);
+        switch (option) {
+            case 1 -> {
+                for (int i = 0; i < VacayStarBooking.ACCOMMODATION_NAMES.length; i++) {
+                    out.println((i + 1) + ". " + VacayStarBooking.ACCOMMODATION_NAMES[i]);
+                }
+                out.print("Accommodation: ");
+                int acc = VacayStarBooking.getIntInput(input) - 1;
+                if (acc < 0 || acc >= VacayStarBooking.ACCOMMODATION_NAMES.length) {
+                    out.println("Invalid accommodation.");
+                    return;
+                }
+                filters.add(b -> b.accIndex() == acc);
+                filterNames.add(VacayStarBooking.ACCOMMODATION_NAMES[acc]);
+            }
+            case 2 -> {
+                out.print("Check-in from (dd/mm/yyyy): ");
+                LocalDate from = VacayStarBooking.parseDate(input.nextLine().trim(), false);
+                if (from == null) {
+                    return;
+                }
+                out.print("Check-in to (dd/mm/yyyy): ");
+                LocalDate to = VacayStarBooking.parseDate(input.nextLine().trim(), false);
+                if (to == null) {
+                    return;
+                }
+                filters.add(b -> !b.inDate().isBefore(from) && !b.inDate().isAfter(to));
+                int[] range = log.positionsForCheckIn(from, to);
+                checkInRange = checkInRange == null ? range
+                    : new int[] { Math.max(checkInRange[0], range[0]), Math.min(checkInRange[1], range[1]) };
+                filterNames.add("check-in " + from.format(VacayStarBooking.DATE_FORMAT) + " to " + to.format(VacayStarBooking.DATE_FORMAT));
+            }
+            case 3, 4 -> {
+                out.print(option == 3 ? "Name starts with: " : "Email starts with: ");
+                String prefix = input.nextLine().trim().toLowerCase(Locale.ROOT);
+                if (prefix.isEmpty()) {
+                    return;
+                }
+                if (option == 3) {
+                    filters.add(b -> b.name().toLowerCase(Locale.ROOT).startsWith(prefix));
+                    filterNames.add("name '" + prefix + "...'");
+                } else {
+                    filters.add(b -> b.email().toLowerCase(Locale.ROOT).startsWith(prefix));
+                    filterNames.add("email '" + prefix + "...'");
+                }
+            }
+            default -> {
+                out.println("Invalid option.");
+                return;
+            }
+        }
+        resetCursor();
+    }
+
+    private void chooseSort(Scanner input) {
+        PrintStream out = VacayStarBooking.out();
+        out.println("\nSort by: 1. Booking number  2. Name  3. Check-in  4. Check-out  5. Days  6. Total price");
+        out.print("Choose an option: ");
+        int option = VacayStarBooking.getIntInput(input);
+        Comparator<Booking> comparator = switch (option) {
+            case 1 -> null;
+            case 2 -> Comparator.comparing((Booking b) -> b.name().toLowerCase(Locale.ROOT));
+            case 3 -> Comparator.comparing(Booking::inDate);
+            case 4 -> Comparator.comparing(Booking::outDate);
+            case 5 -> Comparator.comparingInt(Booking::days);
+            case 6 -> Comparator.comparingLong(Booking::totalPence);
+            default -> {
+                out.println("Invalid option.");
+                yield sort;
+            }
+        };
+        if (option >= 2 && option <= 6) {
+            sortName = new String[] { "", "", "name", "check-in", "check-out", "days", "total price" }[option];
+            out.print("Descending? (Y/N): ");
+            if (input.nextLine().trim().equalsIgnoreCase("Y")) {
+                comparator = comparator.reversed();
+                sortName += " (descending)";
+            }
+        }
+        sort = comparator;
+        resetCursor();
+    }
+
+    // --- TABLE FORMATTING ---
+    // Same columns as the original full listing, padded by hand into the shared buffer.
+    static void appendHeader(StringBuilder sb) {
+        sb.append(SEPARATOR).append('\n');
+        pad(sb, "Nr.", 3).append(" | ");
+        pad(sb, "Name", 20).append(" | ");
+        pad(sb, "Contact", 13).append(" | ");
+        pad(sb, "Email", 35).append(" | ");
+        pad(sb, "Accommodation", 18).append(" | ");
+        pad(sb, "Unit", 4).append(" | ");
+        pad(sb, "Days", 5).append(" | ");
+        pad(sb, "Check-in", 10).append(" | ");
+        pad(sb, "Check-out", 10).append(" | ");
+        pad(sb, "Discount", 11).append(" | ");
+        pad(sb, "Total Price", 13).append('\n');
+        sb.append(SEPARATOR).append('\n');
+    }
+
+    static void appendRow(StringBuilder sb, int number, Booking b) {
+        pad(sb, Integer.toString(number), 3).append(" | ");
+        pad(sb, b.name(), 20).append(" | ");
+        pad(sb, b.contact(), 13).append(" | ");
+        pad(sb, b.email(), 35).append(" | ");
+        pad(sb, b.accommodation(), 18).append(" | ");
+        pad(sb, Integer.toString(b.unit() + 1), 4).append(" | ");
+        pad(sb, Integer.toString(b.days()), 5).append(" | ");
+        pad(sb, b.inDate().format(VacayStarBooking.DATE_FORMAT), 10).append(" | ");
+        pad(sb, b.outDate().format(VacayStarBooking.DATE_FORMAT), 10).append(" | GBP ");
+        pad(sb, VacayStarBooking.formatMoney(b.discountPence()), 7).append(" | GBP ");
+        pad(sb, VacayStarBooking.formatMoney(b.totalPence()), 9).append('\n');
+        sb.append(SEPARATOR).append('\n');
+    }
+
+    private static StringBuilder pad(StringBuilder sb, String value, int width) {
+        sb.append(value);
+        for (int i = value.length(); i < width; i++) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+}
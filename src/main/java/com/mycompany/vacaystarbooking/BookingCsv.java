@@ -0,0 +1,126 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * CSV import/export for the booking log.
+ * The CSV keeps the same columns the app has always written, so exported files
+ * open in a spreadsheet and older bookings.csv files can be imported as-is.
+ * Rows are split with CsvTokenizer and dates and amounts parsed in place, so a
+ * large import costs one String per line plus the three text fields it keeps.
+ */
+final class BookingCsv {
+
+    static final String HEADER = "Name,Contact,Email,Accommodation,Days,Check-in,Check-out,Discount,Total Price";
+
+    private BookingCsv() {
+    }
+
+    // --- IMPORT ---
+    // Appends every readable row to the log. Returns how many rows were imported;
+    // unreadable rows are skipped and counted in the second element.
+    static int[] importFrom(Path csv, BookingStore log) throws IOException {
+        int imported = 0;
+        int skipped = 0;
+        CsvTokenizer tokens = new CsvTokenizer();
+        try (BufferedReader br = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = br.readLine(); // skip header
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Booking booking = parseLine(line, tokens);
+                if (booking == null) {
+                    skipped++;
+                } else {
+                    log.append(booking);
+                    imported++;
+                }
+            }
+        }
+        log.flush();
+        return new int[] { imported, skipped };
+    }
+
+    // Parses one CSV row, or returns null if it cannot be read.
+    static Booking parseLine(String line) {
+        return parseLine(line, new CsvTokenizer());
+    }
+
+    static Booking parseLine(String line, CsvTokenizer tokens) {
+        if (tokens.tokenize(line) != 9) {
+            return null;
+        }
+        int accIndex = -1;
+        for (int i = 0; i < VacayStarBooking.ACCOMMODATION_NAMES.length && accIndex < 0; i++) {
+            if (tokens.fieldEquals(3, VacayStarBooking.ACCOMMODATION_NAMES[i])) {
+                accIndex = i;
+            }
+        }
+        if (accIndex < 0) {
+            return null;
+        }
+        LocalDate inDate = DateParser.parse(line, tokens.start(5), tokens.end(5));
+        LocalDate outDate = DateParser.parse(line, tokens.start(6), tokens.end(6));
+        long discount = tokens.pence(7);
+        long total = tokens.pence(8);
+        if (inDate == null || outDate == null || discount == Long.MIN_VALUE || total == Long.MIN_VALUE) {
+            return null;
+        }
+        String name = tokens.field(0);
+        String contact = tokens.field(1);
+        String email = tokens.field(2);
+        // A row the booking log could not store in full is skipped, not saved cut short.
+        if (!BookingLog.fits(name, BookingLog.NAME_BYTES) || !BookingLog.fits(contact, BookingLog.CONTACT_BYTES)
+                || !BookingLog.fits(email, BookingLog.EMAIL_BYTES)) {
+            return null;
+        }
+        return new Booking(0, name, contact, email, accIndex, inDate, outDate, discount, total);
+    }
+
+    // --- EXPORT ---
+    // Writes every live booking to a CSV file in one forEach pass, which holds the store
+    // steady while it runs (a delete from another session waits for it rather than
+    // moving the rows under it). Returns the number of rows written.
+    static int exportTo(BookingStore log, Path csv) throws IOException {
+        int[] rows = new int[1];
+        try (BufferedWriter bw = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            bw.write(HEADER);
+            bw.newLine();
+            log.forEach(b -> {
+                try {
+                    bw.write(formatLine(b));
+                    bw.newLine();
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    static String formatLine(Booking b) {
+        return quote(b.name()) + "," + quote(b.contact()) + "," + quote(b.email()) + "," + b.accommodation() + ","
+            + b.days() + "," + b.inDate().format(VacayStarBooking.DATE_FORMAT) + ","
+            + b.outDate().format(VacayStarBooking.DATE_FORMAT) + ","
+            + VacayStarBooking.formatMoney(b.discountPence()) + "," + VacayStarBooking.formatMoney(b.totalPence());
+    }
+
+    // Quotes a text field only if it needs it, so ordinary rows look exactly as before.
+    static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
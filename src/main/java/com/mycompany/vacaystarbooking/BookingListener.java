@@ -0,0 +1,25 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * Receives every change made to the booking store, in commit order, on the writer thread.
+ * Secondary indexes implement this to stay in sync without rescanning the log.
+ */
+interface BookingListener {
+
+    void onAdded(Booking booking);
+
+    void onDeleted(Booking booking);
+
+    void onCleared();
+
+    // A stored booking was given another unit (a re-pack); its id and dates are unchanged.
+    default void onMoved(Booking before, Booking after) {
+        onDeleted(before);
+        onAdded(after);
+    }
+
+    // Called once the writer has applied a whole group of changes (e.g. a group commit of
+    // saves), so a listener that publishes changes can do it in one go.
+    default void onCommitted() {
+    }
+}
@@ -0,0 +1,792 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary booking log.
+ * Every booking is one fixed-size record, so record N lives at a known byte offset.
+ * Reads go through a MappedByteBuffer (no parsing, no per-line Strings), writes are
+ * appended through the FileChannel. An in-memory offset index (SlotIndex) tracks
+ * which slots are live so "booking number N" is found in O(log n).
+ * Deleting a booking flips its flags byte to a tombstone; readers skip tombstones
+ * and compaction later rewrites the live records into a fresh file.
+ *
+ * Durability comes from a write-ahead log next to the file (bookings.dat.wal):
+ * each change is logged and synced there first, so the data file is only synced
+ * at checkpoints. A checkpoint (bookings.dat.ckpt) saves which slots are live as
+ * a bitmap, so opening the log reads that bitmap and replays only the WAL entries
+ * written since, instead of checking every record in the file.
+ *
+ * <pre>
+ * Header (32 bytes): magic, version, record size, lowest unused id, generation, reserved
+ * Record (256 bytes):
+ *   0 flags      1 accommodation   2 unit   4 days
+ *   8 id        16 check-in (epoch day)  20 check-out (epoch day)
+ *  24 discount (pence)  32 total (pence)
+ *  40 name (len + 63)  104 contact (len + 15)  120 email (len + 127)
+ * 248 reserved 252 CRC32 of bytes 1..251
+ * </pre>
+ */
+final class BookingLog implements BookingStore {
+
+    // --- FILE LAYOUT CONSTANTS ---
+    static final int MAGIC = 0x56534231; // "VSB1"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 256;
+
+    static final byte FLAG_LIVE = 1;
+    static final byte FLAG_DELETED = 2;
+
+    // Compaction kicks in once at least this many records are dead
+    // and they make up more than half the file.
+    static final int COMPACT_MIN_GARBAGE = 1024;
+    static final double COMPACT_GARBAGE_RATIO = 0.5;
+
+    static final int OFF_FLAGS = 0;
+    static final int OFF_ACC = 1;
+    static final int OFF_UNIT = 2;
+    static final int OFF_DAYS = 4;
+    static final int OFF_ID = 8;
+    static final int OFF_IN_DAY = 16;
+    static final int OFF_OUT_DAY = 20;
+    static final int OFF_DISCOUNT = 24;
+    static final int OFF_TOTAL = 32;
+    static final int OFF_NAME = 40;
+    static final int OFF_CONTACT = 104;
+    static final int OFF_EMAIL = 120;
+    static final int OFF_CRC = 252;
+
+    // --- CHECKPOINTS ---
+    // Checkpoint file: magic, generation, LSN, slot count, next id, bitmap length in longs,
+    // the live bitmap, then a CRC32 of everything before it.
+    static final int CHECKPOINT_MAGIC = 0x56534B31; // "VSK1"
+    static final int CHECKPOINT_HEADER = 36;
+    // Checkpoint once the WAL holds this much, so a restart never replays more than that.
+    static final long CHECKPOINT_WAL_BYTES = 16L * 1024 * 1024;
+
+    static final int NAME_BYTES = 64;
+    static final int CONTACT_BYTES = 16;
+    static final int EMAIL_BYTES = 128;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long mappedSize;
+
+    private final SlotIndex index = new SlotIndex();
+    private long nextId = 1;
+    private long generation; // bumped whenever compaction renumbers the slots
+
+    private WriteAheadLog wal;
+    private long lsn; // last WAL sequence number handed out
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer tombstone = ByteBuffer.allocate(1);
+    private final CRC32 crc = new CRC32();
+
+    // Background compaction runs on a single daemon thread, started on first use.
+    private ExecutorService compactor;
+    private boolean compactionPending;
+
+    private BookingLog(Path path) {
+        this.path = path;
+    }
+
+    // --- OPEN / CLOSE ---
+    // Opens (or creates) the log. With a checkpoint that matches the file, the offset
+    // index comes from the saved bitmap and only the WAL tail is replayed; without one
+    // (first run, or a crash between compaction and its checkpoint) every record is
+    // checked once and the whole WAL is replayed. Either way it ends with a fresh checkpoint.
+    static BookingLog open(Path path) throws IOException {
+        BookingLog log = new BookingLog(path);
+        log.recover();
+        return log;
+    }
+
+    private void recover() throws IOException {
+        int slots = openChannel();
+        wal = WriteAheadLog.open(walPath());
+        Checkpoint checkpoint = readCheckpoint();
+        long afterLsn = 0;
+        if (checkpoint != null && checkpoint.generation() == generation && checkpoint.slots() <= slots) {
+            // Anything past the checkpointed slots was never synced on its own; the WAL has it.
+            channel.truncate(HEADER_SIZE + (long) checkpoint.slots() * RECORD_SIZE);
+            index.load(checkpoint.live(), checkpoint.slots());
+            nextId = Math.max(nextId, checkpoint.nextId());
+            afterLsn = checkpoint.lsn();
+        } else {
+            rebuildIndex(slots);
+        }
+        lsn = wal.replay(afterLsn, new WriteAheadLog.Redo() {
+            @Override
+            public void add(int slot, ByteBuffer record, int offset) throws IOException {
+                redoAdd(slot, record, offset);
+            }
+
+            @Override
+            public void delete(int slot) throws IOException {
+                redoDelete(slot);
+            }
+
+            @Override
+            public void clear() throws IOException {
+                redoClear();
+            }
+        });
+        if (checkpoint == null || wal.size() > 0 || afterLsn != lsn) {
+            checkpoint();
+        }
+    }
+
+    // Opens the data file and returns how many whole record slots it holds.
+    private int openChannel() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(channel);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getShort() != VERSION || header.getShort() != RECORD_SIZE) {
+                throw new IOException("Not a booking log: " + path);
+            }
+            nextId = Math.max(nextId, header.getLong());
+            generation = header.getLong();
+        }
+        // A crash mid-append can leave a partial record at the end; drop it.
+        long usable = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        channel.truncate(HEADER_SIZE + usable * RECORD_SIZE);
+        mapped = null;
+        mappedSize = 0;
+        return (int) usable;
+    }
+
+    // The header remembers the next id so ids stay unique after a clear or compaction,
+    // and the generation so a checkpoint is never applied to a file it was not taken from.
+    private void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putLong(nextId).putLong(generation);
+        header.rewind();
+        // Header first, then cut the records: a crash in between leaves the header intact.
+        target.write(header, 0);
+        target.truncate(HEADER_SIZE);
+    }
+
+    private void rebuildIndex(int slots) throws IOException {
+        index.clear();
+        MappedByteBuffer buf = view();
+        for (int slot = 0; slot < slots; slot++) {
+            int base = HEADER_SIZE + slot * RECORD_SIZE;
+            boolean valid = checksumMatches(buf, base);
+            if (valid) {
+                // Tombstoned ids still count so an id is never handed out twice.
+                nextId = Math.max(nextId, buf.getLong(base + OFF_ID) + 1);
+            }
+            index.append(valid && buf.get(base + OFF_FLAGS) == FLAG_LIVE);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ExecutorService background;
+        synchronized (this) {
+            background = compactor;
+        }
+        if (background != null) {
+            background.shutdown();
+            try {
+                background.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            checkpoint();
+            mapped = null;
+            channel.close();
+            wal.close();
+        }
+    }
+
+    // --- WRITES ---
+    // New bookings get the next id. A booking that already has an id above every id in
+    // this log keeps it (a sharded store hands out ids across all its logs), so ids
+    // stay in slot order either way.
+    private Booking assignId(Booking booking) {
+        if (booking.id() >= nextId) {
+            nextId = booking.id() + 1;
+            return booking;
+        }
+        return booking.withId(nextId++);
+    }
+
+    // Lowest id this log has not handed out.
+    @Override
+    public synchronized long nextId() {
+        return nextId;
+    }
+
+    // Appends a booking and returns it with its newly assigned id. It is logged but
+    // not synced: call flush() to make a run of appends durable (the CSV import does).
+    @Override
+    public synchronized Booking append(Booking booking) throws IOException {
+        requireStorable(booking);
+        Booking stored = assignId(booking);
+        encode(stored, writeBuffer);
+        int slot = index.slotCount();
+        wal.add(++lsn, slot, writeBuffer);
+        wal.write();
+        long offset = HEADER_SIZE + (long) slot * RECORD_SIZE;
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer, offset + writeBuffer.position());
+        }
+        index.append(true);
+        return stored;
+    }
+
+    // Group commit: appends a whole batch with a single write and a single sync.
+    // Returns the stored bookings (with their ids) in the same order.
+    @Override
+    public synchronized List<Booking> appendAll(List<Booking> bookings) throws IOException {
+        List<Booking> stored = new ArrayList<>(bookings.size());
+        if (bookings.isEmpty()) {
+            return stored;
+        }
+        for (Booking booking : bookings) {
+            requireStorable(booking); // before anything is logged, so a bad one leaves no trace
+        }
+        long start = System.nanoTime();
+        ByteBuffer batch = ByteBuffer.allocate(bookings.size() * RECORD_SIZE);
+        int firstSlot = index.slotCount();
+        for (Booking booking : bookings) {
+            Booking withId = assignId(booking);
+            encode(withId, writeBuffer);
+            wal.add(++lsn, firstSlot + stored.size(), writeBuffer);
+            batch.put(writeBuffer);
+            stored.add(withId);
+        }
+        wal.sync();
+        batch.flip();
+        long offset = HEADER_SIZE + (long) firstSlot * RECORD_SIZE;
+        while (batch.hasRemaining()) {
+            channel.write(batch, offset + batch.position());
+        }
+        for (int i = 0; i < stored.size(); i++) {
+            index.append(true);
+        }
+        Metrics.LOG_COMMIT.record(start, batch.capacity());
+        checkpointIfDue();
+        return stored;
+    }
+
+    // Rewrites stored bookings in place (matched by id), e.g. after the allocator moved
+    // them to other units. Logged with one sync like appendAll; a rewrite is replayed
+    // like an add to the same slot. Bookings no longer in the log are skipped.
+    @Override
+    public synchronized int replaceAll(List<Booking> bookings) throws IOException {
+        long start = System.nanoTime();
+        int[] slots = new int[bookings.size()];
+        ByteBuffer batch = ByteBuffer.allocate(bookings.size() * RECORD_SIZE);
+        int replaced = 0;
+        for (int i = 0; i < bookings.size(); i++) {
+            slots[i] = liveSlotOf(bookings.get(i).id());
+            if (slots[i] >= 0) {
+                encode(bookings.get(i), writeBuffer);
+                wal.add(++lsn, slots[i], writeBuffer);
+                batch.put(replaced * RECORD_SIZE, writeBuffer, 0, RECORD_SIZE);
+                replaced++;
+            }
+        }
+        if (replaced == 0) {
+            return 0;
+        }
+        wal.sync();
+        int k = 0;
+        for (int slot : slots) {
+            if (slot >= 0) {
+                ByteBuffer record = batch.slice(k++ * RECORD_SIZE, RECORD_SIZE);
+                long offset = HEADER_SIZE + (long) slot * RECORD_SIZE;
+                while (record.hasRemaining()) {
+                    channel.write(record, offset + record.position());
+                }
+            }
+        }
+        Metrics.LOG_COMMIT.record(start, (long) replaced * RECORD_SIZE);
+        checkpointIfDue();
+        return replaced;
+    }
+
+    // Deletes booking number n (0-based) by writing a one-byte tombstone over its
+    // flags. The cost does not depend on the size of the file.
+    @Override
+    public synchronized Booking delete(int n) throws IOException {
+        Booking removed = get(n);
+        int slot = index.select(n);
+        wal.delete(++lsn, slot);
+        wal.sync();
+        writeTombstone(slot);
+        index.kill(slot);
+        if (needsCompaction()) {
+            scheduleCompaction();
+        } else {
+            checkpointIfDue();
+        }
+        return removed;
+    }
+
+    private void writeTombstone(int slot) throws IOException {
+        tombstone.clear();
+        tombstone.put(0, FLAG_DELETED);
+        channel.write(tombstone, HEADER_SIZE + (long) slot * RECORD_SIZE + OFF_FLAGS);
+    }
+
+    // Drops every record. The clear is logged first, so a crash part-way through
+    // is finished on the next open rather than leaving a half-cleared file.
+    @Override
+    public synchronized void clear() throws IOException {
+        wal.clear(++lsn);
+        wal.sync();
+        redoClear();
+        checkpoint();
+    }
+
+    // --- REDO (WAL REPLAY) ---
+    // Each puts the data file and offset index into the state the entry describes,
+    // whatever state they were in before, so replaying an entry twice is harmless.
+    private void redoAdd(int slot, ByteBuffer entry, int offset) throws IOException {
+        ByteBuffer record = entry.slice(offset, RECORD_SIZE);
+        long position = HEADER_SIZE + (long) slot * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        while (index.slotCount() <= slot) {
+            index.append(false);
+        }
+        if (entry.get(offset + OFF_FLAGS) == FLAG_LIVE) {
+            index.revive(slot);
+        }
+        nextId = Math.max(nextId, entry.getLong(offset + OFF_ID) + 1);
+    }
+
+    private void redoDelete(int slot) throws IOException {
+        if (slot < index.slotCount()) {
+            writeTombstone(slot);
+            index.kill(slot);
+        }
+    }
+
+    private void redoClear() throws IOException {
+        writeHeader(channel);
+        channel.force(true);
+        index.clear();
+        mapped = null;
+        mappedSize = 0;
+    }
+
+    // --- CHECKPOINTS ---
+    private record Checkpoint(long generation, long lsn, int slots, long nextId, long[] live) {
+    }
+
+    private void checkpointIfDue() throws IOException {
+        if (wal.size() >= CHECKPOINT_WAL_BYTES) {
+            checkpoint();
+        }
+    }
+
+    // Syncs the data file, saves the live bitmap with the current LSN, then empties
+    // the WAL. A crash before the checkpoint file is renamed into place keeps the old
+    // one and replays the WAL; a crash after it just skips entries at or below its LSN.
+    private void checkpoint() throws IOException {
+        long start = System.nanoTime();
+        wal.write();
+        channel.force(true);
+        long[] live = index.liveBits();
+        ByteBuffer buf = ByteBuffer.allocate(CHECKPOINT_HEADER + live.length * 8 + 4);
+        buf.putInt(CHECKPOINT_MAGIC).putLong(generation).putLong(lsn).putInt(index.slotCount())
+           .putLong(nextId).putInt(live.length);
+        for (long word : live) {
+            buf.putLong(word);
+        }
+        crc.reset();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+        Path temp = checkpointPath().resolveSibling(checkpointPath().getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(true);
+        }
+        Files.move(temp, checkpointPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        wal.reset();
+        Metrics.LOG_CHECKPOINT.record(start, buf.capacity());
+    }
+
+    // Returns the saved checkpoint, or null if there is none or it is damaged.
+    private Checkpoint readCheckpoint() throws IOException {
+        Path file = checkpointPath();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.capacity() < CHECKPOINT_HEADER + 4 || buf.getInt(0) != CHECKPOINT_MAGIC) {
+            return null;
+        }
+        int words = buf.getInt(32);
+        if (words < 0 || buf.capacity() != CHECKPOINT_HEADER + words * 8L + 4) {
+            return null;
+        }
+        crc.reset();
+        crc.update(buf.array(), 0, buf.capacity() - 4);
+        if ((int) crc.getValue() != buf.getInt(buf.capacity() - 4)) {
+            return null;
+        }
+        long[] live = new long[words];
+        buf.position(CHECKPOINT_HEADER).asLongBuffer().get(live);
+        return new Checkpoint(buf.getLong(4), buf.getLong(12), buf.getInt(20), buf.getLong(24), live);
+    }
+
+    private Path walPath() {
+        return path.resolveSibling(path.getFileName() + ".wal");
+    }
+
+    private Path checkpointPath() {
+        return path.resolveSibling(path.getFileName() + ".ckpt");
+    }
+
+    // --- COMPACTION ---
+    @Override
+    public synchronized int garbageCount() {
+        return index.slotCount() - index.liveCount();
+    }
+
+    private boolean needsCompaction() {
+        int garbage = index.slotCount() - index.liveCount();
+        return garbage >= COMPACT_MIN_GARBAGE && garbage > index.slotCount() * COMPACT_GARBAGE_RATIO;
+    }
+
+    private void scheduleCompaction() {
+        if (compactionPending) {
+            return;
+        }
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "booking-log-compactor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        compactionPending = true;
+        compactor.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Background compaction failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // Copies the live records into a temp file, syncs it and atomically renames it
+    // over the log. Until the rename the old file is untouched, so a crash at any
+    // point leaves one complete log. Returns the number of records reclaimed.
+    @Override
+    public synchronized int compact() throws IOException {
+        compactionPending = false;
+        int reclaimed = index.slotCount() - index.liveCount();
+        if (reclaimed == 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        // Everything logged so far goes into the checkpoint first, so the WAL is empty
+        // while the slots are renumbered and never refers to the old numbering afterwards.
+        checkpoint();
+        long written = HEADER_SIZE;
+        int live = index.liveCount();
+        Path temp = tempPath();
+        generation++;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out);
+            int slot = index.nextLive(0);
+            while (slot >= 0) {
+                // Copy each run of consecutive live slots in one transfer.
+                int runEnd = slot + 1;
+                while (index.isLive(runEnd)) {
+                    runEnd++;
+                }
+                long length = (long) (runEnd - slot) * RECORD_SIZE;
+                transfer(HEADER_SIZE + (long) slot * RECORD_SIZE, length, out, written);
+                written += length;
+                slot = index.nextLive(runEnd);
+            }
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            generation--;
+            throw e;
+        }
+        swapIn(temp);
+        index.clear();
+        for (int i = 0; i < live; i++) {
+            index.append(true);
+        }
+        checkpoint();
+        Metrics.LOG_COMPACT.record(start, written);
+        return reclaimed;
+    }
+
+    // --- BULK REMOVAL ---
+    // Compaction that also leaves out the live records that match: each record is decoded
+    // and tested once, matches go to 'removal' and runs of survivors are copied in one
+    // transfer each. The log is untouched until the rename, so a failure (or a crash)
+    // before it leaves every booking in place. If nothing matches the copy is dropped.
+    @Override
+    public synchronized int removeIf(Predicate<Booking> match, Removal removal) throws IOException {
+        if (index.liveCount() == 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        checkpoint();
+        MappedByteBuffer buf = view();
+        long written = HEADER_SIZE;
+        int removed = 0;
+        int kept = 0;
+        Path temp = tempPath();
+        generation++;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out);
+            int runStart = 0;
+            int runEnd = 0;
+            for (int slot = index.nextLive(0); slot >= 0; slot = index.nextLive(slot + 1)) {
+                Booking b = decode(buf, HEADER_SIZE + slot * RECORD_SIZE);
+                if (match.test(b)) {
+                    removal.found(b);
+                    removed++;
+                    continue;
+                }
+                kept++;
+                if (slot != runEnd) {
+                    long length = (long) (runEnd - runStart) * RECORD_SIZE;
+                    transfer(HEADER_SIZE + (long) runStart * RECORD_SIZE, length, out, written);
+                    written += length;
+                    runStart = slot;
+                }
+                runEnd = slot + 1;
+            }
+            long length = (long) (runEnd - runStart) * RECORD_SIZE;
+            transfer(HEADER_SIZE + (long) runStart * RECORD_SIZE, length, out, written);
+            written += length;
+            out.force(true);
+            if (removed > 0) {
+                removal.prepare();
+            }
+        } catch (IOException | RuntimeException e) {
+            generation--;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (removed == 0) {
+            generation--;
+            Files.delete(temp);
+            return 0;
+        }
+        swapIn(temp);
+        index.clear();
+        for (int i = 0; i < kept; i++) {
+            index.append(true);
+        }
+        checkpoint();
+        Metrics.LOG_PURGE.record(start, written);
+        removal.committed();
+        return removed;
+    }
+
+    private void transfer(long position, long length, FileChannel out, long outPosition) throws IOException {
+        ByteBuffer chunk = view().slice((int) position, (int) length);
+        while (chunk.hasRemaining()) {
+            out.write(chunk, outPosition + chunk.position());
+        }
+    }
+
+    private Path tempPath() {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private void swapIn(Path temp) throws IOException {
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openChannel();
+    }
+
+    // Makes every append so far durable.
+    @Override
+    public synchronized void flush() throws IOException {
+        wal.sync();
+    }
+
+    // --- READS ---
+    @Override
+    public synchronized int size() {
+        return index.liveCount();
+    }
+
+    // Returns booking number n (0-based) straight from the mapped file.
+    @Override
+    public synchronized Booking get(int n) throws IOException {
+        if (n < 0 || n >= index.liveCount()) {
+            throw new IndexOutOfBoundsException("No booking number " + (n + 1));
+        }
+        return decode(view(), HEADER_SIZE + index.select(n) * RECORD_SIZE);
+    }
+
+    // Returns the booking number (0-based) of the booking with this id, or -1 if it is
+    // not in the log.
+    synchronized int indexOf(long id) throws IOException {
+        int slot = liveSlotOf(id);
+        return slot < 0 ? -1 : index.rank(slot);
+    }
+
+    // Ids only ever grow and compaction keeps record order, so the slots are sorted by id
+    // and a binary search over the id field finds a booking in O(log n). -1 if not live.
+    private int liveSlotOf(long id) throws IOException {
+        MappedByteBuffer buf = view();
+        int lo = 0;
+        int hi = index.slotCount() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = buf.getLong(HEADER_SIZE + mid * RECORD_SIZE + OFF_ID);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return index.isLive(mid) ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOf(Booking booking) throws IOException {
+        return indexOf(booking.id());
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Booking> action) throws IOException {
+        MappedByteBuffer buf = view();
+        for (int slot = index.nextLive(0); slot >= 0; slot = index.nextLive(slot + 1)) {
+            action.accept(decode(buf, HEADER_SIZE + slot * RECORD_SIZE));
+        }
+    }
+
+    @Override
+    public synchronized <R> List<R> scanRecords(LocalDate from, LocalDate to, RecordScan<R> scan) throws IOException {
+        return List.of(scan.scan(view().duplicate(), index.liveBits(), index.slotCount()));
+    }
+
+    // Maps the file for reading, re-mapping only after it has grown.
+    private MappedByteBuffer view() throws IOException {
+        long size = channel.size();
+        if (mapped == null || mappedSize != size) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedSize = size;
+        }
+        return mapped;
+    }
+
+    // --- RECORD ENCODING ---
+    private void encode(Booking b, ByteBuffer buf) {
+        buf.clear();
+        Arrays.fill(buf.array(), (byte) 0);
+        buf.put(OFF_FLAGS, FLAG_LIVE);
+        buf.put(OFF_ACC, (byte) b.accIndex());
+        buf.putShort(OFF_UNIT, (short) b.unit());
+        buf.putInt(OFF_DAYS, b.days());
+        buf.putLong(OFF_ID, b.id());
+        buf.putInt(OFF_IN_DAY, (int) b.inDate().toEpochDay());
+        buf.putInt(OFF_OUT_DAY, (int) b.outDate().toEpochDay());
+        buf.putLong(OFF_DISCOUNT, b.discountPence());
+        buf.putLong(OFF_TOTAL, b.totalPence());
+        putString(buf, OFF_NAME, NAME_BYTES, b.name());
+        putString(buf, OFF_CONTACT, CONTACT_BYTES, b.contact());
+        putString(buf, OFF_EMAIL, EMAIL_BYTES, b.email());
+        crc.reset();
+        crc.update(buf.array(), 1, OFF_CRC - 1);
+        buf.putInt(OFF_CRC, (int) crc.getValue());
+        buf.position(0).limit(RECORD_SIZE);
+    }
+
+    // True if the value can be stored in a field of this size (see putString).
+    static boolean fits(String value, int fieldBytes) {
+        return value.getBytes(StandardCharsets.UTF_8).length < fieldBytes;
+    }
+
+    static void requireStorable(Booking b) {
+        if (!fits(b.name(), NAME_BYTES) || !fits(b.contact(), CONTACT_BYTES) || !fits(b.email(), EMAIL_BYTES)) {
+            throw new IllegalArgumentException("Name, phone or email too long to store");
+        }
+    }
+
+    // Strings are stored as a length byte plus UTF-8. One that does not fit is refused
+    // rather than cut short, so what is read back is always what was saved.
+    private static void putString(ByteBuffer buf, int offset, int fieldBytes, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= fieldBytes) {
+            throw new IllegalArgumentException("Too long to store (" + bytes.length + " bytes, at most "
+                + (fieldBytes - 1) + "): " + value);
+        }
+        buf.put(offset, (byte) bytes.length);
+        buf.put(offset + 1, bytes);
+    }
+
+    private boolean checksumMatches(ByteBuffer buf, int base) {
+        crc.reset();
+        crc.update(buf.slice(base + 1, OFF_CRC - 1));
+        return (int) crc.getValue() == buf.getInt(base + OFF_CRC);
+    }
+
+    static Booking decode(ByteBuffer buf, int base) {
+        return new Booking(
+            buf.getLong(base + OFF_ID),
+            getString(buf, base + OFF_NAME),
+            getString(buf, base + OFF_CONTACT),
+            getString(buf, base + OFF_EMAIL),
+            buf.get(base + OFF_ACC),
+            LocalDate.ofEpochDay(buf.getInt(base + OFF_IN_DAY)),
+            LocalDate.ofEpochDay(buf.getInt(base + OFF_OUT_DAY)),
+            buf.getLong(base + OFF_DISCOUNT),
+            buf.getLong(base + OFF_TOTAL),
+            buf.getShort(base + OFF_UNIT) & 0xFFFF);
+    }
+
+    static String getString(ByteBuffer buf, int offset) {
+        int len = buf.get(offset) & 0xFF;
+        byte[] bytes = new byte[len];
+        buf.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,942 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Ad-hoc queries over the bookings, for the questions the fixed admin options do not answer.
+ *
+ * <pre>
+ * [SELECT column, ...] [WHERE condition] [GROUP BY field, ...] [ORDER BY column [ASC|DESC], ...] [LIMIT n]
+ *
+ *   select name, email, days, total where accommodation = Imperial Lodge and days > 14
+ *     and month = 08/2027 order by total desc limit 10
+ *   select accommodation, count, sum(total), avg(days) where checkin >= 01/01/2027 group by accommodation
+ * </pre>
+ *
+ * A query is compiled once into a filter over the raw booking records plus either a row
+ * collector or a per-group accumulator, then run as a single pass: each log's slots are
+ * split into ranges scanned in parallel (as in BookingAnalytics), and only records that
+ * pass the filter are decoded. ORDER BY with LIMIT keeps a bounded heap of the best n per
+ * range, so memory follows the size of the result, not the number of bookings.
+ * Conditions on the check-in date or month that every match must meet also narrow which
+ * monthly logs are read at all.
+ */
+final class BookingQuery {
+
+    enum Type { INT, MONEY, DATE, MONTH, TEXT, ACCOMMODATION }
+
+    // The booking columns a query can use (those saveBooking writes, plus id, unit and check-in month).
+    enum Field {
+        ID("id", Type.INT),
+        NAME("name", Type.TEXT),
+        CONTACT("contact", Type.TEXT),
+        EMAIL("email", Type.TEXT),
+        ACCOMMODATION("accommodation", Type.ACCOMMODATION),
+        UNIT("unit", Type.INT),
+        DAYS("days", Type.INT),
+        CHECK_IN("checkin", Type.DATE),
+        CHECK_OUT("checkout", Type.DATE),
+        MONTH("month", Type.MONTH),
+        DISCOUNT("discount", Type.MONEY),
+        TOTAL("total", Type.MONEY);
+
+        final String label;
+        final Type type;
+
+        Field(String label, Type type) {
+            this.label = label;
+            this.type = type;
+        }
+    }
+
+    enum Function { COUNT, SUM, AVG, MIN, MAX }
+
+    // One output column: a field, or an aggregate over one (no field for COUNT).
+    record Column(Field field, Function function) {
+        String label() {
+            if (function == null) {
+                return field.label;
+            }
+            String name = function.name().toLowerCase(Locale.ROOT);
+            return field == null ? name : name + "(" + field.label + ")";
+        }
+    }
+
+    private record SortKey(int column, Field field, boolean descending) {
+    }
+
+    // Rows in output order, each value a Long, Double or String (see format).
+    record Result(List<Column> columns, List<Object[]> rows, long scanned, long matched) {
+    }
+
+    private interface RecordFilter {
+        boolean test(ByteBuffer records, int base);
+    }
+
+    private static final Map<String, Field> FIELD_NAMES = new HashMap<>();
+
+    static {
+        for (Field field : Field.values()) {
+            FIELD_NAMES.put(field.label, field);
+        }
+        FIELD_NAMES.put("phone", Field.CONTACT);
+        FIELD_NAMES.put("type", Field.ACCOMMODATION);
+        FIELD_NAMES.put("nights", Field.DAYS);
+        FIELD_NAMES.put("check-in", Field.CHECK_IN);
+        FIELD_NAMES.put("check-out", Field.CHECK_OUT);
+        FIELD_NAMES.put("price", Field.TOTAL);
+    }
+
+    private static final List<Column> DEFAULT_COLUMNS = List.of(
+        new Column(Field.ID, null), new Column(Field.NAME, null), new Column(Field.EMAIL, null),
+        new Column(Field.ACCOMMODATION, null), new Column(Field.CHECK_IN, null),
+        new Column(Field.CHECK_OUT, null), new Column(Field.DAYS, null), new Column(Field.TOTAL, null));
+
+    private final RecordFilter filter;
+    private final List<Column> columns;
+    private final List<Field> groupBy;
+    private final boolean grouped;
+    private final List<SortKey> orderBy;
+    private final int limit; // -1 = no limit
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Comparator<Booking> rowOrder;
+    private final Comparator<Object[]> resultOrder;
+
+    private BookingQuery(RecordFilter filter, List<Column> columns, List<Field> groupBy, boolean grouped,
+                         List<SortKey> orderBy, int limit, LocalDate from, LocalDate to) {
+        this.filter = filter;
+        this.columns = columns;
+        this.groupBy = groupBy;
+        this.grouped = grouped;
+        this.orderBy = orderBy;
+        this.limit = limit;
+        this.from = from;
+        this.to = to;
+        Comparator<Booking> rows = null;
+        Comparator<Object[]> results = null;
+        for (SortKey key : orderBy) {
+            Comparator<Booking> byField = (x, y) -> compareValues(value(key.field(), x), value(key.field(), y));
+            Comparator<Object[]> byColumn = (x, y) -> compareValues(x[key.column()], y[key.column()]);
+            if (key.descending()) {
+                byField = byField.reversed();
+                byColumn = byColumn.reversed();
+            }
+            rows = rows == null ? byField : rows.thenComparing(byField);
+            results = results == null ? byColumn : results.thenComparing(byColumn);
+        }
+        // Ties (and unordered rows) come out in id order, so a query always gives the same answer.
+        Comparator<Booking> byId = Comparator.comparingLong(Booking::id);
+        rowOrder = rows == null ? byId : rows.thenComparing(byId);
+        resultOrder = results;
+    }
+
+    // --- RUNNING ---
+    Result run(BookingStore store) throws IOException {
+        List<Partial> parts = store.scanRecords(from, to,
+            (records, live, slots) -> ForkJoinPool.commonPool().invoke(new ScanTask(records, live, 0, slots)));
+        Partial total = new Partial();
+        for (Partial part : parts) {
+            total.merge(part);
+        }
+        return total.finish();
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private final class ScanTask extends RecursiveTask<Partial> {
+        private final ByteBuffer records;
+        private final long[] live;
+        private final int fromSlot;
+        private final int toSlot;
+
+        ScanTask(ByteBuffer records, long[] live, int fromSlot, int toSlot) {
+            this.records = records;
+            this.live = live;
+            this.fromSlot = fromSlot;
+            this.toSlot = toSlot;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (toSlot - fromSlot <= BookingAnalytics.SPLIT_SLOTS) {
+                Partial part = new Partial();
+                for (int slot = nextLive(fromSlot); slot < toSlot; slot = nextLive(slot + 1)) {
+                    part.add(records, BookingLog.HEADER_SIZE + slot * BookingLog.RECORD_SIZE);
+                }
+                return part;
+            }
+            int mid = (fromSlot + toSlot) >>> 1;
+            ScanTask left = new ScanTask(records, live, fromSlot, mid);
+            left.fork();
+            Partial right = new ScanTask(records, live, mid, toSlot).compute();
+            Partial merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+
+        // First live slot at or after 'slot' (toSlot if none), skipping a word of dead slots at a time.
+        private int nextLive(int slot) {
+            while (slot < toSlot) {
+                long word = live[slot >>> 6] >>> (slot & 63);
+                if (word != 0) {
+                    return slot + Long.numberOfTrailingZeros(word);
+                }
+                slot = (slot | 63) + 1;
+            }
+            return toSlot;
+        }
+    }
+
+    // What one range of slots produced: its matching rows (or the best 'limit' of them),
+    // or an accumulator per group. Merging keeps store order, so a later range merges in after.
+    private final class Partial {
+        long scanned;
+        long matched;
+        final List<Booking> rows = new ArrayList<>();
+        final PriorityQueue<Booking> best;
+        final Map<List<Object>, long[]> groups = new HashMap<>();
+
+        Partial() {
+            best = !grouped && !orderBy.isEmpty() && limit >= 0 ? new PriorityQueue<>(rowOrder.reversed()) : null;
+        }
+
+        void add(ByteBuffer records, int base) {
+            scanned++;
+            if (!filter.test(records, base)) {
+                return;
+            }
+            matched++;
+            if (grouped) {
+                Object[] key = new Object[groupBy.size()];
+                for (int i = 0; i < key.length; i++) {
+                    Field field = groupBy.get(i);
+                    key[i] = field.type == Type.TEXT ? text(field, records, base) : (Object) number(field, records, base);
+                }
+                long[] state = groups.computeIfAbsent(Arrays.asList(key), k -> newState());
+                accumulate(state, records, base);
+            } else if (best != null) {
+                offer(best, BookingLog.decode(records, base), rowOrder, limit);
+            } else if (limit < 0 || rows.size() < limit) {
+                rows.add(BookingLog.decode(records, base));
+            }
+        }
+
+        void merge(Partial other) {
+            scanned += other.scanned;
+            matched += other.matched;
+            if (grouped) {
+                for (Map.Entry<List<Object>, long[]> group : other.groups.entrySet()) {
+                    long[] mine = groups.get(group.getKey());
+                    if (mine == null) {
+                        groups.put(group.getKey(), group.getValue());
+                    } else {
+                        combine(mine, group.getValue());
+                    }
+                }
+            } else if (best != null) {
+                for (Booking b : other.best) {
+                    offer(best, b, rowOrder, limit);
+                }
+            } else {
+                for (Booking b : other.rows) {
+                    if (limit >= 0 && rows.size() >= limit) {
+                        break;
+                    }
+                    rows.add(b);
+                }
+            }
+        }
+
+        Result finish() {
+            List<Object[]> out = new ArrayList<>();
+            if (grouped) {
+                if (groups.isEmpty() && groupBy.isEmpty()) {
+                    groups.put(List.of(), newState()); // aggregates over no rows still give one line
+                }
+                // Groups come out in key order unless the query orders them.
+                List<Map.Entry<List<Object>, long[]>> sorted = new ArrayList<>(groups.entrySet());
+                sorted.sort((x, y) -> compareKeys(x.getKey(), y.getKey()));
+                for (Map.Entry<List<Object>, long[]> group : sorted) {
+                    out.add(groupRow(group.getKey(), group.getValue()));
+                }
+                if (resultOrder != null) {
+                    if (limit >= 0) {
+                        PriorityQueue<Object[]> top = new PriorityQueue<>(resultOrder.reversed());
+                        for (Object[] row : out) {
+                            offer(top, row, resultOrder, limit);
+                        }
+                        out = new ArrayList<>(top);
+                    }
+                    out.sort(resultOrder);
+                } else if (limit >= 0 && out.size() > limit) {
+                    out = new ArrayList<>(out.subList(0, limit));
+                }
+            } else {
+                List<Booking> bookings = new ArrayList<>(best != null ? best : rows);
+                if (!orderBy.isEmpty()) {
+                    bookings.sort(rowOrder);
+                }
+                for (Booking b : bookings) {
+                    Object[] row = new Object[columns.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = value(columns.get(i).field(), b);
+                    }
+                    out.add(row);
+                }
+            }
+            return new Result(columns, out, scanned, matched);
+        }
+    }
+
+    // Keeps the 'limit' items that come first in 'order'; the heap's head is the one to drop next.
+    private static <T> void offer(PriorityQueue<T> heap, T item, Comparator<T> order, int limit) {
+        if (heap.size() < limit) {
+            heap.add(item);
+        } else if (limit > 0 && order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    // --- AGGREGATES ---
+    // Two longs per column: COUNT (count, -), SUM and AVG (sum, count), MIN and MAX (value, count).
+    private long[] newState() {
+        long[] state = new long[columns.size() * 2];
+        for (int i = 0; i < columns.size(); i++) {
+            Function function = columns.get(i).function();
+            if (function == Function.MIN) {
+                state[2 * i] = Long.MAX_VALUE;
+            } else if (function == Function.MAX) {
+                state[2 * i] = Long.MIN_VALUE;
+            }
+        }
+        return state;
+    }
+
+    private void accumulate(long[] state, ByteBuffer records, int base) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.function() == null) {
+                continue;
+            }
+            if (column.function() == Function.COUNT) {
+                state[2 * i]++;
+                continue;
+            }
+            long v = number(column.field(), records, base);
+            switch (column.function()) {
+                case MIN -> state[2 * i] = Math.min(state[2 * i], v);
+                case MAX -> state[2 * i] = Math.max(state[2 * i], v);
+                default -> state[2 * i] += v;
+            }
+            state[2 * i + 1]++;
+        }
+    }
+
+    private void combine(long[] into, long[] other) {
+        for (int i = 0; i < columns.size(); i++) {
+            Function function = columns.get(i).function();
+            if (function == Function.MIN) {
+                into[2 * i] = Math.min(into[2 * i], other[2 * i]);
+            } else if (function == Function.MAX) {
+                into[2 * i] = Math.max(into[2 * i], other[2 * i]);
+            } else {
+                into[2 * i] += other[2 * i];
+            }
+            into[2 * i + 1] += other[2 * i + 1];
+        }
+    }
+
+    private Object[] groupRow(List<Object> key, long[] state) {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            Column column = columns.get(i);
+            long count = state[2 * i + 1];
+            row[i] = switch (column.function()) {
+                case null -> key.get(groupBy.indexOf(column.field()));
+                case COUNT -> state[2 * i];
+                case SUM -> state[2 * i];
+                case AVG -> count == 0 ? null : (double) state[2 * i] / count;
+                case MIN, MAX -> count == 0 ? null : (Object) state[2 * i];
+            };
+        }
+        return row;
+    }
+
+    // --- FIELD ACCESS ---
+    // Straight from a record in the mapped log (see BookingLog for the layout).
+    private static long number(Field field, ByteBuffer r, int base) {
+        return switch (field) {
+            case ID -> r.getLong(base + BookingLog.OFF_ID);
+            case ACCOMMODATION -> r.get(base + BookingLog.OFF_ACC);
+            case UNIT -> (r.getShort(base + BookingLog.OFF_UNIT) & 0xFFFF) + 1;
+            case DAYS -> r.getInt(base + BookingLog.OFF_DAYS);
+            case CHECK_IN -> r.getInt(base + BookingLog.OFF_IN_DAY);
+            case CHECK_OUT -> r.getInt(base + BookingLog.OFF_OUT_DAY);
+            case MONTH -> BookingAnalytics.epochMonth(r.getInt(base + BookingLog.OFF_IN_DAY));
+            case DISCOUNT -> r.getLong(base + BookingLog.OFF_DISCOUNT);
+            case TOTAL -> r.getLong(base + BookingLog.OFF_TOTAL);
+            default -> throw new IllegalArgumentException(field.label + " is not a number");
+        };
+    }
+
+    private static String text(Field field, ByteBuffer r, int base) {
+        return switch (field) {
+            case NAME -> BookingLog.getString(r, base + BookingLog.OFF_NAME);
+            case CONTACT -> BookingLog.getString(r, base + BookingLog.OFF_CONTACT);
+            case EMAIL -> BookingLog.getString(r, base + BookingLog.OFF_EMAIL);
+            default -> throw new IllegalArgumentException(field.label + " is not text");
+        };
+    }
+
+    // The same values from a decoded booking: a String for text fields, otherwise a Long.
+    private static Object value(Field field, Booking b) {
+        return switch (field) {
+            case ID -> b.id();
+            case NAME -> b.name();
+            case CONTACT -> b.contact();
+            case EMAIL -> b.email();
+            case ACCOMMODATION -> (long) b.accIndex();
+            case UNIT -> (long) b.unit() + 1;
+            case DAYS -> (long) b.days();
+            case CHECK_IN -> b.inDate().toEpochDay();
+            case CHECK_OUT -> b.outDate().toEpochDay();
+            case MONTH -> (long) BookingAnalytics.epochMonth((int) b.inDate().toEpochDay());
+            case DISCOUNT -> b.discountPence();
+            case TOTAL -> b.totalPence();
+        };
+    }
+
+    // Empty aggregates (null) sort before everything else; text sorts ignoring case.
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof String x && b instanceof String y) {
+            return x.compareToIgnoreCase(y);
+        }
+        if (a instanceof Long x && b instanceof Long y) {
+            return Long.compare(x, y);
+        }
+        return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+
+    private static int compareKeys(List<Object> a, List<Object> b) {
+        for (int i = 0; i < a.size(); i++) {
+            int c = compareValues(a.get(i), b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    // --- OUTPUT ---
+    static String format(Column column, Object value) {
+        if (value == null) {
+            return "-";
+        }
+        if (column.function() == Function.COUNT) {
+            return value.toString();
+        }
+        Type type = column.field().type;
+        if (value instanceof Double d) {
+            return type == Type.MONEY ? VacayStarBooking.formatMoney(Math.round(d)) : String.format("%.1f", d);
+        }
+        if (value instanceof String s) {
+            return s;
+        }
+        long v = (Long) value;
+        return switch (type) {
+            case MONEY -> VacayStarBooking.formatMoney(v);
+            case DATE -> LocalDate.ofEpochDay(v).format(VacayStarBooking.DATE_FORMAT);
+            case MONTH -> YearMonth.of(Math.floorDiv((int) v, 12), Math.floorMod((int) v, 12) + 1)
+                .format(VacayStarBooking.MONTH_FORMAT);
+            case ACCOMMODATION -> VacayStarBooking.ACCOMMODATION_NAMES[(int) v];
+            default -> Long.toString(v);
+        };
+    }
+
+    // A table sized to its widest values, numbers right-aligned.
+    static String render(Result result) {
+        List<Column> cols = result.columns();
+        String[][] cells = new String[result.rows().size()][cols.size()];
+        int[] widths = new int[cols.size()];
+        boolean[] right = new boolean[cols.size()];
+        for (int c = 0; c < cols.size(); c++) {
+            widths[c] = cols.get(c).label().length();
+            Column col = cols.get(c);
+            right[c] = col.function() != null || col.field().type == Type.INT || col.field().type == Type.MONEY;
+        }
+        for (int r = 0; r < cells.length; r++) {
+            for (int c = 0; c < cols.size(); c++) {
+                cells[r][c] = format(cols.get(c), result.rows().get(r)[c]);
+                widths[c] = Math.max(widths[c], cells[r][c].length());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        int lineWidth = 0;
+        for (int c = 0; c < cols.size(); c++) {
+            appendCell(sb, c, cols.get(c).label(), widths[c], right[c]);
+            lineWidth += widths[c] + (c == 0 ? 0 : 3);
+        }
+        sb.append('\n').append("-".repeat(lineWidth)).append('\n');
+        for (String[] row : cells) {
+            for (int c = 0; c < row.length; c++) {
+                appendCell(sb, c, row[c], widths[c], right[c]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendCell(StringBuilder sb, int c, String text, int width, boolean right) {
+        if (c > 0) {
+            sb.append(" | ");
+        }
+        sb.append(String.format(right ? "%" + width + "s" : "%-" + width + "s", text));
+    }
+
+    // --- PARSING ---
+    // Throws IllegalArgumentException, with a message for the admin, if the query is not valid.
+    static BookingQuery parse(String text) {
+        return new Parser(tokenize(text)).query();
+    }
+
+    // Words (letters, digits and . / - @ _ +), quoted strings (kept with their opening
+    // quote so they are never read as keywords) and the symbols ( ) , * = != <> < <= > >=.
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"' || c == '\'') {
+                int end = text.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Missing closing quote");
+                }
+                tokens.add("\"" + text.substring(i + 1, end));
+                i = end + 1;
+            } else if ("(),*".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if ("=!<>".indexOf(c) >= 0) {
+                String two = i + 1 < text.length() ? text.substring(i, i + 2) : "";
+                if (two.equals("!=") || two.equals("<>") || two.equals("<=") || two.equals(">=")) {
+                    tokens.add(two);
+                    i += 2;
+                } else if (c == '!') {
+                    throw new IllegalArgumentException("Unexpected '!'");
+                } else {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || ".-/@_+".indexOf(text.charAt(i)) >= 0)) {
+                    i++;
+                }
+                if (i == start) {
+                    throw new IllegalArgumentException("Unexpected '" + c + "'");
+                }
+                tokens.add(text.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private static final List<String> CLAUSE_WORDS = List.of("select", "where", "group", "order", "limit", "and", "or");
+
+        private final List<String> tokens;
+        private int pos;
+        // Check-in bounds every match must meet (from comparisons joined only by AND), in epoch days.
+        private long minDay = Long.MIN_VALUE;
+        private long maxDay = Long.MAX_VALUE;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        BookingQuery query() {
+            List<Column> columns = null;
+            RecordFilter filter = (r, base) -> true;
+            List<Field> groupBy = new ArrayList<>();
+            List<SortKey> orderBy = new ArrayList<>();
+            List<Column> orderColumns = new ArrayList<>();
+            List<Boolean> descending = new ArrayList<>();
+            int limit = -1;
+            if (accept("select")) {
+                columns = selectList();
+            }
+            if (accept("where")) {
+                filter = condition();
+            }
+            if (accept("group")) {
+                expect("by");
+                do {
+                    groupBy.add(field(next()));
+                } while (accept(","));
+            }
+            if (accept("order")) {
+                expect("by");
+                do {
+                    orderColumns.add(column());
+                    boolean desc = accept("desc");
+                    if (!desc) {
+                        accept("asc");
+                    }
+                    descending.add(desc);
+                } while (accept(","));
+            }
+            if (accept("limit")) {
+                String n = next();
+                try {
+                    limit = Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    limit = -1;
+                }
+                if (limit < 1) {
+                    throw new IllegalArgumentException("LIMIT needs a whole number above 0, not '" + n + "'");
+                }
+            }
+            if (pos < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + display(tokens.get(pos)) + "'");
+            }
+
+            boolean grouped = !groupBy.isEmpty() || columns != null && columns.stream().anyMatch(c -> c.function() != null);
+            if (columns == null) {
+                if (grouped) {
+                    columns = new ArrayList<>();
+                    for (Field field : groupBy) {
+                        columns.add(new Column(field, null));
+                    }
+                    columns.add(new Column(null, Function.COUNT));
+                } else {
+                    columns = DEFAULT_COLUMNS;
+                }
+            }
+            if (grouped) {
+                for (Column column : columns) {
+                    if (column.function() == null && !groupBy.contains(column.field())) {
+                        throw new IllegalArgumentException(column.label() + " must be in GROUP BY or inside an aggregate");
+                    }
+                }
+            }
+            for (int i = 0; i < orderColumns.size(); i++) {
+                Column key = orderColumns.get(i);
+                int index = columns.indexOf(key);
+                if (grouped && index < 0) {
+                    throw new IllegalArgumentException("ORDER BY " + key.label() + " must be one of the selected columns");
+                }
+                if (!grouped && key.function() != null) {
+                    throw new IllegalArgumentException("ORDER BY " + key.label() + " needs GROUP BY");
+                }
+                orderBy.add(new SortKey(index, key.field(), descending.get(i)));
+            }
+            LocalDate from = minDay == Long.MIN_VALUE ? LocalDate.MIN : LocalDate.ofEpochDay(minDay);
+            LocalDate to = maxDay == Long.MAX_VALUE ? LocalDate.MAX : LocalDate.ofEpochDay(maxDay);
+            return new BookingQuery(filter, List.copyOf(columns), List.copyOf(groupBy), grouped, orderBy, limit, from, to);
+        }
+
+        private List<Column> selectList() {
+            if (accept("*")) {
+                return null;
+            }
+            List<Column> columns = new ArrayList<>();
+            do {
+                columns.add(column());
+            } while (accept(","));
+            return columns;
+        }
+
+        // A field, "count", or function(field) / count(*).
+        private Column column() {
+            String word = next();
+            Function function = function(word);
+            if (function == null) {
+                return new Column(field(word), null);
+            }
+            if (!accept("(")) {
+                if (function == Function.COUNT) {
+                    return new Column(null, Function.COUNT);
+                }
+                throw new IllegalArgumentException(function.name() + " needs a field, e.g. " + word + "(total)");
+            }
+            if (function == Function.COUNT && accept("*")) {
+                expect(")");
+                return new Column(null, Function.COUNT);
+            }
+            Field field = field(next());
+            expect(")");
+            if (function == Function.COUNT) {
+                return new Column(null, Function.COUNT);
+            }
+            boolean numeric = field.type == Type.INT || field.type == Type.MONEY;
+            boolean ordered = numeric || field.type == Type.DATE || field.type == Type.MONTH;
+            if ((function == Function.SUM || function == Function.AVG) ? !numeric : !ordered) {
+                throw new IllegalArgumentException(function.name() + " does not work on " + field.label);
+            }
+            return new Column(field, function);
+        }
+
+        // --- CONDITIONS ---
+        // OR binds looser than AND, AND looser than NOT.
+        private RecordFilter condition() {
+            long savedMin = minDay;
+            long savedMax = maxDay;
+            RecordFilter left = conjunction(true);
+            boolean or = false;
+            while (accept("or")) {
+                or = true;
+                RecordFilter a = left;
+                RecordFilter b = conjunction(false);
+                left = (r, base) -> a.test(r, base) || b.test(r, base);
+            }
+            if (or) {
+                // A bound from one side of an OR is not met by every match.
+                minDay = savedMin;
+                maxDay = savedMax;
+            }
+            return left;
+        }
+
+        private RecordFilter conjunction(boolean bounds) {
+            RecordFilter left = factor(bounds);
+            while (accept("and")) {
+                RecordFilter a = left;
+                RecordFilter b = factor(bounds);
+                left = (r, base) -> a.test(r, base) && b.test(r, base);
+            }
+            return left;
+        }
+
+        private RecordFilter factor(boolean bounds) {
+            if (accept("not")) {
+                RecordFilter inner = factor(false);
+                return (r, base) -> !inner.test(r, base);
+            }
+            if (accept("(")) {
+                long savedMin = minDay;
+                long savedMax = maxDay;
+                RecordFilter inner = condition();
+                expect(")");
+                if (!bounds) {
+                    minDay = savedMin;
+                    maxDay = savedMax;
+                }
+                return inner;
+            }
+            Field field = field(next());
+            String op = next().toLowerCase(Locale.ROOT);
+            if (!List.of("=", "!=", "<>", "<", "<=", ">", ">=", "contains", "starts").contains(op)) {
+                throw new IllegalArgumentException("Expected a comparison after " + field.label + ", not '" + op + "'");
+            }
+            if (field.type == Type.TEXT) {
+                String value = value().toLowerCase(Locale.ROOT);
+                return textFilter(field, op, value);
+            }
+            if (op.equals("contains") || op.equals("starts")) {
+                throw new IllegalArgumentException(op.toUpperCase(Locale.ROOT) + " only works on text fields");
+            }
+            long value = number(field, value());
+            if (field.type == Type.ACCOMMODATION && !op.equals("=") && !op.equals("!=") && !op.equals("<>")) {
+                throw new IllegalArgumentException("accommodation can only be compared with = or !=");
+            }
+            if (bounds) {
+                narrow(field, op, value);
+            }
+            return numberFilter(field, op, value);
+        }
+
+        private static RecordFilter textFilter(Field field, String op, String value) {
+            return switch (op) {
+                case "=" -> (r, base) -> text(field, r, base).equalsIgnoreCase(value);
+                case "!=", "<>" -> (r, base) -> !text(field, r, base).equalsIgnoreCase(value);
+                case "contains" -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).contains(value);
+                case "starts" -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).startsWith(value);
+                case "<" -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).compareTo(value) < 0;
+                case "<=" -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).compareTo(value) <= 0;
+                case ">" -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).compareTo(value) > 0;
+                default -> (r, base) -> text(field, r, base).toLowerCase(Locale.ROOT).compareTo(value) >= 0;
+            };
+        }
+
+        private static RecordFilter numberFilter(Field field, String op, long value) {
+            return switch (op) {
+                case "=" -> (r, base) -> BookingQuery.number(field, r, base) == value;
+                case "!=", "<>" -> (r, base) -> BookingQuery.number(field, r, base) != value;
+                case "<" -> (r, base) -> BookingQuery.number(field, r, base) < value;
+                case "<=" -> (r, base) -> BookingQuery.number(field, r, base) <= value;
+                case ">" -> (r, base) -> BookingQuery.number(field, r, base) > value;
+                default -> (r, base) -> BookingQuery.number(field, r, base) >= value;
+            };
+        }
+
+        // Tightens the check-in range the scan has to cover.
+        private void narrow(Field field, String op, long value) {
+            long first;
+            long last;
+            if (field == Field.CHECK_IN) {
+                first = value;
+                last = value;
+            } else if (field == Field.MONTH) {
+                first = BookingAnalytics.firstDay((int) value);
+                last = BookingAnalytics.firstDay((int) value + 1) - 1;
+            } else {
+                return;
+            }
+            switch (op) {
+                case "=" -> {
+                    minDay = Math.max(minDay, first);
+                    maxDay = Math.min(maxDay, last);
+                }
+                case "<" -> maxDay = Math.min(maxDay, first - 1);
+                case "<=" -> maxDay = Math.min(maxDay, last);
+                case ">" -> minDay = Math.max(minDay, last + 1);
+                case ">=" -> minDay = Math.max(minDay, first);
+                default -> { }
+            }
+        }
+
+        // --- VALUES ---
+        // A quoted string, or bare words up to the next keyword or symbol ("Imperial Lodge").
+        private String value() {
+            String first = next();
+            if (first.startsWith("\"")) {
+                return first.substring(1);
+            }
+            StringBuilder words = new StringBuilder(first);
+            while (pos < tokens.size() && isWord(tokens.get(pos))) {
+                words.append(' ').append(tokens.get(pos++));
+            }
+            return words.toString();
+        }
+
+        private boolean isWord(String token) {
+            return !token.startsWith("\"") && Character.isLetterOrDigit(token.charAt(0))
+                && !CLAUSE_WORDS.contains(token.toLowerCase(Locale.ROOT));
+        }
+
+        private static long number(Field field, String text) {
+            try {
+                return switch (field.type) {
+                    case INT -> Long.parseLong(text);
+                    case MONEY -> new BigDecimal(text).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+                    case DATE -> {
+                        LocalDate date = DateParser.parse(text);
+                        if (date == null) {
+                            throw new IllegalArgumentException("Invalid date '" + text + "' for " + field.label + ": use dd/mm/yyyy");
+                        }
+                        yield date.toEpochDay();
+                    }
+                    case MONTH -> {
+                        YearMonth month = YearMonth.parse(text, VacayStarBooking.MONTH_FORMAT);
+                        yield month.getYear() * 12L + month.getMonthValue() - 1;
+                    }
+                    case ACCOMMODATION -> {
+                        for (int i = 0; i < VacayStarBooking.ACCOMMODATION_NAMES.length; i++) {
+                            if (VacayStarBooking.ACCOMMODATION_NAMES[i].equalsIgnoreCase(text)) {
+                                yield i;
+                            }
+                        }
+                        throw new IllegalArgumentException("Unknown accommodation '" + text + "'");
+                    }
+                    case TEXT -> throw new IllegalStateException();
+                };
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid number '" + text + "' for " + field.label);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid month '" + text + "' for " + field.label + ": use mm/yyyy");
+            }
+        }
+
+        // --- TOKENS ---
+        private static Field field(String word) {
+            Field field = FIELD_NAMES.get(word.toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field '" + display(word) + "'. Fields: " + fieldList());
+            }
+            return field;
+        }
+
+        private static Function function(String word) {
+            for (Function function : Function.values()) {
+                if (function.name().equalsIgnoreCase(word)) {
+                    return function;
+                }
+            }
+            return null;
+        }
+
+        private String next() {
+            if (pos >= tokens.size()) {
+                throw new IllegalArgumentException("The query ends too soon");
+            }
+            return tokens.get(pos++);
+        }
+
+        private boolean accept(String word) {
+            if (pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(word)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String word) {
+            if (!accept(word)) {
+                throw new IllegalArgumentException("Expected '" + word.toUpperCase(Locale.ROOT) + "'"
+                    + (pos < tokens.size() ? " before '" + display(tokens.get(pos)) + "'" : " at the end"));
+            }
+        }
+
+        private static String display(String token) {
+            return token.startsWith("\"") ? token.substring(1) : token;
+        }
+    }
+
+    static String fieldList() {
+        List<String> names = new ArrayList<>();
+        for (Field field : Field.values()) {
+            names.add(field.label);
+        }
+        return String.join(", ", names);
+    }
+
+    // Headless mode: query <text> prints the result table.
+    static void run(String[] args) {
+        String text = String.join(" ", Arrays.asList(args).subList(1, args.length));
+        try {
+            BookingQuery query = parse(text);
+            long start = System.nanoTime();
+            Result result = query.run(VacayStarBooking.store());
+            Metrics.QUERY.record(start, result.scanned() * BookingLog.RECORD_SIZE);
+            System.out.print(render(result));
+            System.out.printf("%d rows (%d of %d bookings matched) in %.1f ms\n", result.rows().size(),
+                result.matched(), result.scanned(), (System.nanoTime() - start) / 1e6);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Query error: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Error reading bookings: " + e.getMessage());
+        }
+    }
+}
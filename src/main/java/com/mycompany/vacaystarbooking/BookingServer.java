@@ -0,0 +1,74 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-session booking server (run with: server [port]).
+ * Listens on localhost and runs the normal booking wizard for every connected
+ * front-desk terminal (e.g. "nc localhost 5050") on its own virtual thread, with
+ * its own input, output and BookingContext. All sessions save through the shared
+ * BookingWriter, so their writes are serialized and group-committed.
+ */
+final class BookingServer {
+
+    static final int DEFAULT_PORT = 5050;
+
+    private static final AtomicInteger activeSessions = new AtomicInteger();
+
+    private BookingServer() {
+    }
+
+    // --- ACCEPT LOOP ---
+    static void run(int port) {
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            VacayStarBooking.writer(); // open the store before the first client arrives
+            System.out.println("VacayStar booking server listening on localhost:" + port);
+            while (true) {
+                Socket client = server.accept();
+                Thread.ofVirtual().name("session-" + client.getPort()).start(() -> serve(client));
+            }
+        } catch (IOException e) {
+            System.out.println("Booking server stopped: " + e.getMessage());
+        }
+    }
+
+    // --- ONE CLIENT SESSION ---
+    // Repeats the booking wizard until the client says no or disconnects.
+    private static void serve(Socket client) {
+        int active = activeSessions.incrementAndGet();
+        System.out.println("Session opened from " + client.getRemoteSocketAddress() + " (" + active + " active)");
+        try (client;
+             Scanner input = new Scanner(client.getInputStream(), StandardCharsets.UTF_8);
+             PrintStream output = new PrintStream(client.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            VacayStarBooking.setSessionOutput(output);
+            output.println("\n==============================================================");
+            output.println("||||||||||||||||********** VacayStar *********||||||||||||||||");
+            output.println("||||||||||||||| Welcome to the Booking System! |||||||||||||||");
+            output.println("==============================================================");
+            while (true) {
+                VacayStarBooking.makeBooking(input);
+                output.print("Make another booking? (Y/N): ");
+                output.flush();
+                if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+                    output.println("\nThank you for using the Booking System! See you soon!");
+                    break;
+                }
+            }
+        } catch (NoSuchElementException | IllegalStateException e) {
+            // Client hung up in the middle of a booking: nothing was saved for it.
+        } catch (IOException e) {
+            System.out.println("Session error: " + e.getMessage());
+        } finally {
+            VacayStarBooking.setSessionOutput(null);
+            System.out.println("Session closed (" + activeSessions.decrementAndGet() + " active)");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Where bookings are kept: a single booking log, or one log per check-in month.
+ * Bookings are addressed by booking number (0-based, as shown in the admin area)
+ * and keep the id they were given when first stored.
+ */
+interface BookingStore extends Closeable {
+
+    // --- READS ---
+    int size();
+
+    Booking get(int n) throws IOException;
+
+    void forEach(Consumer<Booking> action) throws IOException;
+
+    // Booking number of a stored booking, or -1 if it is no longer there.
+    int indexOf(Booking booking) throws IOException;
+
+    // Lowest id not handed out yet; every id below it has been stored at some point.
+    long nextId();
+
+    // Visits the bookings checking in between the two dates (inclusive).
+    default void forEachCheckIn(LocalDate from, LocalDate to, Consumer<Booking> action) throws IOException {
+        forEach(b -> {
+            if (!b.inDate().isBefore(from) && !b.inDate().isAfter(to)) {
+                action.accept(b);
+            }
+        });
+    }
+
+    // Booking numbers [from, to) that can hold check-ins between the two dates (inclusive).
+    // A store that does not keep bookings in date order returns every number.
+    default int[] positionsForCheckIn(LocalDate from, LocalDate to) {
+        return new int[] { 0, size() };
+    }
+
+    // --- RAW SCANS ---
+    // Whole-store scans that read the record bytes directly (see BookingLog for the layout).
+    // 'records' is the mapped file, 'live' the live bitmap and 'slots' the number of slots in it.
+    interface RecordScan<R> {
+        R scan(ByteBuffer records, long[] live, int slots);
+    }
+
+    // Runs 'scan' over each log that can hold check-ins between the two dates (inclusive),
+    // returning one result per log. No write runs while a log is being scanned; the scan
+    // still has to check the dates itself.
+    <R> List<R> scanRecords(LocalDate from, LocalDate to, RecordScan<R> scan) throws IOException;
+
+    // --- WRITES ---
+    // Stores without syncing; flush() makes a run of appends durable.
+    // A new booking (id 0) gets the next id; one that already has an id above every id
+    // stored keeps it, so a follower stores replicated bookings under the primary's ids.
+    Booking append(Booking booking) throws IOException;
+
+    // Group commit: stores the whole batch and syncs once. Returns the stored bookings in order.
+    List<Booking> appendAll(List<Booking> bookings) throws IOException;
+
+    // Rewrites stored bookings in place, matched by id (their dates must not change).
+    // Syncs once; returns how many were still stored and so rewritten.
+    int replaceAll(List<Booking> bookings) throws IOException;
+
+    Booking delete(int n) throws IOException;
+
+    void clear() throws IOException;
+
+    // Receives what removeIf takes out, one log at a time: each match as the log is
+    // streamed, then prepare() just before that log's rewrite is swapped in (so an archive
+    // of the matches can be made durable first) and committed() once it is.
+    interface Removal {
+        void found(Booking booking) throws IOException;
+
+        void prepare() throws IOException;
+
+        void committed() throws IOException;
+    }
+
+    // Removes every booking that matches in a single pass per log: matches go to
+    // 'removal', the rest are copied to a fresh file that replaces the log atomically.
+    // Memory use does not depend on the number of bookings. Returns how many were removed.
+    int removeIf(Predicate<Booking> match, Removal removal) throws IOException;
+
+    void flush() throws IOException;
+
+    // --- MAINTENANCE ---
+    // Rewrites storage without deleted records; returns how many were reclaimed.
+    int compact() throws IOException;
+
+    int garbageCount();
+}
@@ -0,0 +1,476 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Single serialized write path for the booking store.
+ * Every mutation (save, delete, bulk delete, clear, archive, re-pack, and on a follower the changes
+ * replicated from the primary) is queued and applied by one
+ * writer thread, so concurrent sessions can never interleave writes or race for a unit.
+ * Saves that arrive together are group-committed: each is given a unit by the
+ * inventory's best-fit allocator (taking over the guest's hold, if they have one),
+ * then the batch is appended with a single write and sync. A bulk import hands over
+ * each chunk in one addAll, which is committed the same way as one batch of its own.
+ * Registered listeners hear about each change after it is on disk. A listener that fails
+ * is reported and skipped: the change is stored either way, so its caller is told it was.
+ */
+final class BookingWriter {
+
+    static final int MAX_BATCH = 8192;
+
+    // --- QUEUED MUTATIONS ---
+    private static final int OP_ADD = 1;
+    private static final int OP_CLEAR = 3;
+    private static final int OP_DELETE_BOOKING = 4;
+    private static final int OP_ARCHIVE = 5;
+    private static final int OP_REPACK = 6;
+    private static final int OP_RESTORE = 7;
+    private static final int OP_MOVE = 8;
+    private static final int OP_TASK = 9;
+    private static final int OP_PURGE = 10;
+    private static final int OP_ADD_ALL = 11;
+
+    // Work run on the writer thread between two changes (see onWriterThread).
+    interface WriterTask {
+        void run() throws IOException;
+    }
+
+    private static final class Op {
+        final int kind;
+        final Booking booking;
+        final YearMonth month; // OP_ARCHIVE only
+        final CompletableFuture<Booking> result = new CompletableFuture<>();
+        ReservationHolds.Hold hold;                 // OP_ADD only, may be null
+        CompletableFuture<UnitInventory.Plan> plan; // OP_REPACK only
+        List<Booking> batch;                        // OP_ADD_ALL, OP_RESTORE and OP_MOVE only
+        CompletableFuture<List<Booking>> added;     // OP_ADD_ALL only
+        boolean snapshot;                           // OP_RESTORE only
+        WriterTask task;                            // OP_TASK only
+        Predicate<Booking> match;                   // OP_PURGE only
+        Path archive;                               // OP_PURGE only
+        CompletableFuture<Integer> removed;         // OP_PURGE only
+
+        Op(int kind, Booking booking) {
+            this(kind, booking, null);
+        }
+
+        Op(int kind, Booking booking, YearMonth month) {
+            this.kind = kind;
+            this.booking = booking;
+            this.month = month;
+        }
+    }
+
+    private final BookingStore log;
+    private final UnitInventory inventory;
+    private final List<BookingListener> listeners;
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+
+    BookingWriter(BookingStore log, UnitInventory inventory, List<BookingListener> listeners) {
+        this.log = log;
+        this.inventory = inventory;
+        this.listeners = listeners;
+        Thread thread = new Thread(this::run, "booking-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // --- PUBLIC OPERATIONS ---
+    // Completes with the stored booking and the unit it was given,
+    // or with null if every unit of its type is booked for some of its dates.
+    CompletableFuture<Booking> add(Booking booking) {
+        return add(booking, null);
+    }
+
+    // As add(booking), for a guest who holds a unit for these dates (see ReservationHolds):
+    // the hold is claimed and its unit let go in the same step as the booking is placed.
+    // A hold that has already expired or been released is ignored.
+    CompletableFuture<Booking> add(Booking booking, ReservationHolds.Hold hold) {
+        Op op = new Op(OP_ADD, booking);
+        op.hold = hold;
+        return submit(op);
+    }
+
+    // Stores a whole batch with one write and one sync, however the queue happens to be
+    // drained. Each booking is given a unit as add() would, in list order, so a booking
+    // also has to fit around the ones before it. Completes with a list in the same order:
+    // each stored booking, or null where every unit of its type was booked.
+    CompletableFuture<List<Booking>> addAll(List<Booking> bookings) {
+        Op op = new Op(OP_ADD_ALL, null);
+        op.batch = bookings;
+        op.added = new CompletableFuture<>();
+        queue.add(op);
+        return op.added;
+    }
+
+    // Deletes this stored booking, wherever it now sits in the store.
+    // Completes with the removed booking, or with null if it is already gone.
+    CompletableFuture<Booking> delete(Booking booking) {
+        return submit(new Op(OP_DELETE_BOOKING, booking));
+    }
+
+    // Archives every booking checking in before 'month' (sharded stores only).
+    // Completes with null; the archived bookings are reported to the listeners as deleted.
+    CompletableFuture<Booking> archiveBefore(YearMonth month) {
+        return submit(new Op(OP_ARCHIVE, null, month));
+    }
+
+    // Deletes every booking that matches, writing each to a gzip CSV archive first (see
+    // BookingStore.removeIf): one pass over the store, whatever its size. Completes with
+    // how many were deleted; the archive is only kept if there were any.
+    CompletableFuture<Integer> deleteMatching(Predicate<Booking> match, Path archive) {
+        Op op = new Op(OP_PURGE, null);
+        op.match = match;
+        op.archive = archive;
+        op.removed = new CompletableFuture<>();
+        queue.add(op);
+        return op.removed;
+    }
+
+    CompletableFuture<Booking> clear() {
+        return submit(new Op(OP_CLEAR, null));
+    }
+
+    // Moves bookings checking in after today between units of the same type so stays
+    // sit back to back and long free runs open up (see UnitInventory.plan). Completes
+    // with the combined plan; each moved booking is reported as deleted, then added.
+    CompletableFuture<UnitInventory.Plan> repack() {
+        Op op = new Op(OP_REPACK, null);
+        op.plan = new CompletableFuture<>();
+        queue.add(op);
+        return op.plan;
+    }
+
+    // --- REPLICATION ---
+    // Stores bookings exactly as a primary stored them: same ids and units, no allocation.
+    // Outside a snapshot, a booking whose id this store has already handed out was applied
+    // before (the follower is replaying after a restart) and is skipped. Completes with null.
+    CompletableFuture<Booking> restore(List<Booking> bookings, boolean snapshot) {
+        Op op = new Op(OP_RESTORE, null);
+        op.batch = bookings;
+        op.snapshot = snapshot;
+        return submit(op);
+    }
+
+    // Gives stored bookings the units in 'bookings' (matched by id), as a primary's re-pack did.
+    CompletableFuture<Booking> move(List<Booking> bookings) {
+        Op op = new Op(OP_MOVE, null);
+        op.batch = bookings;
+        return submit(op);
+    }
+
+    // Runs 'task' on the writer thread, so it sees the store exactly as of the last change
+    // applied and no change is applied while it runs. Completes with null.
+    CompletableFuture<Booking> onWriterThread(WriterTask task) {
+        Op op = new Op(OP_TASK, null);
+        op.task = task;
+        return submit(op);
+    }
+
+    private CompletableFuture<Booking> submit(Op op) {
+        queue.add(op);
+        return op.result;
+    }
+
+    // --- WRITER LOOP ---
+    private void run() {
+        List<Op> drained = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                drained.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(drained, MAX_BATCH - 1);
+            try {
+                apply(drained);
+                toListeners(BookingListener::onCommitted);
+            } catch (RuntimeException | Error e) {
+                // Unexpected, but this is the only writer: fail what is still waiting and carry on.
+                System.err.println("Booking writer error: " + e);
+                for (Op op : drained) {
+                    fail(op, e);
+                }
+            }
+            drained.clear();
+        }
+    }
+
+    // Completes whichever future the op's caller is waiting on; one already completed keeps its result.
+    private static void fail(Op op, Throwable e) {
+        if (op.kind == OP_REPACK) {
+            op.plan.completeExceptionally(e);
+        } else if (op.kind == OP_PURGE) {
+            op.removed.completeExceptionally(e);
+        } else if (op.kind == OP_ADD_ALL) {
+            op.added.completeExceptionally(e);
+        } else {
+            op.result.completeExceptionally(e);
+        }
+    }
+
+    // Tells every listener about a change that is already stored. Each listener's failure
+    // is its own: the others still hear about it and the change stands.
+    private void toListeners(Consumer<BookingListener> event) {
+        for (BookingListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                System.err.println("Booking listener " + listener.getClass().getName() + " failed: " + e);
+            }
+        }
+    }
+
+    // Applies a drained batch in arrival order. Runs of saves are committed together;
+    // a delete or clear first flushes the saves queued before it.
+    private void apply(List<Op> ops) {
+        List<Op> adds = new ArrayList<>();
+        for (Op op : ops) {
+            if (op.kind == OP_ADD) {
+                adds.add(op);
+                continue;
+            }
+            commitAdds(adds);
+            try {
+                if (op.kind == OP_ADD_ALL) {
+                    commitBatch(op);
+                } else if (op.kind == OP_DELETE_BOOKING) {
+                    int n = log.indexOf(op.booking);
+                    if (n < 0) {
+                        op.result.complete(null);
+                        continue;
+                    }
+                    Booking removed = log.delete(n);
+                    removed(removed);
+                    op.result.complete(removed);
+                } else if (op.kind == OP_ARCHIVE) {
+                    if (!(log instanceof ShardedBookingStore sharded)) {
+                        throw new UnsupportedOperationException("Archiving needs the monthly booking store");
+                    }
+                    for (Booking archived : sharded.archiveBefore(op.month)) {
+                        removed(archived);
+                    }
+                    op.result.complete(null);
+                } else if (op.kind == OP_REPACK) {
+                    op.plan.complete(repackAll());
+                } else if (op.kind == OP_RESTORE) {
+                    restoreAll(op.batch, op.snapshot);
+                    op.result.complete(null);
+                } else if (op.kind == OP_MOVE) {
+                    moveAll(op.batch);
+                    op.result.complete(null);
+                } else if (op.kind == OP_PURGE) {
+                    op.removed.complete(purge(op.match, op.archive));
+                } else if (op.kind == OP_TASK) {
+                    op.task.run();
+                    op.result.complete(null);
+                } else {
+                    log.clear();
+                    inventory.clear();
+                    toListeners(BookingListener::onCleared);
+                    op.result.complete(null);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(op, e);
+            }
+        }
+        commitAdds(adds);
+    }
+
+    private void removed(Booking booking) {
+        inventory.remove(booking);
+        toListeners(listener -> listener.onDeleted(booking));
+    }
+
+    // The store streams one month at a time; its matches are held only until that month's
+    // rewrite is in place, then leave the inventory and are reported to the listeners.
+    private int purge(Predicate<Booking> match, Path archivePath) throws IOException {
+        List<Booking> pending = new ArrayList<>();
+        int removed;
+        try (BookingArchive archive = new BookingArchive(archivePath)) {
+            removed = log.removeIf(match, new BookingStore.Removal() {
+                @Override
+                public void found(Booking booking) throws IOException {
+                    archive.write(booking);
+                    pending.add(booking);
+                }
+
+                @Override
+                public void prepare() throws IOException {
+                    archive.sync();
+                }
+
+                @Override
+                public void committed() {
+                    for (Booking booking : pending) {
+                        removed(booking);
+                    }
+                    pending.clear();
+                }
+            });
+        }
+        if (removed == 0) {
+            Files.deleteIfExists(archivePath);
+        }
+        return removed;
+    }
+
+    private UnitInventory.Plan repackAll() throws IOException {
+        LocalDate today = LocalDate.now();
+        List<List<Booking>> future = new ArrayList<>();
+        for (int acc = 0; acc < VacayStarBooking.ACCOMMODATION_NAMES.length; acc++) {
+            future.add(new ArrayList<>());
+        }
+        log.forEachCheckIn(today.plusDays(1), LocalDate.MAX, b -> future.get(b.accIndex()).add(b));
+
+        List<Booking> before = new ArrayList<>();
+        List<Booking> after = new ArrayList<>();
+        int overlaps = 0;
+        for (int acc = 0; acc < future.size(); acc++) {
+            UnitInventory.Plan plan = inventory.plan(acc, future.get(acc), today.toEpochDay());
+            before.addAll(plan.before());
+            after.addAll(plan.after());
+            overlaps += plan.overlaps();
+        }
+        applyMoves(before, after);
+        return new UnitInventory.Plan(before, after, overlaps);
+    }
+
+    // Rewrites moved bookings in place. All old placements leave the inventory before any
+    // new one goes in, so a unit is never briefly double-booked.
+    private void applyMoves(List<Booking> before, List<Booking> after) throws IOException {
+        log.replaceAll(after);
+        for (Booking b : before) {
+            inventory.remove(b);
+        }
+        for (Booking b : after) {
+            inventory.add(b);
+        }
+        for (int i = 0; i < before.size(); i++) {
+            Booking from = before.get(i);
+            Booking to = after.get(i);
+            toListeners(listener -> listener.onMoved(from, to));
+        }
+    }
+
+    private void moveAll(List<Booking> bookings) throws IOException {
+        List<Booking> before = new ArrayList<>();
+        List<Booking> after = new ArrayList<>();
+        for (Booking b : bookings) {
+            int n = log.indexOf(b);
+            if (n >= 0) {
+                Booking stored = log.get(n);
+                if (stored.unit() != b.unit()) {
+                    before.add(stored);
+                    after.add(b);
+                }
+            }
+        }
+        applyMoves(before, after);
+    }
+
+    private void restoreAll(List<Booking> bookings, boolean snapshot) throws IOException {
+        List<Booking> fresh = new ArrayList<>(bookings.size());
+        long seen = log.nextId();
+        for (Booking b : bookings) {
+            if (snapshot || b.id() >= seen) {
+                fresh.add(b);
+            }
+        }
+        for (Booking stored : log.appendAll(fresh)) {
+            inventory.add(stored);
+            toListeners(listener -> listener.onAdded(stored));
+        }
+    }
+
+    // One addAll: the bookings are placed, appended with a single appendAll, and only then
+    // reported. A batch the log refuses gives its units back and fails as a whole.
+    private void commitBatch(Op op) throws IOException {
+        for (Booking b : op.batch) {
+            BookingLog.requireStorable(b); // before any unit is taken
+        }
+        long today = LocalDate.now().toEpochDay();
+        List<Booking> placed = new ArrayList<>(op.batch.size());
+        int[] from = new int[op.batch.size()]; // index in op.batch of each placed booking
+        for (int i = 0; i < op.batch.size(); i++) {
+            Booking b = inventory.place(op.batch.get(i), today, -1);
+            if (b != null) {
+                from[placed.size()] = i;
+                placed.add(b);
+            }
+        }
+        List<Booking> stored;
+        try {
+            stored = log.appendAll(placed);
+        } catch (IOException | RuntimeException e) {
+            for (Booking b : placed) {
+                inventory.remove(b);
+            }
+            throw e;
+        }
+        Booking[] results = new Booking[op.batch.size()];
+        for (int i = 0; i < stored.size(); i++) {
+            results[from[i]] = stored.get(i);
+        }
+        op.added.complete(Arrays.asList(results));
+        for (Booking booking : stored) {
+            toListeners(listener -> listener.onAdded(booking));
+        }
+    }
+
+    private void commitAdds(List<Op> adds) {
+        if (adds.isEmpty()) {
+            return;
+        }
+        List<Op> accepted = new ArrayList<>(adds.size());
+        List<Booking> batch = new ArrayList<>(adds.size());
+        long today = LocalDate.now().toEpochDay();
+        for (Op op : adds) {
+            try {
+                BookingLog.requireStorable(op.booking);
+            } catch (IllegalArgumentException e) {
+                op.result.completeExceptionally(e); // refused on its own, not with the whole batch
+                continue;
+            }
+            int heldUnit = op.hold != null && op.hold.claim() ? op.hold.unit : -1;
+            Booking b = inventory.place(op.booking, today, heldUnit);
+            if (b == null) {
+                op.result.complete(null);
+            } else {
+                accepted.add(op);
+                batch.add(b);
+            }
+        }
+        List<Booking> stored;
+        try {
+            stored = log.appendAll(batch);
+        } catch (IOException | RuntimeException e) {
+            for (int i = 0; i < accepted.size(); i++) {
+                inventory.remove(batch.get(i));
+                accepted.get(i).result.completeExceptionally(e);
+            }
+            adds.clear();
+            return;
+        }
+        // On disk from here on: every guest is told their booking stands before any listener runs.
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).result.complete(stored.get(i));
+        }
+        for (Booking booking : stored) {
+            toListeners(listener -> listener.onAdded(booking));
+        }
+        adds.clear();
+    }
+}
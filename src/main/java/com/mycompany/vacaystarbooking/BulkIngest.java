@@ -0,0 +1,353 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Headless bulk booking import (run with: ingest &lt;file&gt; [rejects-file]).
+ * Reads a JSONL or CSV file of booking requests in chunks, validates and prices
+ * each chunk in parallel, then passes the chunk's accepted bookings to the booking
+ * writer in one addAll, which commits them with one write and one sync. Rejected rows
+ * go to a separate CSV with the reason.
+ *
+ * JSONL keys: name, contact (or phone), email, accommodation (name or 1-5), checkIn, checkOut.
+ * CSV files need a header with Name, Contact, Email, Accommodation, Check-in and Check-out
+ * columns (an exported bookings.csv works as-is; prices are recalculated).
+ */
+final class BulkIngest {
+
+    static final int BATCH_SIZE = 8192;
+
+    // One input line and, after validation, either a priced booking or a reject reason.
+    private record Row(long lineNumber, String text) {
+    }
+
+    private record Result(Row row, Booking booking, String reason) {
+    }
+
+    private final LocalDate today = LocalDate.now();
+    private boolean json;
+    private int[] csvColumns; // Name, Contact, Email, Accommodation, Check-in, Check-out
+
+    private long accepted;
+    private long rejected;
+    private Path rejectsPath;
+    private BufferedWriter rejectWriter; // opened on the first reject, so a clean run leaves no file
+
+    private BulkIngest() {
+    }
+
+    // --- ENTRY POINT ---
+    static void run(String inputFile, String rejectsFile) {
+        Path input = Path.of(inputFile);
+        Path rejects = Path.of(rejectsFile != null ? rejectsFile : inputFile + ".rejects.csv");
+        BulkIngest ingest = new BulkIngest();
+        long start = System.nanoTime();
+        try {
+            ingest.ingest(input, rejects);
+        } catch (IOException e) {
+            VacayStarBooking.out().println("Error during ingest: " + e.getMessage());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        VacayStarBooking.out().println("==============================================================");
+        VacayStarBooking.out().printf("Ingest finished in %.2f s: %d accepted, %d rejected (%.0f rows/s)\n",
+            seconds, ingest.accepted, ingest.rejected, (ingest.accepted + ingest.rejected) / Math.max(seconds, 1e-9));
+        if (ingest.rejected > 0) {
+            VacayStarBooking.out().println("Rejected rows written to " + rejects);
+        }
+        VacayStarBooking.out().println("==============================================================");
+    }
+
+    private void ingest(Path input, Path rejects) throws IOException {
+        BookingWriter writer = VacayStarBooking.writer();
+        rejectsPath = rejects;
+        try (BufferedReader br = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String first = br.readLine();
+            if (first == null) {
+                return;
+            }
+            long lineNumber = 1;
+            List<Row> chunk = new ArrayList<>(BATCH_SIZE);
+            json = first.trim().startsWith("{");
+            if (json) {
+                chunk.add(new Row(lineNumber, first));
+            } else if (!readCsvHeader(first)) {
+                throw new IOException("CSV header must include Name, Contact, Email, Accommodation, Check-in and Check-out");
+            }
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(new Row(lineNumber, line));
+                if (chunk.size() == BATCH_SIZE) {
+                    commit(validate(chunk), writer);
+                    chunk = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            commit(validate(chunk), writer);
+        } finally {
+            if (rejectWriter != null) {
+                rejectWriter.close();
+            }
+        }
+    }
+
+    // --- PARALLEL VALIDATION ---
+    // Validation and pricing only read shared state, so the chunk is split across cores.
+    private List<Result> validate(List<Row> chunk) {
+        return chunk.parallelStream().map(this::validateRow).toList();
+    }
+
+    private Result validateRow(Row row) {
+        Map<String, String> fields = json ? parseJsonObject(row.text()) : csvFields(row.text());
+        if (fields == null) {
+            return new Result(row, null, "unreadable row");
+        }
+        String name = fields.getOrDefault("name", "").trim();
+        if (!BookingLog.fits(name, BookingLog.NAME_BYTES)) {
+            return new Result(row, null, "name too long");
+        }
+        if (!VacayStarBooking.isValidName(name)) {
+            return new Result(row, null, "invalid name");
+        }
+        String contact = VacayStarBooking.normalizeUKPhone(fields.getOrDefault("contact", fields.getOrDefault("phone", "")));
+        if (!VacayStarBooking.isValidUKPhone(contact)) {
+            return new Result(row, null, "invalid UK phone number");
+        }
+        String email = fields.getOrDefault("email", "").trim();
+        if (!BookingLog.fits(email, BookingLog.EMAIL_BYTES)) {
+            return new Result(row, null, "email too long");
+        }
+        if (!VacayStarBooking.isValidEmail(email)) {
+            return new Result(row, null, "invalid email");
+        }
+        int accIndex = accommodationOption(fields.getOrDefault("accommodation", ""));
+        if (accIndex < 0) {
+            return new Result(row, null, "unknown accommodation");
+        }
+        LocalDate inDate = VacayStarBooking.tryParseDate(fields.getOrDefault("checkin", "").trim());
+        LocalDate outDate = VacayStarBooking.tryParseDate(fields.getOrDefault("checkout", "").trim());
+        if (inDate == null || outDate == null) {
+            return new Result(row, null, "invalid date format");
+        }
+        if (inDate.isBefore(today)) {
+            return new Result(row, null, "check-in date is in the past");
+        }
+        if (!outDate.isAfter(inDate)) {
+            return new Result(row, null, "check-out must be after check-in");
+        }
+        long quote = VacayStarBooking.pricing().quote(accIndex, inDate, outDate);
+        return new Result(row, new Booking(0, name, contact, email, accIndex, inDate, outDate,
+            PricingEngine.discountPence(quote), PricingEngine.totalPence(quote)), null);
+    }
+
+    // Accepts an option number (1-5) or an accommodation name in any letter case.
+    private static int accommodationOption(String value) {
+        String trimmed = value.trim();
+        for (int i = 0; i < VacayStarBooking.ACCOMMODATION_NAMES.length; i++) {
+            if (trimmed.equals(String.valueOf(i + 1)) || trimmed.equalsIgnoreCase(VacayStarBooking.ACCOMMODATION_NAMES[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // --- GROUP COMMIT ---
+    // Hands the chunk's valid bookings to the booking writer as one batch: it checks each
+    // against existing stays (and earlier rows of the chunk) and commits the ones that fit
+    // with a single write and sync.
+    private void commit(List<Result> results, BookingWriter writer) throws IOException {
+        List<Booking> valid = new ArrayList<>(results.size());
+        for (Result result : results) {
+            if (result.booking() != null) {
+                valid.add(result.booking());
+            }
+        }
+        List<Booking> stored;
+        try {
+            stored = valid.isEmpty() ? List.of() : writer.addAll(valid).join();
+        } catch (CompletionException e) {
+            throw new IOException(VacayStarBooking.rootMessage(e), e.getCause());
+        }
+        int next = 0;
+        for (Result result : results) {
+            String reason = result.reason();
+            if (result.booking() != null) {
+                if (stored.get(next++) != null) {
+                    accepted++;
+                    continue;
+                }
+                reason = "accommodation already booked for these dates";
+            }
+            reject(result.row(), reason);
+        }
+    }
+
+    // The input line goes in one quoted CSV field, so commas and quotes in it survive.
+    private void reject(Row row, String reason) throws IOException {
+        if (rejectWriter == null) {
+            rejectWriter = Files.newBufferedWriter(rejectsPath, StandardCharsets.UTF_8);
+            rejectWriter.write("Line,Reason,Input");
+            rejectWriter.newLine();
+        }
+        rejectWriter.write(row.lineNumber() + "," + BookingCsv.quote(reason) + "," + BookingCsv.quote(row.text()));
+        rejectWriter.newLine();
+        rejected++;
+    }
+
+    // --- INPUT PARSING ---
+    private boolean readCsvHeader(String header) {
+        CsvTokenizer names = new CsvTokenizer();
+        int count = names.tokenize(header);
+        String[] wanted = { "name", "contact", "email", "accommodation", "check-in", "check-out" };
+        csvColumns = new int[wanted.length];
+        for (int w = 0; w < wanted.length; w++) {
+            csvColumns[w] = -1;
+            for (int i = 0; i < count; i++) {
+                if (names.field(i).equalsIgnoreCase(wanted[w])) {
+                    csvColumns[w] = i;
+                }
+            }
+            if (csvColumns[w] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, String> csvFields(String line) {
+        CsvTokenizer tokens = new CsvTokenizer();
+        int count = tokens.tokenize(line);
+        String[] keys = { "name", "contact", "email", "accommodation", "checkin", "checkout" };
+        Map<String, String> fields = new HashMap<>();
+        for (int k = 0; k < keys.length; k++) {
+            if (csvColumns[k] >= count) {
+                return null;
+            }
+            fields.put(keys[k], tokens.field(csvColumns[k]));
+        }
+        return fields;
+    }
+
+    // Parses one flat JSON object ({"key": "value", "n": 5}). Keys are lower-cased
+    // with '_' and '-' removed, so check_in, checkIn and check-in all become "checkin".
+    // Returns null if the line is not a flat JSON object.
+    static Map<String, String> parseJsonObject(String text) {
+        Map<String, String> fields = new HashMap<>();
+        int[] pos = { skipSpaces(text, 0) };
+        if (pos[0] >= text.length() || text.charAt(pos[0]) != '{') {
+            return null;
+        }
+        pos[0] = skipSpaces(text, pos[0] + 1);
+        if (pos[0] < text.length() && text.charAt(pos[0]) == '}') {
+            return fields;
+        }
+        while (pos[0] < text.length()) {
+            String key = readJsonString(text, pos);
+            if (key == null) {
+                return null;
+            }
+            pos[0] = skipSpaces(text, pos[0]);
+            if (pos[0] >= text.length() || text.charAt(pos[0]) != ':') {
+                return null;
+            }
+            pos[0] = skipSpaces(text, pos[0] + 1);
+            String value;
+            if (pos[0] < text.length() && text.charAt(pos[0]) == '"') {
+                value = readJsonString(text, pos);
+                if (value == null) {
+                    return null;
+                }
+            } else {
+                int start = pos[0];
+                while (pos[0] < text.length() && ",}".indexOf(text.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = text.substring(start, pos[0]).trim();
+                if (value.equals("null")) {
+                    value = "";
+                }
+            }
+            fields.put(key.toLowerCase(Locale.ROOT).replace("_", "").replace("-", ""), value);
+            pos[0] = skipSpaces(text, pos[0]);
+            if (pos[0] >= text.length()) {
+                return null;
+            }
+            char c = text.charAt(pos[0]);
+            if (c == '}') {
+                return fields;
+            }
+            if (c != ',') {
+                return null;
+            }
+            pos[0] = skipSpaces(text, pos[0] + 1);
+        }
+        return null;
+    }
+
+    private static int skipSpaces(String text, int pos) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Reads a quoted string starting at pos[0] and leaves pos[0] after the closing quote.
+    private static String readJsonString(String text, int[] pos) {
+        if (pos[0] >= text.length() || text.charAt(pos[0]) != '"') {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0] + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i++);
+            if (c == '"') {
+                pos[0] = i;
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (i >= text.length()) {
+                return null;
+            }
+            char e = text.charAt(i++);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (i + 4 > text.length()) {
+                        return null;
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        return null;
+                    }
+                    i += 4;
+                }
+                default -> sb.append(e);
+            }
+        }
+        return null;
+    }
+}
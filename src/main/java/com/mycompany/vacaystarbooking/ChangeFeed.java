@@ -0,0 +1,386 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Ordered feed of every change made to the booking store, for downstream systems
+ * (housekeeping, finance) that used to re-read bookings.csv to find what changed.
+ * Each change is one text line with an offset that grows by one per change:
+ *
+ * <pre>
+ * 0,ADDED,17,3,Jane Doe,07123456789,jane@example.com,Standard Cabin,3,17/10/2026,20/10/2026,0.00,723.45
+ * 1,DELETED,12,1,...same columns as bookings.csv...
+ * 2,MOVED,17,5,...
+ * 3,CLEARED
+ * </pre>
+ *
+ * (offset, change, booking id, unit number, then the bookings.csv row). MOVED is a
+ * booking a re-pack put on another unit; the line carries its new unit.
+ * Every feed has a random id (changes.id), so a follower that replicated from one
+ * feed notices when it is pointed at another and starts over from a snapshot.
+ * The writer appends the lines of a whole group commit with one write and sync, after
+ * the store has committed them. A sparse index (changes.idx) records the byte position
+ * of every 1024th offset, so a consumer resuming from any offset seeks there and reads
+ * at most 1023 lines it does not want: catching up costs the number of changes missed,
+ * not the size of the store. Consumers read with a Reader, in this process (the
+ * ChangeFeedServer) or another one ("changes" mode), and only ever see whole lines.
+ */
+final class ChangeFeed implements BookingListener, Closeable {
+
+    static final String FEED_FILE = "changes.log";
+    static final String INDEX_FILE = "changes.idx";
+    static final String ID_FILE = "changes.id";
+    static final int INDEX_EVERY = 1024;
+    private static final int INDEX_ENTRY = 16; // offset (8), byte position (8)
+
+    private final String id;
+    private final FileChannel feed;
+    private final FileChannel index;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream pendingIndex = new ByteArrayOutputStream();
+    private long nextOffset;   // offset the next change gets (writer thread only)
+    private long endOffset;    // first offset not yet published
+    private long endPosition;  // feed length once the pending lines are written
+
+    private ChangeFeed(String id, FileChannel feed, FileChannel index) {
+        this.id = id;
+        this.feed = feed;
+        this.index = index;
+    }
+
+    // --- OPENING ---
+    // Opens (or creates) the feed in 'dir'. A line left half-written by a crash is cut off,
+    // and index entries lost with it are rebuilt from the lines after the last good one.
+    static ChangeFeed open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path idFile = dir.resolve(ID_FILE);
+        if (!Files.exists(idFile)) {
+            Files.writeString(idFile, UUID.randomUUID().toString());
+        }
+        String id = Files.readString(idFile).trim();
+        FileChannel feed = FileChannel.open(dir.resolve(FEED_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(dir.resolve(INDEX_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ChangeFeed changes = new ChangeFeed(id, feed, index);
+        changes.recover();
+        return changes;
+    }
+
+    private void recover() throws IOException {
+        long size = feed.size();
+        long entries = index.size() / INDEX_ENTRY;
+        long[] last = { 0, 0 };
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+        while (entries > 0) {
+            entry.clear();
+            index.read(entry, (entries - 1) * INDEX_ENTRY);
+            if (entry.getLong(8) < size) {
+                last[0] = entry.getLong(0);
+                last[1] = entry.getLong(8);
+                break;
+            }
+            entries--;
+        }
+        index.truncate(entries * INDEX_ENTRY);
+        long indexed = last[0];
+        long[] next = { indexed };
+        long end = readLines(feed, last[1], size, Integer.MAX_VALUE, (line, lineStart) -> {
+            long offset = offsetOf(line);
+            if (offset > indexed && offset % INDEX_EVERY == 0) {
+                index.write(indexEntry(offset, lineStart), index.size());
+            }
+            next[0] = offset + 1;
+            return true;
+        });
+        feed.truncate(end);
+        nextOffset = next[0];
+        endOffset = nextOffset;
+        endPosition = end;
+        index.force(false);
+    }
+
+    // --- STORE CHANGES ---
+    // Lines are buffered until the writer finishes the group, then written in one go.
+    @Override
+    public void onAdded(Booking booking) {
+        append(describe("ADDED", booking));
+    }
+
+    @Override
+    public void onDeleted(Booking booking) {
+        append(describe("DELETED", booking));
+    }
+
+    @Override
+    public void onMoved(Booking before, Booking after) {
+        append(describe("MOVED", after));
+    }
+
+    @Override
+    public void onCleared() {
+        append("CLEARED");
+    }
+
+    private void append(String change) {
+        long offset = nextOffset++;
+        if (offset % INDEX_EVERY == 0 && offset > 0) {
+            pendingIndex.writeBytes(indexEntry(offset, endPosition).array());
+        }
+        byte[] line = (offset + "," + change + "\n").getBytes(StandardCharsets.UTF_8);
+        pending.writeBytes(line);
+        endPosition += line.length;
+    }
+
+    // Writes and syncs the group, then wakes every consumer waiting for new changes.
+    // If the write fails the lines stay pending and go out with the next group.
+    @Override
+    public void onCommitted() {
+        if (pending.size() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long position = endPosition - pending.size();
+            ByteBuffer lines = ByteBuffer.wrap(pending.toByteArray());
+            while (lines.hasRemaining()) {
+                position += feed.write(lines, position);
+            }
+            feed.force(false);
+            if (pendingIndex.size() > 0) {
+                index.write(ByteBuffer.wrap(pendingIndex.toByteArray()), index.size());
+                pendingIndex.reset();
+            }
+            Metrics.FEED_COMMIT.record(start, pending.size());
+            pending.reset();
+        } catch (IOException e) {
+            System.err.println("Error writing the change feed: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            endOffset = nextOffset;
+            notifyAll();
+        }
+    }
+
+    // Offset the next change will get. Only meaningful on the writer thread, where it
+    // is exactly the number of changes applied so far (see BookingWriter.onWriterThread).
+    long nextOffset() {
+        return nextOffset;
+    }
+
+    String id() {
+        return id;
+    }
+
+    // --- CONSUMERS ---
+    // First offset not yet published.
+    synchronized long endOffset() {
+        return endOffset;
+    }
+
+    // Waits until a change at or after 'offset' is published, or the time runs out.
+    synchronized void awaitChange(long offset, long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (endOffset <= offset) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return;
+            }
+            wait(left);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (feed; index) {
+            onCommitted();
+        }
+    }
+
+    /**
+     * A consumer's position in a feed directory, independent of the writer: it reads the
+     * files directly, so it works from another process as well as this one.
+     */
+    static final class Reader implements Closeable {
+
+        private final FileChannel feed;
+        private long from;
+        private long offset;
+        private long position;
+
+        // Starts at offset 'from', or at the end of the feed if 'from' is negative.
+        // A reader asking for an offset not written yet gets the changes from there on.
+        Reader(Path dir, long from) throws IOException {
+            this.feed = FileChannel.open(dir.resolve(FEED_FILE), StandardOpenOption.READ);
+            this.from = from < 0 ? Long.MAX_VALUE : from;
+            long[] start = seekIndex(dir.resolve(INDEX_FILE), this.from);
+            offset = start[0];
+            position = start[1];
+            poll(0, line -> { });
+            if (from < 0) {
+                this.from = offset;
+            }
+        }
+
+        // Offset of the next change this reader will return.
+        long offset() {
+            return offset;
+        }
+
+        // Passes up to 'max' whole lines written so far to 'action', skipping any before the
+        // starting offset. Returns how many were passed on.
+        int poll(int max, LineConsumer action) throws IOException {
+            int[] count = { 0 };
+            position = readLines(feed, position, feed.size(), Integer.MAX_VALUE, (line, lineStart) -> {
+                long lineOffset = offsetOf(line);
+                if (lineOffset >= from) {
+                    if (count[0] == max) {
+                        return false;
+                    }
+                    action.accept(line);
+                    count[0]++;
+                }
+                offset = lineOffset + 1;
+                return true;
+            });
+            return count[0];
+        }
+
+        @Override
+        public void close() throws IOException {
+            feed.close();
+        }
+    }
+
+    // --- FOLLOWING FROM ANOTHER PROCESS ---
+    // Prints the feed from offset 'from' (negative = from now on) and keeps printing new
+    // changes as they are written, checking the file ten times a second ("changes" mode).
+    static void follow(Path dir, long from, PrintStream out) throws IOException, InterruptedException {
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(FEED_FILE), new byte[0], StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try (Reader reader = new Reader(dir, from)) {
+            while (true) {
+                if (reader.poll(ChangeFeedServer.DEFAULT_BATCH, out::println) == 0) {
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            }
+        }
+    }
+
+    interface LineConsumer {
+        void accept(String line) throws IOException;
+    }
+
+    // --- FILE FORMAT ---
+    // Latest index entry at or before offset 'from' (binary search), or the start of the feed.
+    private static long[] seekIndex(Path indexFile, long from) throws IOException {
+        long[] found = { 0, 0 };
+        if (!Files.exists(indexFile)) {
+            return found;
+        }
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+            long lo = 0;
+            long hi = index.size() / INDEX_ENTRY - 1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                entry.clear();
+                index.read(entry, mid * INDEX_ENTRY);
+                if (entry.getLong(0) <= from) {
+                    found[0] = entry.getLong(0);
+                    found[1] = entry.getLong(8);
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static ByteBuffer indexEntry(long offset, long position) {
+        return ByteBuffer.allocate(INDEX_ENTRY).putLong(offset).putLong(position).flip();
+    }
+
+    // "ADDED,17,3,<bookings.csv row>": a change to one booking without its offset.
+    static String describe(String change, Booking b) {
+        return change + "," + b.id() + "," + (b.unit() + 1) + "," + BookingCsv.formatLine(b);
+    }
+
+    // The booking in a line made by describe(), starting at 'from' (after the offset, if any).
+    static Booking parseBooking(String line, int from) {
+        int idEnd = line.indexOf(',', line.indexOf(',', from) + 1);
+        int unitEnd = line.indexOf(',', idEnd + 1);
+        long bookingId = Long.parseLong(line.substring(line.indexOf(',', from) + 1, idEnd));
+        int unit = Integer.parseInt(line.substring(idEnd + 1, unitEnd)) - 1;
+        Booking b = BookingCsv.parseLine(line.substring(unitEnd + 1));
+        return b == null ? null : b.withId(bookingId).withUnit(unit);
+    }
+
+    static long offsetOf(String line) {
+        int comma = line.indexOf(',');
+        return Long.parseLong(comma < 0 ? line : line.substring(0, comma));
+    }
+
+    private interface LineVisitor {
+        // Returns false to stop before this line (it is then left for the next read).
+        boolean visit(String line, long lineStart) throws IOException;
+    }
+
+    // Reads whole lines from [position, limit) in 64 KB chunks, up to 'max' of them or until
+    // the visitor stops. Returns the position after the last line consumed; a trailing line
+    // without its newline is never consumed.
+    private static long readLines(FileChannel channel, long position, long limit, int max, LineVisitor visitor)
+            throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        long consumed = position;
+        long read = position;
+        int lines = 0;
+        while (read < limit && lines < max) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), limit - read));
+            int n = channel.read(chunk, read);
+            if (n <= 0) {
+                break;
+            }
+            byte[] bytes = chunk.array();
+            int lineFrom = 0;
+            for (int i = 0; i < n && lines < max; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                String line;
+                if (partial.size() > 0) {
+                    partial.write(bytes, lineFrom, i - lineFrom);
+                    line = partial.toString(StandardCharsets.UTF_8);
+                    partial.reset();
+                } else {
+                    line = new String(bytes, lineFrom, i - lineFrom, StandardCharsets.UTF_8);
+                }
+                if (!visitor.visit(line, consumed)) {
+                    return consumed;
+                }
+                consumed = read + i + 1;
+                lines++;
+                lineFrom = i + 1;
+            }
+            if (consumed < read + n && lines < max) {
+                partial.write(bytes, lineFrom, n - lineFrom);
+            }
+            read += n;
+        }
+        return consumed;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Pushes the change feed to consumers over TCP (started by "server" mode, on localhost).
+ * A consumer connects (e.g. "nc localhost 5051") and sends one line: the offset to start
+ * from, optionally followed by the most lines it wants per batch ("1200 500"); an empty
+ * line means only changes from now on. It then receives the lines from that offset,
+ * and new ones as soon as the writer publishes them, a batch at a time with one flush
+ * per batch.
+ * A follower (see Replica) sends "REPLICATE <feed id> <offset> [batch]" instead. If it has
+ * been following this feed it gets "FEED <id> <offset>" and the changes from its offset on;
+ * otherwise (a new follower, or one that followed another primary) it gets
+ * "SNAPSHOT <id> <offset> <count>", every stored booking as an ADDED line without an offset,
+ * and then the changes from the snapshot's offset on.
+ * Each consumer has its own virtual thread and reads the feed file at its own pace: a
+ * slow consumer fills its socket buffer and its thread blocks on the write, holding no
+ * more than one batch in memory, while the booking writer and the other consumers carry on.
+ */
+final class ChangeFeedServer {
+
+    static final int DEFAULT_PORT = 5051;
+    static final int DEFAULT_BATCH = 1000;
+    private static final int MAX_BATCH = 10_000;
+    private static final long IDLE_WAIT_MILLIS = 1000;
+
+    private ChangeFeedServer() {
+    }
+
+    // --- ACCEPT LOOP ---
+    // Runs on a daemon thread so it stops with the booking server.
+    static void start(int port, ChangeFeed feed, Path dir) {
+        Thread thread = new Thread(() -> {
+            try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+                System.out.println("VacayStar change feed listening on localhost:" + port);
+                while (true) {
+                    Socket client = server.accept();
+                    Thread.ofVirtual().name("feed-" + client.getPort()).start(() -> serve(client, feed, dir));
+                }
+            } catch (IOException e) {
+                System.out.println("Change feed server stopped: " + e.getMessage());
+            }
+        }, "change-feed-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // --- ONE CONSUMER ---
+    private static void serve(Socket client, ChangeFeed feed, Path dir) {
+        System.out.println("Feed consumer connected from " + client.getRemoteSocketAddress());
+        try (client;
+             BufferedReader request = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             Writer output = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+            String first = request.readLine();
+            if (first == null) {
+                return;
+            }
+            String[] parts = first.trim().split("\\s+");
+            boolean replicate = parts[0].equals("REPLICATE");
+            long from;
+            int batch;
+            try {
+                if (replicate) {
+                    from = parts.length > 2 ? Long.parseLong(parts[2]) : 0;
+                    batch = parts.length > 3 ? Math.clamp(Integer.parseInt(parts[3]), 1, MAX_BATCH) : DEFAULT_BATCH;
+                } else {
+                    from = parts[0].isEmpty() ? -1 : Long.parseLong(parts[0]);
+                    batch = parts.length > 1 ? Math.clamp(Integer.parseInt(parts[1]), 1, MAX_BATCH) : DEFAULT_BATCH;
+                }
+            } catch (NumberFormatException e) {
+                output.write("ERROR expected: <offset> [batch size], or REPLICATE <feed id> <offset> [batch size]\n");
+                return;
+            }
+            if (replicate) {
+                boolean following = parts.length > 1 && parts[1].equals(feed.id()) && from >= 0 && from <= feed.endOffset();
+                from = following ? startTail(output, feed, from) : sendSnapshot(output, feed);
+            }
+            stream(output, feed, dir, from, batch);
+        } catch (IOException | CompletionException e) {
+            // consumer went away; it resumes from its last offset when it reconnects
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            System.out.println("Feed consumer disconnected from " + client.getRemoteSocketAddress());
+        }
+    }
+
+    // Sends the lines from 'from' on, a batch per flush, waiting for new ones when caught up.
+    private static void stream(Writer output, ChangeFeed feed, Path dir, long from, int batch)
+            throws IOException, InterruptedException {
+        try (ChangeFeed.Reader reader = new ChangeFeed.Reader(dir, from)) {
+            while (true) {
+                int sent = reader.poll(batch, line -> {
+                    output.write(line);
+                    output.write('\n');
+                });
+                output.flush();
+                if (sent < batch) {
+                    feed.awaitChange(reader.offset(), IDLE_WAIT_MILLIS);
+                }
+            }
+        }
+    }
+
+    // --- REPLICATION ---
+    private static long startTail(Writer output, ChangeFeed feed, long from) throws IOException {
+        output.write("FEED " + feed.id() + " " + from + "\n");
+        return from;
+    }
+
+    // Copies the store on the writer thread, so the copy holds exactly the changes before
+    // the offset it is sent with, then sends it. Returns that offset.
+    private static long sendSnapshot(Writer output, ChangeFeed feed) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        long[] offset = { 0 };
+        BookingStore store = VacayStarBooking.store();
+        VacayStarBooking.writer().onWriterThread(() -> {
+            offset[0] = feed.nextOffset();
+            store.forEach(bookings::add);
+        }).join();
+        System.out.println("Sending a snapshot of " + bookings.size() + " bookings (feed offset " + offset[0] + ")");
+        output.write("SNAPSHOT " + feed.id() + " " + offset[0] + " " + bookings.size() + "\n");
+        for (Booking b : bookings) {
+            output.write(ChangeFeed.describe("ADDED", b));
+            output.write('\n');
+        }
+        return offset[0];
+    }
+}
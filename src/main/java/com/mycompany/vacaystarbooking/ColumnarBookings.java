@@ -0,0 +1,456 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Columnar export of the bookings for reporting jobs (bookings.vsc).
+ * Rows are written in blocks of BLOCK_ROWS, and each block stores every column
+ * as one contiguous run: the accommodation as a one-byte code into the dictionary
+ * in the file header, dates as epoch-day ints, days and unit as shorts, money as
+ * pence longs, and the text fields as deflated UTF-8 (reports never read them, so
+ * only exports and full reads pay for that). Nothing a report reads has to be parsed.
+ *
+ * The block directory at the end of the file holds each column's position and its
+ * min/max within the block, so a reader skips whole blocks outside a date range and
+ * only touches the columns it asks for. Exports come from the monthly store in
+ * check-in order, which keeps the check-in ranges of the blocks narrow.
+ *
+ * <pre>
+ * Header (32 bytes): magic, version, column count, block rows, row count, block count, directory offset
+ * Dictionary: name count (1 byte), then each accommodation name as length (2 bytes) + UTF-8
+ * Blocks: the column runs of each block, one after another (text runs: raw length, then deflated data)
+ * Directory: per block the row count, then per column offset (8), length (4), min (8), max (8)
+ * </pre>
+ */
+final class ColumnarBookings implements Closeable {
+
+    static final int MAGIC = 0x56534342; // "VSCB"
+    static final short VERSION = 1;
+    static final int BLOCK_ROWS = 8192;
+    private static final int HEADER_SIZE = 32;
+    private static final int DIRECTORY_COLUMN_SIZE = 28;
+
+    // --- COLUMNS ---
+    // Pass a mask of (1 << column) bits to read() and scan() to say which ones to load.
+    static final int ID = 0;
+    static final int ACCOMMODATION = 1;
+    static final int UNIT = 2;
+    static final int CHECK_IN = 3;
+    static final int CHECK_OUT = 4;
+    static final int DAYS = 5;
+    static final int DISCOUNT = 6;
+    static final int TOTAL = 7;
+    static final int NAME = 8;
+    static final int CONTACT = 9;
+    static final int EMAIL = 10;
+    static final int COLUMNS = 11;
+    static final int ALL_COLUMNS = (1 << COLUMNS) - 1;
+
+    private static final int BYTE = 1;
+    private static final int SHORT = 2;
+    private static final int INT = 4;
+    private static final int LONG = 8;
+    private static final int TEXT = 0;
+    private static final int[] WIDTH = { LONG, BYTE, SHORT, INT, INT, SHORT, LONG, LONG, TEXT, TEXT, TEXT };
+
+    // One decoded block. Only the arrays for the columns that were asked for are filled,
+    // and a Block passed back to read() is refilled rather than allocated again.
+    static final class Block {
+        int index;
+        int rows;
+        final long[] ids = new long[BLOCK_ROWS];
+        final byte[] accommodations = new byte[BLOCK_ROWS];
+        final short[] units = new short[BLOCK_ROWS];
+        final int[] checkIns = new int[BLOCK_ROWS];
+        final int[] checkOuts = new int[BLOCK_ROWS];
+        final short[] days = new short[BLOCK_ROWS];
+        final long[] discounts = new long[BLOCK_ROWS];
+        final long[] totals = new long[BLOCK_ROWS];
+        final String[] names = new String[BLOCK_ROWS];
+        final String[] contacts = new String[BLOCK_ROWS];
+        final String[] emails = new String[BLOCK_ROWS];
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer file;
+    private final String[] dictionary;
+    private final long rowCount;
+    private final int[] blockRows;
+    private final long[] offsets; // [block * COLUMNS + column]
+    private final int[] lengths;
+    private final long[] mins;
+    private final long[] maxes;
+
+    // --- READING ---
+    static ColumnarBookings open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map");
+            }
+            return new ColumnarBookings(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ColumnarBookings(FileChannel channel, MappedByteBuffer file, Path path) throws IOException {
+        this.channel = channel;
+        this.file = file;
+        if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a columnar booking export");
+        }
+        if (file.getShort(4) != VERSION || file.getShort(6) != COLUMNS || file.getInt(8) != BLOCK_ROWS) {
+            throw new IOException(path + " was written by an unsupported version");
+        }
+        rowCount = file.getLong(12);
+        int blocks = file.getInt(20);
+        long directory = file.getLong(24);
+        if (blocks < 0 || directory < HEADER_SIZE
+                || directory + (long) blocks * (4 + COLUMNS * DIRECTORY_COLUMN_SIZE) > file.limit()) {
+            throw new IOException(path + " is incomplete");
+        }
+
+        ByteBuffer header = file.duplicate().position(HEADER_SIZE);
+        dictionary = new String[header.get() & 0xFF];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] name = new byte[header.getShort() & 0xFFFF];
+            header.get(name);
+            dictionary[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        ByteBuffer dir = file.duplicate().position((int) directory);
+        blockRows = new int[blocks];
+        offsets = new long[blocks * COLUMNS];
+        lengths = new int[blocks * COLUMNS];
+        mins = new long[blocks * COLUMNS];
+        maxes = new long[blocks * COLUMNS];
+        for (int b = 0; b < blocks; b++) {
+            blockRows[b] = dir.getInt();
+            for (int c = 0; c < COLUMNS; c++) {
+                int i = b * COLUMNS + c;
+                offsets[i] = dir.getLong();
+                lengths[i] = dir.getInt();
+                mins[i] = dir.getLong();
+                maxes[i] = dir.getLong();
+            }
+        }
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    int blockCount() {
+        return blockRows.length;
+    }
+
+    int accommodationCount() {
+        return dictionary.length;
+    }
+
+    // Accommodation name for a code from the ACCOMMODATION column.
+    String accommodationName(int code) {
+        return dictionary[code];
+    }
+
+    long min(int block, int column) {
+        return mins[block * COLUMNS + column];
+    }
+
+    long max(int block, int column) {
+        return maxes[block * COLUMNS + column];
+    }
+
+    // False if the block's statistics rule out any check-in between the two epoch days (inclusive).
+    boolean mayHoldCheckIns(int block, long fromDay, long toDay) {
+        return blockRows[block] > 0 && max(block, CHECK_IN) >= fromDay && min(block, CHECK_IN) <= toDay;
+    }
+
+    // Bytes the given columns take up in one block (what reading them costs).
+    long bytes(int block, int columnMask) {
+        long total = 0;
+        for (int c = 0; c < COLUMNS; c++) {
+            if ((columnMask & (1 << c)) != 0) {
+                total += lengths[block * COLUMNS + c];
+            }
+        }
+        return total;
+    }
+
+    // Decodes the columns in 'columnMask' of one block into 'into' (or a new Block if null).
+    Block read(int block, int columnMask, Block into) {
+        Block out = into != null ? into : new Block();
+        out.index = block;
+        out.rows = blockRows[block];
+        for (int c = 0; c < COLUMNS; c++) {
+            if ((columnMask & (1 << c)) == 0) {
+                continue;
+            }
+            int i = block * COLUMNS + c;
+            ByteBuffer run = file.slice((int) offsets[i], lengths[i]);
+            int rows = out.rows;
+            switch (c) {
+                case ID -> run.asLongBuffer().get(out.ids, 0, rows);
+                case ACCOMMODATION -> run.get(out.accommodations, 0, rows);
+                case UNIT -> run.asShortBuffer().get(out.units, 0, rows);
+                case CHECK_IN -> run.asIntBuffer().get(out.checkIns, 0, rows);
+                case CHECK_OUT -> run.asIntBuffer().get(out.checkOuts, 0, rows);
+                case DAYS -> run.asShortBuffer().get(out.days, 0, rows);
+                case DISCOUNT -> run.asLongBuffer().get(out.discounts, 0, rows);
+                case TOTAL -> run.asLongBuffer().get(out.totals, 0, rows);
+                case NAME -> readText(run, rows, out.names);
+                case CONTACT -> readText(run, rows, out.contacts);
+                default -> readText(run, rows, out.emails);
+            }
+        }
+        return out;
+    }
+
+    // Hands every block that can hold check-ins between the two dates (inclusive, null =
+    // open-ended) to 'action', with only the asked-for columns loaded. The same Block is
+    // reused for each call, and rows outside the range still have to be filtered out.
+    // Returns the number of blocks skipped on their statistics alone.
+    int scan(LocalDate from, LocalDate to, int columnMask, Consumer<Block> action) {
+        long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        Block block = new Block();
+        int skipped = 0;
+        for (int b = 0; b < blockRows.length; b++) {
+            if (!mayHoldCheckIns(b, fromDay, toDay)) {
+                skipped++;
+                continue;
+            }
+            action.accept(read(b, columnMask, block));
+        }
+        return skipped;
+    }
+
+    // A text run is the raw length, then deflated: each value's length (2 bytes), then the values.
+    private static void readText(ByteBuffer run, int rows, String[] into) {
+        byte[] raw = new byte[run.getInt(0)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(run.slice(4, run.limit() - 4));
+            int filled = 0;
+            while (filled < raw.length) {
+                int n = inflater.inflate(raw, filled, raw.length - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated text column in block");
+                }
+                filled += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt text column in block", e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer lengths = ByteBuffer.wrap(raw);
+        int start = rows * 2;
+        for (int r = 0; r < rows; r++) {
+            int length = lengths.getShort(r * 2) & 0xFFFF;
+            into[r] = new String(raw, start, length, StandardCharsets.UTF_8);
+            start += length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // --- WRITING ---
+    // Exports every stored booking to 'path' (written to a temporary file, then moved
+    // into place). Returns the number of rows written.
+    static long export(BookingStore store, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Writer writer = new Writer(temp);
+        try (writer) {
+            store.forEach(writer::add);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return writer.rows;
+    }
+
+    // Buffers one block of rows column by column and writes it out when full.
+    private static final class Writer implements Closeable {
+        private final FileChannel out;
+        private final Block block = new Block();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private ByteBuffer buffer = ByteBuffer.allocate(BLOCK_ROWS * 64);
+        private ByteBuffer directory = ByteBuffer.allocate(64 * (4 + COLUMNS * DIRECTORY_COLUMN_SIZE));
+        private long position;
+        private long rows;
+        private int blocks;
+
+        Writer(Path path) throws IOException {
+            out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer dictionary = ByteBuffer.allocate(1024);
+            dictionary.position(HEADER_SIZE);
+            dictionary.put((byte) VacayStarBooking.ACCOMMODATION_NAMES.length);
+            for (String name : VacayStarBooking.ACCOMMODATION_NAMES) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                dictionary.putShort((short) bytes.length).put(bytes);
+            }
+            dictionary.flip();
+            position = write(dictionary, 0);
+        }
+
+        void add(Booking b) {
+            int r = block.rows++;
+            block.ids[r] = b.id();
+            block.accommodations[r] = (byte) b.accIndex();
+            block.units[r] = (short) b.unit();
+            block.checkIns[r] = (int) b.inDate().toEpochDay();
+            block.checkOuts[r] = (int) b.outDate().toEpochDay();
+            block.days[r] = (short) b.days();
+            block.discounts[r] = b.discountPence();
+            block.totals[r] = b.totalPence();
+            block.names[r] = b.name();
+            block.contacts[r] = b.contact();
+            block.emails[r] = b.email();
+            rows++;
+            if (block.rows == BLOCK_ROWS) {
+                try {
+                    flushBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            int n = block.rows;
+            if (n == 0) {
+                return;
+            }
+            directory = ensure(directory, 4 + COLUMNS * DIRECTORY_COLUMN_SIZE);
+            directory.putInt(n);
+            for (int c = 0; c < COLUMNS; c++) {
+                buffer.clear();
+                long min = 0;
+                long max = 0;
+                if (WIDTH[c] == TEXT) {
+                    String[] values = c == NAME ? block.names : c == CONTACT ? block.contacts : block.emails;
+                    byte[][] encoded = new byte[n][];
+                    int total = 0;
+                    for (int r = 0; r < n; r++) {
+                        encoded[r] = values[r].getBytes(StandardCharsets.UTF_8);
+                        total += encoded[r].length;
+                    }
+                    byte[] raw = new byte[n * 2 + total];
+                    ByteBuffer rawBuffer = ByteBuffer.wrap(raw);
+                    for (byte[] value : encoded) {
+                        rawBuffer.putShort((short) value.length);
+                    }
+                    for (byte[] value : encoded) {
+                        rawBuffer.put(value);
+                    }
+                    deflater.reset();
+                    deflater.setInput(raw);
+                    deflater.finish();
+                    buffer = ensure(buffer, 4 + raw.length + 64);
+                    buffer.putInt(raw.length);
+                    while (!deflater.finished()) {
+                        buffer = ensure(buffer, 1024);
+                        buffer.position(buffer.position() + deflater.deflate(buffer.array(), buffer.position(), buffer.remaining()));
+                    }
+                } else {
+                    buffer = ensure(buffer, n * WIDTH[c]);
+                    min = Long.MAX_VALUE;
+                    max = Long.MIN_VALUE;
+                    for (int r = 0; r < n; r++) {
+                        long value = switch (c) {
+                            case ID -> block.ids[r];
+                            case ACCOMMODATION -> block.accommodations[r];
+                            case UNIT -> block.units[r];
+                            case CHECK_IN -> block.checkIns[r];
+                            case CHECK_OUT -> block.checkOuts[r];
+                            case DAYS -> block.days[r];
+                            case DISCOUNT -> block.discounts[r];
+                            default -> block.totals[r];
+                        };
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                    switch (c) {
+                        case ID -> buffer.asLongBuffer().put(block.ids, 0, n);
+                        case ACCOMMODATION -> buffer.put(block.accommodations, 0, n);
+                        case UNIT -> buffer.asShortBuffer().put(block.units, 0, n);
+                        case CHECK_IN -> buffer.asIntBuffer().put(block.checkIns, 0, n);
+                        case CHECK_OUT -> buffer.asIntBuffer().put(block.checkOuts, 0, n);
+                        case DAYS -> buffer.asShortBuffer().put(block.days, 0, n);
+                        case DISCOUNT -> buffer.asLongBuffer().put(block.discounts, 0, n);
+                        default -> buffer.asLongBuffer().put(block.totals, 0, n);
+                    }
+                    // the typed views above do not move the buffer's own position
+                    buffer.position(n * WIDTH[c]);
+                }
+                buffer.flip();
+                int length = buffer.remaining();
+                directory.putLong(position).putInt(length).putLong(min).putLong(max);
+                position += write(buffer, position);
+            }
+            blocks++;
+            block.rows = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                long directoryOffset = position;
+                directory.flip();
+                write(directory, position);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) COLUMNS).putInt(BLOCK_ROWS)
+                    .putLong(rows).putInt(blocks).putLong(directoryOffset).flip();
+                write(header, 0);
+                out.force(true);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+
+        private int write(ByteBuffer data, long at) throws IOException {
+            int length = data.remaining();
+            while (data.hasRemaining()) {
+                out.write(data, at + length - data.remaining());
+            }
+            return length;
+        }
+
+        private static ByteBuffer ensure(ByteBuffer buffer, int more) {
+            if (buffer.remaining() >= more) {
+                return buffer;
+            }
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + more));
+            buffer.flip();
+            return bigger.put(buffer);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * Splits one CSV line into fields without copying it.
+ * Fields are kept as start/end offsets into the line, so callers can parse numbers
+ * and dates in place (see DateParser) and only build a String for the fields they
+ * keep. Quoted fields ("Smith, Jr.", with "" for a quote) are supported, and field
+ * values are trimmed of surrounding spaces.
+ * One tokenizer is reused line after line and is not thread-safe.
+ */
+final class CsvTokenizer {
+
+    private CharSequence line = "";
+    private int[] bounds = new int[32]; // start and end of each field's content
+    private long escaped; // bit i set if field i (of the first 64) holds a "" escape
+    private int count;
+
+    // --- TOKENIZING ---
+    // Splits 'text' and returns the number of fields, or -1 if a quoted field is not closed.
+    int tokenize(CharSequence text) {
+        line = text;
+        count = 0;
+        escaped = 0;
+        int length = text.length();
+        int pos = 0;
+        while (true) {
+            int start = pos;
+            while (start < length && text.charAt(start) == ' ') {
+                start++;
+            }
+            if (start < length && text.charAt(start) == '"') {
+                int close = start + 1;
+                while (true) {
+                    while (close < length && text.charAt(close) != '"') {
+                        close++;
+                    }
+                    if (close >= length) {
+                        return -1;
+                    }
+                    if (close + 1 < length && text.charAt(close + 1) == '"') {
+                        if (count < 64) {
+                            escaped |= 1L << count;
+                        }
+                        close += 2;
+                        continue;
+                    }
+                    break;
+                }
+                add(start + 1, close);
+                pos = close + 1;
+                while (pos < length && text.charAt(pos) != ',') {
+                    pos++;
+                }
+            } else {
+                int end = start;
+                while (end < length && text.charAt(end) != ',') {
+                    end++;
+                }
+                pos = end;
+                add(start, end);
+            }
+            if (pos >= length) {
+                return count;
+            }
+            pos++; // past the comma
+        }
+    }
+
+    private void add(int start, int end) {
+        if (count * 2 == bounds.length) {
+            int[] bigger = new int[bounds.length * 2];
+            System.arraycopy(bounds, 0, bigger, 0, bounds.length);
+            bounds = bigger;
+        }
+        bounds[count * 2] = start;
+        bounds[count * 2 + 1] = end;
+        count++;
+    }
+
+    // --- FIELD ACCESS ---
+    int count() {
+        return count;
+    }
+
+    CharSequence line() {
+        return line;
+    }
+
+    int start(int field) {
+        return bounds[field * 2];
+    }
+
+    // End of the field with trailing spaces dropped.
+    int end(int field) {
+        int start = bounds[field * 2];
+        int end = bounds[field * 2 + 1];
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // The field as a trimmed String (quotes removed, "" turned back into ").
+    String field(int field) {
+        String text = line.subSequence(start(field), end(field)).toString();
+        if (field >= 64 || (escaped & (1L << field)) != 0) {
+            text = text.replace("\"\"", "\"");
+        }
+        return text;
+    }
+
+    // Case-sensitive comparison without building the field.
+    boolean fieldEquals(int field, String value) {
+        int start = start(field);
+        int length = end(field) - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Pounds and pence ("5438.35", "525", "-0.5") in place, rounded half-up to the
+    // penny; Long.MIN_VALUE if the field is not an amount.
+    long pence(int field) {
+        int pos = start(field);
+        int end = end(field);
+        boolean negative = pos < end && line.charAt(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long pounds = 0;
+        int digits = 0;
+        while (pos < end && isDigit(line.charAt(pos))) {
+            if (++digits > 15) {
+                return Long.MIN_VALUE;
+            }
+            pounds = pounds * 10 + line.charAt(pos++) - '0';
+        }
+        long pence = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        if (pos < end && line.charAt(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(line.charAt(pos))) {
+                char c = line.charAt(pos++);
+                if (decimals < 2) {
+                    pence = pence * 10 + c - '0';
+                } else if (decimals == 2) {
+                    roundUp = c >= '5';
+                }
+                decimals++;
+            }
+        }
+        if (pos != end || digits + decimals == 0) {
+            return Long.MIN_VALUE;
+        }
+        if (decimals == 1) {
+            pence *= 10;
+        }
+        long total = pounds * 100 + pence + (roundUp ? 1 : 0);
+        return negative ? -total : total;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,99 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+
+/**
+ * Single-pass day-first date parser for typed input and the loaders.
+ * Accepts d/M/yyyy and dd/MM/yyyy with '/', '-', '.' or a space between the parts,
+ * and ddMMyyyy as eight digits, with surrounding spaces ignored. Reads the text in
+ * place: no regexes, no intermediate Strings and no exceptions for bad input, which
+ * simply gives null. The day is checked against the month (and leap years), so
+ * 31/04/2026 and 29/02/2027 are rejected rather than moved to another day.
+ */
+final class DateParser {
+
+    private DateParser() {
+    }
+
+    static LocalDate parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    // Parses text[start, end). Returns null if it is not a valid date in an accepted shape.
+    static LocalDate parse(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start == 8) {
+            // ddMMyyyy if all digits; otherwise one of the separated forms (1/9/2025 is also 8 long)
+            int packed = digits(text, start, end);
+            if (packed >= 0) {
+                return of(packed / 1_000_000, packed / 10_000 % 100, packed % 10_000);
+            }
+        }
+        int dayEnd = partEnd(text, start, end);
+        if (dayEnd < 0) {
+            return null;
+        }
+        int monthEnd = partEnd(text, dayEnd + 1, end);
+        if (monthEnd < 0 || end - (monthEnd + 1) != 4) {
+            return null;
+        }
+        int year = digits(text, monthEnd + 1, end);
+        if (year < 0) {
+            return null;
+        }
+        return of(digits(text, start, dayEnd), digits(text, dayEnd + 1, monthEnd), year);
+    }
+
+    // --- HELPERS ---
+    private static LocalDate of(int day, int month, int year) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > daysInMonth(month, year)) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    static int daysInMonth(int month, int year) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // End of a one- or two-digit day or month starting at 'start', which must be followed by
+    // a separator; -1 if there is no such part.
+    private static int partEnd(CharSequence text, int start, int end) {
+        int pos = start;
+        while (pos < end && pos - start < 3 && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        int length = pos - start;
+        return length >= 1 && length <= 2 && pos < end && isSeparator(text.charAt(pos)) ? pos : -1;
+    }
+
+    // The digits in text[start, end) as a number, or -1 if any is not a digit (at most 9 digits).
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '-' || c == '.' || c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,238 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Nightly rates for every accommodation over the same rolling window as the
+ * availability bitmaps, built from a list of PricingRules.
+ * The calendar rules (seasons, days of the week) are compiled once into a per-day
+ * change in basis points, so however many rules there are, pricing a night costs
+ * the occupancy rules only. Each night's rate sits in a Fenwick tree, so a stay is
+ * quoted with two prefix-sum queries (O(log n)) and a night whose rate changes is
+ * updated in O(log n) too.
+ * Kept current as a BookingListener: a save or delete recounts the booked units on
+ * just the nights it covers and re-prices those whose occupancy tier moved.
+ * Nights outside the window are priced from the rules directly. With no rules at all
+ * every night costs the daily rate, and stays are quoted from PricingEngine's table.
+ * Quotes share a read lock, so bulk ingest's parallel validation and many sessions
+ * price at the same time; only a save, delete or the window moving on takes the write lock.
+ */
+final class DynamicPricing implements BookingListener {
+
+    private static final long BASIS_POINTS = 10_000;
+
+    private final UnitInventory inventory;
+    private final List<PricingRule> calendarRules = new ArrayList<>();
+    private final List<PricingRule> occupancyRules = new ArrayList<>();
+    private final int[][] calendarBp; // [accommodation][night - baseDay]
+    private final int[][] booked;
+    private final long[][] nightly;
+    private final long[][] tree;      // Fenwick trees over nightly[], 1-based
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long baseDay;
+    private final boolean flat; // no rules: every night at the base daily rate
+
+    DynamicPricing(UnitInventory inventory, List<PricingRule> rules) {
+        this.inventory = inventory;
+        for (PricingRule rule : rules) {
+            (rule.occupancyBased() ? occupancyRules : calendarRules).add(rule);
+        }
+        flat = rules.isEmpty();
+        int count = VacayStarBooking.ACCOMMODATION_NAMES.length;
+        calendarBp = new int[count][AvailabilityIndex.HORIZON_DAYS];
+        booked = new int[count][AvailabilityIndex.HORIZON_DAYS];
+        nightly = new long[count][AvailabilityIndex.HORIZON_DAYS];
+        tree = new long[count][AvailabilityIndex.HORIZON_DAYS + 1];
+        baseDay = AvailabilityIndex.alignedBase(LocalDate.now().toEpochDay());
+        rebuild();
+    }
+
+    // --- QUOTING ---
+    // Packed quote (see PricingEngine) for a stay of [inDate, outDate).
+    long quote(int accIndex, LocalDate inDate, LocalDate outDate) {
+        long in = inDate.toEpochDay();
+        long out = outDate.toEpochDay();
+        if (flat) {
+            return PricingEngine.quote(accIndex, (int) (out - in));
+        }
+        return PricingEngine.quoteStay(accIndex, (int) (out - in), stayPence(accIndex, in, out));
+    }
+
+    // Sum of the nightly rates of [inDay, outDay), before the long-stay discount, card fee and VAT.
+    long stayPence(int accIndex, long inDay, long outDay) {
+        roll();
+        lock.readLock().lock();
+        try {
+            long base = baseDay;
+            long from = Math.max(inDay, base);
+            long to = Math.min(outDay, base + AvailabilityIndex.HORIZON_DAYS);
+            long pence = 0;
+            if (from < to) {
+                pence = prefix(tree[accIndex], (int) (to - base)) - prefix(tree[accIndex], (int) (from - base));
+            }
+            for (long day = inDay; day < Math.min(outDay, base); day++) {
+                pence += outsideRate(accIndex, day);
+            }
+            for (long day = Math.max(inDay, base + AvailabilityIndex.HORIZON_DAYS); day < outDay; day++) {
+                pence += outsideRate(accIndex, day);
+            }
+            return pence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long nightlyPence(int accIndex, LocalDate night) {
+        roll();
+        lock.readLock().lock();
+        try {
+            long day = night.toEpochDay();
+            if (day < baseDay || day >= baseDay + AvailabilityIndex.HORIZON_DAYS) {
+                return outsideRate(accIndex, day);
+            }
+            return nightly[accIndex][(int) (day - baseDay)];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- STORE CHANGES ---
+    @Override
+    public void onAdded(Booking booking) {
+        roll();
+        lock.writeLock().lock();
+        try {
+            recount(booking.accIndex(), booking.inDate().toEpochDay(), booking.outDate().toEpochDay());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The inventory has already dropped this stay, so its nights are recounted from what is left.
+    @Override
+    public void onDeleted(Booking booking) {
+        roll();
+        lock.writeLock().lock();
+        try {
+            recount(booking.accIndex(), booking.inDate().toEpochDay(), booking.outDate().toEpochDay());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCleared() {
+        lock.writeLock().lock();
+        try {
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- RATE CALENDAR ---
+    // Re-prices the nights of [inDay, outDay) whose booked-unit count changed.
+    private void recount(int accIndex, long inDay, long outDay) {
+        long from = Math.max(inDay, baseDay) - baseDay;
+        long to = Math.min(outDay, baseDay + AvailabilityIndex.HORIZON_DAYS) - baseDay;
+        for (int d = (int) from; d < to; d++) {
+            int taken = inventory.bookedUnits(accIndex, baseDay + d);
+            if (taken == booked[accIndex][d]) {
+                continue;
+            }
+            booked[accIndex][d] = taken;
+            long rate = rate(accIndex, baseDay + d, calendarBp[accIndex][d], taken);
+            if (rate != nightly[accIndex][d]) {
+                add(tree[accIndex], d, rate - nightly[accIndex][d]);
+                nightly[accIndex][d] = rate;
+            }
+        }
+    }
+
+    // Compiles the calendar rules for every night of the window, counts the booked units
+    // from the inventory and builds the Fenwick trees in linear time.
+    private void rebuild() {
+        for (int acc = 0; acc < nightly.length; acc++) {
+            long[] fenwick = tree[acc];
+            fenwick[0] = 0;
+            for (int d = 0; d < AvailabilityIndex.HORIZON_DAYS; d++) {
+                long day = baseDay + d;
+                calendarBp[acc][d] = calendarChange(acc, LocalDate.ofEpochDay(day));
+                booked[acc][d] = inventory.bookedUnits(acc, day);
+                nightly[acc][d] = rate(acc, day, calendarBp[acc][d], booked[acc][d]);
+                fenwick[d + 1] = nightly[acc][d];
+            }
+            for (int i = 1; i <= AvailabilityIndex.HORIZON_DAYS; i++) {
+                int parent = i + (i & -i);
+                if (parent <= AvailabilityIndex.HORIZON_DAYS) {
+                    fenwick[parent] += fenwick[i];
+                }
+            }
+        }
+    }
+
+    private int calendarChange(int accIndex, LocalDate night) {
+        int change = 0;
+        for (PricingRule rule : calendarRules) {
+            change += rule.basisPoints(accIndex, night, 0, 0);
+        }
+        return change;
+    }
+
+    // A night's rate: the base daily rate moved by the calendar change plus any occupancy
+    // rules that apply, rounded half-up to the penny and never below zero.
+    private long rate(int accIndex, long day, int calendarChange, int taken) {
+        long change = calendarChange;
+        if (!occupancyRules.isEmpty()) {
+            LocalDate night = LocalDate.ofEpochDay(day);
+            int units = inventory.units(accIndex);
+            for (PricingRule rule : occupancyRules) {
+                change += rule.basisPoints(accIndex, night, taken, units);
+            }
+        }
+        change = Math.max(change, -BASIS_POINTS);
+        return PricingEngine.divideHalfUp(PricingEngine.dailyRatePence(accIndex) * (BASIS_POINTS + change), BASIS_POINTS);
+    }
+
+    private long outsideRate(int accIndex, long day) {
+        return rate(accIndex, day, calendarChange(accIndex, LocalDate.ofEpochDay(day)), inventory.bookedUnits(accIndex, day));
+    }
+
+    // Moves the window forward as the calendar moves on, in the same 64-day steps as the
+    // availability bitmaps, and compiles it again. Called before taking either lock.
+    private void roll() {
+        long wanted = AvailabilityIndex.alignedBase(LocalDate.now().toEpochDay());
+        if (wanted <= baseDay) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (wanted > baseDay) {
+                baseDay = wanted;
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- FENWICK TREE ---
+    // Sum of the first 'count' nights of the window.
+    private static long prefix(long[] fenwick, int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += fenwick[i];
+        }
+        return sum;
+    }
+
+    private static void add(long[] fenwick, int night, long delta) {
+        for (int i = night + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+}
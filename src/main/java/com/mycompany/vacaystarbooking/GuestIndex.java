@@ -0,0 +1,130 @@
+package com.mycompany.vacaystarbooking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory guest lookup over every stored booking, keyed by booking id.
+ * Email and phone number are hash indexes on their normalized forms; guest names
+ * sit in a sorted map so a name prefix is one range lookup. Built from the log on
+ * first use and kept in step with the writer, so a lookup costs the same however
+ * many bookings are stored.
+ */
+final class GuestIndex implements BookingListener {
+
+    private final Map<Long, Booking> byId = new HashMap<>();
+    private final Map<String, Set<Long>> byEmail = new HashMap<>();
+    private final Map<String, Set<Long>> byPhone = new HashMap<>();
+    private final TreeMap<String, Set<Long>> byName = new TreeMap<>();
+
+    // --- KEY NORMALIZATION ---
+    static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Same normalization the booking form applies, so "7123 456789" finds "07123456789".
+    static String phoneKey(String phone) {
+        return VacayStarBooking.normalizeUKPhone(phone);
+    }
+
+    static String nameKey(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // --- STORE CHANGES ---
+    @Override
+    public synchronized void onAdded(Booking booking) {
+        byId.put(booking.id(), booking);
+        link(byEmail, emailKey(booking.email()), booking.id());
+        link(byPhone, phoneKey(booking.contact()), booking.id());
+        link(byName, nameKey(booking.name()), booking.id());
+    }
+
+    @Override
+    public synchronized void onDeleted(Booking booking) {
+        if (byId.remove(booking.id()) == null) {
+            return;
+        }
+        unlink(byEmail, emailKey(booking.email()), booking.id());
+        unlink(byPhone, phoneKey(booking.contact()), booking.id());
+        unlink(byName, nameKey(booking.name()), booking.id());
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        byId.clear();
+        byEmail.clear();
+        byPhone.clear();
+        byName.clear();
+    }
+
+    private static void link(Map<String, Set<Long>> map, String key, long id) {
+        map.computeIfAbsent(key, k -> new HashSet<>(2)).add(id);
+    }
+
+    private static void unlink(Map<String, Set<Long>> map, String key, long id) {
+        Set<Long> ids = map.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    // --- LOOKUPS ---
+    // Each returns the matching bookings oldest first.
+    synchronized List<Booking> findByEmail(String email) {
+        return collect(byEmail.get(emailKey(email)));
+    }
+
+    synchronized List<Booking> findByPhone(String phone) {
+        return collect(byPhone.get(phoneKey(phone)));
+    }
+
+    // Every guest whose name starts with the prefix (case and extra spaces ignored).
+    synchronized List<Booking> findByNamePrefix(String prefix) {
+        String key = nameKey(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Set<Long> group : byName.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            ids.addAll(group);
+        }
+        return collect(ids);
+    }
+
+    // Picks the index from the shape of the query: an email, a phone number, or a name prefix.
+    List<Booking> find(String query) {
+        String trimmed = query.trim();
+        if (trimmed.contains("@")) {
+            return findByEmail(trimmed);
+        }
+        if (VacayStarBooking.isValidUKPhone(phoneKey(trimmed))) {
+            return findByPhone(trimmed);
+        }
+        return findByNamePrefix(trimmed);
+    }
+
+    synchronized int size() {
+        return byId.size();
+    }
+
+    private List<Booking> collect(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Booking> bookings = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            bookings.add(byId.get(id));
+        }
+        bookings.sort(Comparator.comparingLong(Booking::id));
+        return bookings;
+    }
+}
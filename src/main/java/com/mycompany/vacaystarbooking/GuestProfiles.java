@@ -0,0 +1,133 @@
+package com.mycompany.vacaystarbooking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * One profile per returning guest, keyed by normalized email, with the phone numbers
+ * they have booked with. Lifetime totals (stays, nights, spend and discount earned)
+ * are running sums: a save adds the booking's figures and a delete takes them away,
+ * so a profile is one hash lookup and never a scan of the bookings.
+ * Built from the store on first use and kept in step by the writer.
+ */
+final class GuestProfiles implements BookingListener {
+
+    // A profile as it stood when it was read.
+    record Profile(String email, String name, int stays, long nights, long spendPence,
+                   long discountPence, int favouriteAccIndex) {
+    }
+
+    private static final Comparator<Profile> BY_SPEND =
+        Comparator.comparingLong(Profile::spendPence).thenComparing(Profile::email, Comparator.reverseOrder());
+
+    private static final class Totals {
+        final String email;
+        String name;
+        long nameId;  // id of the booking the name was taken from (the latest one)
+        int stays;
+        long nights;
+        long spendPence;
+        long discountPence;
+        final int[] staysByType = new int[VacayStarBooking.ACCOMMODATION_NAMES.length];
+        final Map<String, Integer> phones = new HashMap<>(2);
+
+        Totals(String email) {
+            this.email = email;
+        }
+
+        Profile snapshot() {
+            int favourite = 0;
+            for (int acc = 1; acc < staysByType.length; acc++) {
+                if (staysByType[acc] > staysByType[favourite]) {
+                    favourite = acc;
+                }
+            }
+            return new Profile(email, name, stays, nights, spendPence, discountPence, favourite);
+        }
+    }
+
+    private final Map<String, Totals> byEmail = new HashMap<>();
+
+    // --- STORE CHANGES ---
+    @Override
+    public synchronized void onAdded(Booking booking) {
+        Totals t = byEmail.computeIfAbsent(GuestIndex.emailKey(booking.email()), Totals::new);
+        t.stays++;
+        t.nights += booking.days();
+        t.spendPence += booking.totalPence();
+        t.discountPence += booking.discountPence();
+        t.staysByType[booking.accIndex()]++;
+        t.phones.merge(GuestIndex.phoneKey(booking.contact()), 1, Integer::sum);
+        if (t.name == null || booking.id() >= t.nameId) {
+            t.name = booking.name();
+            t.nameId = booking.id();
+        }
+    }
+
+    @Override
+    public synchronized void onDeleted(Booking booking) {
+        String key = GuestIndex.emailKey(booking.email());
+        Totals t = byEmail.get(key);
+        if (t == null) {
+            return;
+        }
+        if (--t.stays == 0) {
+            byEmail.remove(key);
+            return;
+        }
+        t.nights -= booking.days();
+        t.spendPence -= booking.totalPence();
+        t.discountPence -= booking.discountPence();
+        t.staysByType[booking.accIndex()]--;
+        t.phones.computeIfPresent(GuestIndex.phoneKey(booking.contact()), (phone, n) -> n == 1 ? null : n - 1);
+    }
+
+    // A move only changes the unit, which no total depends on.
+    @Override
+    public void onMoved(Booking before, Booking after) {
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        byEmail.clear();
+    }
+
+    // --- LOOKUPS ---
+    // The guest with this email, or null if they have no bookings stored.
+    synchronized Profile find(String email) {
+        Totals t = byEmail.get(GuestIndex.emailKey(email));
+        return t == null ? null : t.snapshot();
+    }
+
+    // Only if they have booked with this phone number before too, so an email alone
+    // does not reveal anything about someone else's stays.
+    synchronized Profile find(String email, String phone) {
+        Totals t = byEmail.get(GuestIndex.emailKey(email));
+        return t == null || !t.phones.containsKey(GuestIndex.phoneKey(phone)) ? null : t.snapshot();
+    }
+
+    // The n guests who have spent the most, highest first. A min-heap of the best n
+    // so far is kept while every profile is visited once: O(g log n), not a full sort.
+    synchronized List<Profile> topBySpend(int n) {
+        PriorityQueue<Profile> best = new PriorityQueue<>(Math.max(n, 1), BY_SPEND);
+        for (Totals t : byEmail.values()) {
+            if (best.size() < n) {
+                best.add(t.snapshot());
+            } else if (n > 0 && t.spendPence > best.peek().spendPence()) {
+                best.poll();
+                best.add(t.snapshot());
+            }
+        }
+        List<Profile> top = new ArrayList<>(best);
+        top.sort(BY_SPEND.reversed());
+        return top;
+    }
+
+    synchronized int size() {
+        return byEmail.size();
+    }
+}
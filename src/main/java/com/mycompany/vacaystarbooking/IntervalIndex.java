@@ -0,0 +1,235 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * In-memory index of booked stays, one interval tree per accommodation unit
+ * (UnitInventory maps a type and unit number to the tree's key).
+ * Each tree is a treap ordered by check-in day and augmented with the latest
+ * check-out day found in each subtree, so an overlap query only walks down
+ * branches that can still hold a clash (O(log n) expected per operation).
+ * Stays are half-open [check-in, check-out): a guest checking out on the same
+ * day another one checks in is not a conflict.
+ * All operations are synchronized: booking sessions read while the writer updates.
+ */
+final class IntervalIndex {
+
+    // --- TREE NODE ---
+    // One booked stay. Days are epoch days (LocalDate.toEpochDay()).
+    private static final class Node {
+        final long start;
+        final long end;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, int priority) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Node[] roots;
+    private final int[] sizes;
+    private int seed = 0x2545F491;
+    private boolean removed;
+
+    IntervalIndex(int keyCount) {
+        roots = new Node[keyCount];
+        sizes = new int[keyCount];
+    }
+
+    // --- PUBLIC OPERATIONS ---
+    // Keys are 0-based, one per tree (see UnitInventory.key).
+    synchronized void add(int key, long startDay, long endDay) {
+        roots[key] = insert(roots[key], new Node(startDay, endDay, nextPriority()));
+        sizes[key]++;
+    }
+
+    // Removes one stay with exactly these dates. Returns false if none was indexed.
+    synchronized boolean remove(int key, long startDay, long endDay) {
+        removed = false;
+        roots[key] = delete(roots[key], startDay, endDay);
+        if (removed) {
+            sizes[key]--;
+        }
+        return removed;
+    }
+
+    synchronized boolean overlaps(int key, long startDay, long endDay) {
+        Node node = roots[key];
+        while (node != null) {
+            if (node.maxEnd <= startDay) {
+                return false;
+            }
+            if (node.start < endDay && node.end > startDay) {
+                return true;
+            }
+            // If the left subtree reaches past our check-in, any clash must be on the left;
+            // otherwise only the right subtree can still contain one.
+            node = (node.left != null && node.left.maxEnd > startDay) ? node.left : node.right;
+        }
+        return false;
+    }
+
+    // Check-out day of the stay with the latest check-in before 'day', or Long.MIN_VALUE if none.
+    synchronized long endBefore(int key, long day) {
+        long end = Long.MIN_VALUE;
+        Node node = roots[key];
+        while (node != null) {
+            if (node.start < day) {
+                end = node.end;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return end;
+    }
+
+    // Earliest check-in day on or after 'day', or Long.MAX_VALUE if none.
+    synchronized long startFrom(int key, long day) {
+        long start = Long.MAX_VALUE;
+        Node node = roots[key];
+        while (node != null) {
+            if (node.start >= day) {
+                start = node.start;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return start;
+    }
+
+    // Calls the action for every indexed stay that overlaps [startDay, endDay).
+    synchronized void forEachOverlap(int key, long startDay, long endDay, StayConsumer action) {
+        collect(roots[key], startDay, endDay, action);
+    }
+
+    interface StayConsumer {
+        void accept(long startDay, long endDay);
+    }
+
+    synchronized int size(int key) {
+        return sizes[key];
+    }
+
+    synchronized void clear() {
+        java.util.Arrays.fill(roots, null);
+        java.util.Arrays.fill(sizes, 0);
+    }
+
+    // --- TREAP INTERNALS ---
+    private static void collect(Node node, long start, long end, StayConsumer action) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, action);
+        if (node.start < end) {
+            if (node.end > start) {
+                action.accept(node.start, node.end);
+            }
+            collect(node.right, start, end, action);
+        }
+    }
+
+    // Nodes are ordered by (check-in, check-out) so identical keys always sit on a known side.
+    private static int compare(long start, long end, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Long.compare(end, node.end);
+    }
+
+    private Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (compare(node.start, node.end, root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        update(root);
+        return root;
+    }
+
+    private Node delete(Node root, long start, long end) {
+        if (root == null) {
+            return null;
+        }
+        int cmp = compare(start, end, root);
+        if (cmp == 0) {
+            removed = true;
+            return merge(root.left, root.right);
+        }
+        if (cmp < 0) {
+            root.left = delete(root.left, start, end);
+        } else {
+            root.right = delete(root.right, start, end);
+        }
+        update(root);
+        return root;
+    }
+
+    // Joins two treaps where every key on the left is <= every key on the right.
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) {
+            max = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > max) {
+            max = node.right.maxEnd;
+        }
+        node.maxEnd = max;
+    }
+
+    // Xorshift priorities: cheap, and the tree shape stays reproducible between runs.
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
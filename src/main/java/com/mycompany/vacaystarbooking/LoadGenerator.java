@@ -0,0 +1,387 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Headless load generator and soak test for the booking wizard
+ * (run with: soak [workers] [seconds] [seed], and -Dvacaystar.data=&lt;scratch dir&gt;).
+ * Each worker thread invents guests and types their whole session into makeBooking
+ * through its own Scanner, with the session's output thrown away: straight bookings,
+ * typos in every field that are then corrected, "00" back-steps, "0" cancels, the
+ * free-dates search, past and impossible dates, change-of-mind at the summary and
+ * guests who hang up half way. Every script ends with enough "00"s and a "0" to
+ * back out and cancel, so a booking that could not be placed never stalls a worker.
+ *
+ * Every ten seconds and at the end it prints throughput, session latency, outcomes,
+ * errors and how much the booking store has grown on disk; the final report adds the
+ * per-step and storage timings and the size of a fresh bookings.csv export.
+ */
+final class LoadGenerator {
+
+    static final int DEFAULT_WORKERS = 8;
+    static final int DEFAULT_SECONDS = 60;
+    private static final int REPORT_EVERY_SECONDS = 10;
+    private static final int MAX_ERRORS_SHOWN = 5;
+    private static final int BOOKING_DAYS_AHEAD = 720;
+
+    // --- SESSION OUTCOMES ---
+    private static final int BOOKED = 0;
+    private static final int DECLINED = 1;   // wanted to book, but every unit was taken
+    private static final int CANCELLED = 2;
+    private static final int ABANDONED = 3;  // input ended mid-booking, like a hung-up client
+    private static final int ERROR = 4;
+    private static final String[] OUTCOME_NAMES = { "Booked", "No unit free", "Cancelled", "Hung up", "Errors" };
+
+    // One scripted guest: the lines they type, what they mean to do and, for a straight
+    // booking, the stay they ask for (so a refusal can be checked against availability).
+    private record Script(String lines, int expected, int accIndex, LocalDate inDate, LocalDate outDate) {
+    }
+
+    private final int workers;
+    private final long seed;
+    private final LocalDate today = LocalDate.now();
+    private final AtomicLong[] outcomes = new AtomicLong[OUTCOME_NAMES.length];
+    private final LatencyHistogram sessionLatency = new LatencyHistogram();
+    private final List<String> errors = new ArrayList<>();
+    private volatile boolean stopping;
+
+    private LoadGenerator(int workers, long seed) {
+        this.workers = workers;
+        this.seed = seed;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new AtomicLong();
+        }
+    }
+
+    // --- ENTRY POINT ---
+    static void run(String[] args) {
+        if (System.getProperty(VacayStarBooking.DATA_PROPERTY) == null) {
+            System.out.println("The soak test saves real bookings, so point it at a scratch directory:");
+            System.out.println("  -D" + VacayStarBooking.DATA_PROPERTY + "=<dir> soak [workers] [seconds] [seed]");
+            return;
+        }
+        int workers;
+        int seconds;
+        long seed;
+        try {
+            workers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WORKERS;
+            seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+            seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        } catch (NumberFormatException e) {
+            workers = 0;
+            seconds = 0;
+            seed = 0;
+        }
+        if (workers < 1 || seconds < 1) {
+            System.out.println("Usage: soak [workers] [seconds] [seed]");
+            return;
+        }
+        try {
+            new LoadGenerator(workers, seed).soak(seconds);
+        } catch (IOException e) {
+            System.out.println("Error during soak test: " + e.getMessage());
+        }
+    }
+
+    private void soak(int seconds) throws IOException {
+        Path storeDir = Path.of(VacayStarBooking.DATA_DIR);
+        VacayStarBooking.writer(); // open the store and build the indexes before timing anything
+        long startBytes = sizeOf(storeDir);
+        int startBookings = VacayStarBooking.store().size();
+        Metrics.resetAll();
+        System.out.printf("Soak test: %d workers for %d s (seed %d), data in %s (%d bookings, %s)%n",
+            workers, seconds, seed, Path.of(VacayStarBooking.DATA_ROOT).toAbsolutePath(), startBookings, megabytes(startBytes));
+
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            Random random = new Random(seed + w);
+            threads.add(Thread.ofPlatform().name("soak-" + w).start(() -> work(random, deadline)));
+        }
+        long nextReport = start + REPORT_EVERY_SECONDS * 1_000_000_000L;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                long now = System.nanoTime();
+                if (now >= nextReport) {
+                    printProgress(now - start, sizeOf(storeDir) - startBytes);
+                    nextReport += REPORT_EVERY_SECONDS * 1_000_000_000L;
+                }
+                try {
+                    thread.join(Math.max(1, (nextReport - now) / 1_000_000));
+                } catch (InterruptedException e) {
+                    stopping = true;
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        VacayStarBooking.store().flush();
+
+        System.out.println();
+        printProgress(elapsed, sizeOf(storeDir) - startBytes);
+        System.out.printf("Session latency ms: mean %.2f, p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+            sessionLatency.mean() / 1e6, sessionLatency.percentile(50) / 1e6, sessionLatency.percentile(95) / 1e6,
+            sessionLatency.percentile(99) / 1e6, sessionLatency.max() / 1e6);
+        for (int i = 0; i < OUTCOME_NAMES.length; i++) {
+            System.out.printf("  %-13s %10d  (%.1f%%)%n", OUTCOME_NAMES[i], outcomes[i].get(),
+                100.0 * outcomes[i].get() / Math.max(1, sessionLatency.count()));
+        }
+        synchronized (errors) {
+            for (String error : errors) {
+                System.out.println("  error: " + error);
+            }
+        }
+        System.out.println();
+        System.out.print(Metrics.report());
+
+        int bookings = VacayStarBooking.store().size();
+        Path csv = Path.of(VacayStarBooking.CSV_FILE);
+        long csvBefore = Files.exists(csv) ? Files.size(csv) : 0;
+        BookingCsv.exportTo(VacayStarBooking.store(), csv);
+        System.out.printf("%nBookings stored: %d -> %d. Store on disk: %s -> %s. %s: %s -> %s.%n",
+            startBookings, bookings, megabytes(startBytes), megabytes(sizeOf(storeDir)),
+            VacayStarBooking.CSV_FILE, megabytes(csvBefore), megabytes(Files.size(csv)));
+    }
+
+    private void printProgress(long elapsedNanos, long grownBytes) {
+        double seconds = elapsedNanos / 1e9;
+        long sessions = sessionLatency.count();
+        System.out.printf("[%5.0f s] %d sessions (%.0f/s), %d booked (%.0f/s), %d errors (%.2f%%), p99 %.2f ms, store +%s%n",
+            seconds, sessions, sessions / seconds, outcomes[BOOKED].get(), outcomes[BOOKED].get() / seconds,
+            outcomes[ERROR].get(), 100.0 * outcomes[ERROR].get() / Math.max(1, sessions),
+            sessionLatency.percentile(99) / 1e6, megabytes(grownBytes));
+    }
+
+    // --- WORKER ---
+    private void work(Random random, long deadline) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        VacayStarBooking.setSessionOutput(discard);
+        try {
+            while (!stopping && System.nanoTime() < deadline) {
+                Script script = script(random);
+                long start = System.nanoTime();
+                int outcome = play(script);
+                sessionLatency.record(System.nanoTime() - start);
+                outcomes[outcome].incrementAndGet();
+            }
+        } finally {
+            VacayStarBooking.setSessionOutput(null);
+        }
+    }
+
+    private int play(Script script) {
+        try {
+            long holdsEnded = VacayStarBooking.holds().released();
+            boolean booked = VacayStarBooking.makeBooking(new Scanner(new StringReader(script.lines())));
+            if (script.expected() == BOOKED) {
+                if (booked) {
+                    return BOOKED;
+                }
+                // Nothing is deleted during a soak, so a stay that is free now was free then,
+                // unless another guest's hold on it has been let go since this session began.
+                if (script.inDate() != null && VacayStarBooking.holds().released() == holdsEnded
+                        && VacayStarBooking.inventory().isAvailable(script.accIndex(),
+                        script.inDate().toEpochDay(), script.outDate().toEpochDay())) {
+                    return error("not booked although a unit was free", script);
+                }
+                return DECLINED;
+            }
+            return booked ? error("booked a session that should have ended " + OUTCOME_NAMES[script.expected()], script)
+                : script.expected();
+        } catch (NoSuchElementException e) {
+            return script.expected() == ABANDONED ? ABANDONED : error("ran out of input", script);
+        } catch (RuntimeException e) {
+            return error(e.toString(), script);
+        }
+    }
+
+    private int error(String message, Script script) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS_SHOWN) {
+                errors.add(message + " -- input: " + script.lines().replace("\n", " | "));
+            }
+        }
+        return ERROR;
+    }
+
+    // --- SCRIPTED GUESTS ---
+    // The mix roughly follows a busy front desk: most guests book, some fumble on the
+    // way, a few give up or hang up.
+    private Script script(Random random) {
+        StringBuilder lines = new StringBuilder(256);
+        int accIndex = random.nextInt(VacayStarBooking.ACCOMMODATION_NAMES.length);
+        int kind = random.nextInt(100);
+        if (kind < 10) {
+            // cancels straight away, or walks back from part way through and cancels
+            if (random.nextBoolean()) {
+                line(lines, "0");
+            } else {
+                guestDetails(lines, random);
+                line(lines, "00"); // back to the email,
+                line(lines, "00"); // the phone,
+                line(lines, "00"); // the name
+                line(lines, "0");
+            }
+            return new Script(lines.toString(), CANCELLED, accIndex, null, null);
+        }
+        if (kind < 15) {
+            // hangs up before confirming
+            guestDetails(lines, random);
+            line(lines, Integer.toString(accIndex + 1));
+            if (random.nextBoolean()) {
+                line(lines, date(today.plusDays(1 + random.nextInt(BOOKING_DAYS_AHEAD))));
+            }
+            return new Script(lines.toString(), ABANDONED, accIndex, null, null);
+        }
+
+        guestDetails(lines, random);
+        if (random.nextInt(10) == 0) {
+            line(lines, random.nextBoolean() ? "9" : "cabin");
+        }
+        line(lines, Integer.toString(accIndex + 1));
+        LocalDate in = null;
+        LocalDate out = null;
+        if (kind < 25) {
+            // lets the system find free dates, then takes the first window offered
+            line(lines, "F");
+            if (random.nextInt(5) == 0) {
+                line(lines, "0");
+            }
+            line(lines, Integer.toString(nights(random)));
+            line(lines, random.nextBoolean() ? "" : date(today.plusDays(1 + random.nextInt(BOOKING_DAYS_AHEAD))));
+            line(lines, "1");
+        } else {
+            if (kind < 40) {
+                badDates(lines, random);
+            }
+            in = today.plusDays(1 + random.nextInt(BOOKING_DAYS_AHEAD));
+            out = in.plusDays(nights(random));
+            if (kind < 50) {
+                // changes their mind at the summary and picks other dates
+                line(lines, date(in));
+                line(lines, date(out));
+                line(lines, "N");
+                in = today.plusDays(1 + random.nextInt(BOOKING_DAYS_AHEAD));
+                out = in.plusDays(nights(random));
+            }
+            line(lines, date(in));
+            line(lines, date(out));
+        }
+        if (random.nextInt(20) == 0) {
+            line(lines, "maybe");
+        }
+        line(lines, "Y");
+        // If the stay could not be booked, back out to the name prompt and cancel.
+        for (int i = 0; i < 6; i++) {
+            line(lines, "00");
+        }
+        line(lines, "0");
+        return new Script(lines.toString(), BOOKED, accIndex, in, out);
+    }
+
+    // Name, phone and email, each sometimes typed wrong first, and sometimes a step
+    // back from the phone to retype the name.
+    private static void guestDetails(StringBuilder lines, Random random) {
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        if (random.nextInt(10) == 0) {
+            line(lines, pick(random, BAD_NAMES));
+        }
+        line(lines, name);
+        if (random.nextInt(15) == 0) {
+            line(lines, "00");
+            line(lines, name);
+        }
+        if (random.nextInt(10) == 0) {
+            line(lines, pick(random, BAD_PHONES));
+        }
+        String digits = String.format("%09d", random.nextInt(1_000_000_000));
+        line(lines, switch (random.nextInt(4)) {
+            case 0 -> "7" + digits;                                       // leading zero left off
+            case 1 -> "07" + digits.substring(0, 3) + " " + digits.substring(3); // with a space
+            default -> "07" + digits;
+        });
+        if (random.nextInt(10) == 0) {
+            line(lines, pick(random, BAD_EMAILS));
+        }
+        line(lines, name.toLowerCase().replace(' ', '.') + random.nextInt(10_000) + "@example.com");
+    }
+
+    // One or two wrong check-in/check-out attempts before the real dates.
+    private void badDates(StringBuilder lines, Random random) {
+        LocalDate in = today.plusDays(1 + random.nextInt(BOOKING_DAYS_AHEAD));
+        switch (random.nextInt(4)) {
+            case 0 -> line(lines, date(today.minusDays(1 + random.nextInt(400))));  // in the past
+            case 1 -> line(lines, "31/02/" + (today.getYear() + 1));                 // no such day
+            case 2 -> {
+                line(lines, date(in));
+                line(lines, date(in));                                               // no nights
+                line(lines, date(in.minusDays(1 + random.nextInt(5))));              // before check-in
+                line(lines, "00");                                                   // start over
+            }
+            default -> line(lines, "next friday");
+        }
+    }
+
+    private static int nights(Random random) {
+        // mostly short breaks, with the odd long stay that earns the discount
+        return random.nextInt(10) == 0 ? 14 + random.nextInt(15) : 1 + random.nextInt(7);
+    }
+
+    private static String date(LocalDate date) {
+        return date.format(VacayStarBooking.DATE_FORMAT);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void line(StringBuilder lines, String text) {
+        lines.append(text).append('\n');
+    }
+
+    private static final String[] FIRST_NAMES = {
+        "Olivia", "Amelia", "Isla", "Ava", "Mia", "Noah", "Oliver", "George", "Arthur", "Leo", "Zoe", "Raj", "Chloe", "Jose"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Evans", "Patel", "Khan", "Murphy", "Silva", "Walker"
+    };
+    private static final String[] BAD_NAMES = { "J0hn Smith", "", "R2 D2", "Anne-Marie!", "@@@" };
+    private static final String[] BAD_PHONES = { "12345", "0712345678901", "phone", "", "+1 555 0100" };
+    private static final String[] BAD_EMAILS = { "bad@", "no-at-sign.com", "a@b", "", "two@@example.com" };
+
+    // --- DISK USAGE ---
+    private static long sizeOf(Path dir) {
+        if (!Files.exists(dir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    return 0; // deleted while walking, e.g. by compaction
+                }
+            }).sum();
+        } catch (IOException | java.io.UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
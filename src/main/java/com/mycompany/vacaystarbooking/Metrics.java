@@ -0,0 +1,228 @@
+package com.mycompany.vacaystarbooking;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide timings for the booking steps and the storage operations.
+ * Each booking step records how long guests spend in it, how many bookings
+ * reached it and how many were abandoned there (cancelled or disconnected).
+ * Storage operations record latency and bytes moved. Everything is lock-free
+ * and published over JMX under com.mycompany.vacaystarbooking.
+ */
+final class Metrics {
+
+    // Indexed by the STATE_* numbers in VacayStarBooking (7 and 8 are end states, never timed).
+    private static final String[] STEP_NAMES = {
+        null, "Name", "Phone", "Email", "Accommodation", "Dates", "Confirm", null, null, "FreeDates"
+    };
+
+    private static final StepStats[] STEPS = new StepStats[STEP_NAMES.length];
+
+    // --- STORAGE OPERATIONS ---
+    // Measured where the caller waits (so queueing behind the writer counts) ...
+    static final OperationStats SAVE = new OperationStats("Save");
+    static final OperationStats VIEW = new OperationStats("View");
+    static final OperationStats DELETE = new OperationStats("Delete");
+    static final OperationStats CLEAR = new OperationStats("Clear");
+    static final OperationStats REPORT = new OperationStats("Report");
+    static final OperationStats QUERY = new OperationStats("Query");
+    // ... and inside the log, where the disk is hit.
+    static final OperationStats LOG_COMMIT = new OperationStats("LogCommit");
+    static final OperationStats LOG_COMPACT = new OperationStats("LogCompact");
+    static final OperationStats LOG_CHECKPOINT = new OperationStats("LogCheckpoint");
+    static final OperationStats LOG_PURGE = new OperationStats("LogPurge");
+    static final OperationStats FEED_COMMIT = new OperationStats("FeedCommit");
+
+    static final OperationStats[] OPERATIONS = {
+        SAVE, VIEW, DELETE, CLEAR, REPORT, QUERY, LOG_COMMIT, LOG_COMPACT, LOG_CHECKPOINT, LOG_PURGE, FEED_COMMIT
+    };
+
+    static {
+        for (int state = 0; state < STEP_NAMES.length; state++) {
+            if (STEP_NAMES[state] != null) {
+                STEPS[state] = new StepStats(STEP_NAMES[state]);
+            }
+        }
+        register();
+    }
+
+    private Metrics() {
+    }
+
+    // Returns the stats for a booking step, or null for states that are not timed.
+    static StepStats step(int state) {
+        return state >= 0 && state < STEPS.length ? STEPS[state] : null;
+    }
+
+    static void resetAll() {
+        for (StepStats step : STEPS) {
+            if (step != null) {
+                step.reset();
+            }
+        }
+        for (OperationStats op : OPERATIONS) {
+            op.reset();
+        }
+    }
+
+    // --- JMX ---
+    // Each bean is registered on its own, so one failure does not hide the rest. A bean
+    // already registered (e.g. two class loaders in one JVM) is simply skipped; any other
+    // failure is logged, and that metric is still shown in the admin area.
+    private static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (StepStats step : STEPS) {
+            if (step != null) {
+                register(server, step, "type=BookingStep,name=" + step.name);
+            }
+        }
+        for (OperationStats op : OPERATIONS) {
+            register(server, op, "type=StorageOperation,name=" + op.name);
+        }
+    }
+
+    private static void register(MBeanServer server, Object bean, String properties) {
+        try {
+            server.registerMBean(bean, new ObjectName("com.mycompany.vacaystarbooking:" + properties));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another copy of this class.
+        } catch (JMException | SecurityException e) {
+            System.err.println("Could not publish metrics " + properties + " over JMX: " + e);
+        }
+    }
+
+    // --- REPORT ---
+    // Renders both tables for the admin area.
+    static String report() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append(String.format("%-14s | %8s | %8s | %9s | %7s | %10s | %10s | %10s | %10s\n",
+            "Booking step", "Visits", "Reached", "Abandoned", "Rate", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        sb.append("-".repeat(107)).append('\n');
+        for (StepStats step : STEPS) {
+            if (step != null) {
+                sb.append(String.format("%-14s | %8d | %8d | %9d | %6.1f%% | %10.2f | %10.2f | %10.2f | %10.2f\n",
+                    step.name, step.getCount(), step.getReached(), step.getAbandoned(), step.getAbandonmentRate() * 100,
+                    step.getP50Millis(), step.getP95Millis(), step.getP99Millis(), step.getMaxMillis()));
+            }
+        }
+        sb.append('\n');
+        sb.append(String.format("%-14s | %8s | %12s | %10s | %10s | %10s | %10s | %10s\n",
+            "Operation", "Count", "Bytes", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        sb.append("-".repeat(107)).append('\n');
+        for (OperationStats op : OPERATIONS) {
+            sb.append(String.format("%-14s | %8d | %12d | %10.2f | %10.2f | %10.2f | %10.2f | %10.2f\n",
+                op.name, op.getCount(), op.getBytes(), op.getMeanMillis(),
+                op.getP50Millis(), op.getP95Millis(), op.getP99Millis(), op.getMaxMillis()));
+        }
+        return sb.toString();
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // --- STATS HOLDERS ---
+    static class OperationStats implements OperationStatsMXBean {
+        final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong bytes = new AtomicLong();
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        // Records one call that started at 'startNanos' (from System.nanoTime) and moved 'byteCount' bytes.
+        void record(long startNanos, long byteCount) {
+            latency.record(System.nanoTime() - startNanos);
+            if (byteCount > 0) {
+                bytes.addAndGet(byteCount);
+            }
+        }
+
+        @Override
+        public long getCount() {
+            return latency.count();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return millis(latency.mean());
+        }
+
+        @Override
+        public double getP50Millis() {
+            return millis(latency.percentile(50));
+        }
+
+        @Override
+        public double getP95Millis() {
+            return millis(latency.percentile(95));
+        }
+
+        @Override
+        public double getP99Millis() {
+            return millis(latency.percentile(99));
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return millis(latency.max());
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            bytes.set(0);
+        }
+    }
+
+    static final class StepStats extends OperationStats implements StepStatsMXBean {
+        private final AtomicLong reached = new AtomicLong();
+        private final AtomicLong abandoned = new AtomicLong();
+
+        StepStats(String name) {
+            super(name);
+        }
+
+        void reached() {
+            reached.incrementAndGet();
+        }
+
+        void abandoned() {
+            abandoned.incrementAndGet();
+        }
+
+        @Override
+        public long getReached() {
+            return reached.get();
+        }
+
+        @Override
+        public long getAbandoned() {
+            return abandoned.get();
+        }
+
+        @Override
+        public double getAbandonmentRate() {
+            long n = reached.get();
+            return n == 0 ? 0 : (double) abandoned.get() / n;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            reached.set(0);
+            abandoned.set(0);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * JMX view of one timed operation (a booking step or a storage operation).
+ * Times are in milliseconds.
+ */
+public interface OperationStatsMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    long getBytes();
+
+    void reset();
+}
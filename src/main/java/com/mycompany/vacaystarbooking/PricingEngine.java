@@ -0,0 +1,92 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * Exact pricing in integer pence.
+ * Rates from ACCOMMODATION_DATA are converted once to pence and basis points, and
+ * every stay of 1-365 days is priced up front into a quote table, so a quote is a
+ * single array lookup with no allocation. A quote is packed into one long:
+ * total pence in the high 32 bits, discount pence in the low 32 bits.
+ *
+ * Rounding matches what the booking summary has always shown: the discount and the
+ * VAT-inclusive total are each rounded half-up to the nearest penny.
+ * The table prices every night at the base daily rate, which is what every stay costs
+ * while no pricing rules are set, so DynamicPricing quotes straight from it then. With
+ * rules, DynamicPricing prices the nights of a dated stay and hands the sum to
+ * quoteStay for the discount, card fee and VAT.
+ */
+final class PricingEngine {
+
+    static final int MAX_TABLE_DAYS = 365;
+    static final int LONG_STAY_DAYS = 14;
+    private static final long BASIS_POINTS = 10_000;
+
+    private static final long VAT_BP = Math.round(VacayStarBooking.VAT_RATE * BASIS_POINTS);
+    private static final long[] DAILY_RATE_PENCE;
+    private static final long[] CARD_FEE_PENCE;
+    private static final long[] DISCOUNT_BP;
+    private static final long[][] QUOTES; // [accommodation][days]
+
+    static {
+        int count = VacayStarBooking.ACCOMMODATION_DATA.length;
+        DAILY_RATE_PENCE = new long[count];
+        CARD_FEE_PENCE = new long[count];
+        DISCOUNT_BP = new long[count];
+        QUOTES = new long[count][MAX_TABLE_DAYS + 1];
+        for (int acc = 0; acc < count; acc++) {
+            double[] row = VacayStarBooking.ACCOMMODATION_DATA[acc];
+            DAILY_RATE_PENCE[acc] = Math.round(row[VacayStarBooking.IDX_DAILY_RATE] * 100);
+            CARD_FEE_PENCE[acc] = Math.round(row[VacayStarBooking.IDX_CARD_FEE] * 100);
+            DISCOUNT_BP[acc] = Math.round(row[VacayStarBooking.IDX_DISCOUNT_RATE] * BASIS_POINTS);
+            for (int days = 1; days <= MAX_TABLE_DAYS; days++) {
+                QUOTES[acc][days] = compute(acc, days);
+            }
+        }
+    }
+
+    private PricingEngine() {
+    }
+
+    // --- QUOTING ---
+    // Returns the packed quote for a stay at the base daily rate (accommodation is 0-based).
+    static long quote(int accIndex, int days) {
+        if (days >= 1 && days <= MAX_TABLE_DAYS) {
+            return QUOTES[accIndex][days];
+        }
+        return compute(accIndex, days);
+    }
+
+    // Packed quote for a stay whose nights are already priced: the long-stay discount,
+    // card fee and VAT are applied to 'stayPence' exactly as they are for the table.
+    static long quoteStay(int accIndex, int days, long stayPence) {
+        long subtotal = stayPence;
+        long discount = 0;
+        if (days >= LONG_STAY_DAYS) {
+            discount = divideHalfUp(subtotal * DISCOUNT_BP[accIndex], BASIS_POINTS);
+            subtotal -= discount;
+        }
+        long withFee = subtotal + CARD_FEE_PENCE[accIndex];
+        long total = divideHalfUp(withFee * (BASIS_POINTS + VAT_BP), BASIS_POINTS);
+        return (total << 32) | discount;
+    }
+
+    static long dailyRatePence(int accIndex) {
+        return DAILY_RATE_PENCE[accIndex];
+    }
+
+    static long totalPence(long quote) {
+        return quote >>> 32;
+    }
+
+    static long discountPence(long quote) {
+        return quote & 0xFFFF_FFFFL;
+    }
+
+    // Prices one stay from scratch: the table builder and stays longer than a year use this.
+    private static long compute(int accIndex, int days) {
+        return quoteStay(accIndex, days, days * DAILY_RATE_PENCE[accIndex]);
+    }
+
+    static long divideHalfUp(long value, long divisor) {
+        return (value + divisor / 2) / divisor;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Set;
+
+/**
+ * One rule of the dynamic pricing engine: a change to the nightly rate of one
+ * accommodation (or all of them), in basis points of the base daily rate.
+ * The changes of every rule that applies to a night are added together, so a
+ * Saturday in August with a +25% season and a +15% weekend rule costs 140% of base.
+ * Calendar rules depend only on the date and are compiled into the rate calendar once;
+ * occupancy rules are applied again to a night whenever a booking on it changes.
+ */
+interface PricingRule {
+
+    int ANY_ACCOMMODATION = -1;
+
+    // Change in basis points (+1500 = 15% dearer, -1000 = 10% cheaper) for the night starting
+    // on 'night', when 'booked' of the type's 'units' units are taken; 0 if the rule does not apply.
+    int basisPoints(int accIndex, LocalDate night, int booked, int units);
+
+    default boolean occupancyBased() {
+        return false;
+    }
+
+    // --- SEASONS ---
+    // Nights from 'from' to 'to' inclusive, every year. A season may run over New Year (from > to).
+    record Season(int accIndex, MonthDay from, MonthDay to, int change) implements PricingRule {
+        @Override
+        public int basisPoints(int acc, LocalDate night, int booked, int units) {
+            if (accIndex != ANY_ACCOMMODATION && accIndex != acc) {
+                return 0;
+            }
+            MonthDay day = MonthDay.from(night);
+            boolean inside = from.isAfter(to)
+                ? !day.isBefore(from) || !day.isAfter(to)
+                : !day.isBefore(from) && !day.isAfter(to);
+            return inside ? change : 0;
+        }
+    }
+
+    // --- DAYS OF THE WEEK ---
+    // Nights starting on one of 'days' (a Friday night is the one checking out on Saturday).
+    record Weekdays(int accIndex, Set<DayOfWeek> days, int change) implements PricingRule {
+        @Override
+        public int basisPoints(int acc, LocalDate night, int booked, int units) {
+            if (accIndex != ANY_ACCOMMODATION && accIndex != acc) {
+                return 0;
+            }
+            return days.contains(night.getDayOfWeek()) ? change : 0;
+        }
+    }
+
+    // --- OCCUPANCY ---
+    // Nights on which between 'minPercent' and 'maxPercent' (inclusive, rounded down)
+    // of the type's units are already booked.
+    record Occupancy(int accIndex, int minPercent, int maxPercent, int change) implements PricingRule {
+        @Override
+        public int basisPoints(int acc, LocalDate night, int booked, int units) {
+            if (accIndex != ANY_ACCOMMODATION && accIndex != acc) {
+                return 0;
+            }
+            int percent = booked * 100 / units;
+            return percent >= minPercent && percent <= maxPercent ? change : 0;
+        }
+
+        @Override
+        public boolean occupancyBased() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Follower side of log-shipping replication
+ * (run with: -Dvacaystar.data=<dir> replica [primary-feed-port] [read-port]).
+ * Keeps its own copy of the booking store in step with a primary's by following the
+ * primary's change feed over local TCP (see ChangeFeedServer). A new follower first
+ * receives a snapshot of every booking, then the changes made after it; a follower that
+ * restarts resumes from the offset it saved in replica.state. Changes are applied through
+ * this process's own BookingWriter, with the primary's ids and units, so the follower's
+ * unit inventory, guest index and pricing stay current too.
+ *
+ * The follower only reads: bookings, guest lookups, the revenue report and statistics,
+ * on its console and for any number of read-only admin sessions on the read port
+ * (e.g. "nc localhost 5052"), so reporting load stays off the booking desk.
+ * Promoting it (console only) stops replication and starts the booking server and
+ * change feed here; other followers then take a fresh snapshot from it.
+ */
+final class Replica {
+
+    static final String STATE_FILE = "replica.state";
+    static final int DEFAULT_READ_PORT = 5052;
+    private static final int APPLY_BATCH = 1000;
+    private static final long RETRY_MILLIS = 2000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final int primaryPort;
+    private final Path stateFile;
+    private volatile boolean stopped;
+    private volatile Socket connection;
+    private volatile String feedId;   // the primary's feed, or null before the first snapshot
+    private volatile long offset;     // next offset of the primary's feed to apply
+    private volatile long applied;    // changes applied since start-up
+    private volatile LocalTime lastApplied;
+    private volatile String problem;  // why replication is not running, if it is not
+    private Thread thread;
+
+    private Replica(int primaryPort, Path stateFile) {
+        this.primaryPort = primaryPort;
+        this.stateFile = stateFile;
+    }
+
+    // --- ENTRY POINT ---
+    static void run(String[] args) {
+        if (System.getProperty(VacayStarBooking.DATA_PROPERTY) == null) {
+            System.out.println("A follower keeps its own copy of the bookings, so give it its own directory:");
+            System.out.println("  -D" + VacayStarBooking.DATA_PROPERTY + "=<dir> replica [primary-feed-port] [read-port]");
+            return;
+        }
+        int primaryPort;
+        int readPort;
+        try {
+            primaryPort = args.length > 1 ? Integer.parseInt(args[1]) : ChangeFeedServer.DEFAULT_PORT;
+            readPort = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_READ_PORT;
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: replica [primary-feed-port] [read-port]");
+            return;
+        }
+        Replica replica = new Replica(primaryPort, new File(VacayStarBooking.DATA_ROOT, STATE_FILE).toPath());
+        try {
+            replica.loadState();
+            VacayStarBooking.writer(); // open the store and indexes before the first change arrives
+        } catch (IOException e) {
+            System.out.println("Error opening the follower's store: " + e.getMessage());
+            return;
+        }
+        replica.start();
+        replica.serveReads(readPort);
+        replica.console(new Scanner(System.in));
+    }
+
+    // --- REPLICATION STATE ---
+    // replica.state: "<primary feed id> <next offset>", replaced atomically after each applied group.
+    private void loadState() throws IOException {
+        if (Files.exists(stateFile)) {
+            String[] parts = Files.readString(stateFile).trim().split("\\s+");
+            if (parts.length == 2) {
+                feedId = parts[0];
+                offset = Long.parseLong(parts[1]);
+            }
+        }
+    }
+
+    private void saveState() throws IOException {
+        Path temp = stateFile.resolveSibling(STATE_FILE + ".tmp");
+        Files.writeString(temp, feedId + " " + offset + "\n");
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // --- FOLLOWING THE PRIMARY ---
+    private void start() {
+        thread = new Thread(() -> {
+            while (!stopped) {
+                try {
+                    follow();
+                } catch (IOException | CompletionException | IllegalArgumentException e) {
+                    if (!stopped) {
+                        String message = "Replication paused: " + VacayStarBooking.rootMessage(e) + " (retrying)";
+                        if (!message.equals(problem)) {
+                            System.out.println(message);
+                        }
+                        problem = message;
+                    }
+                }
+                if (!stopped) {
+                    try {
+                        Thread.sleep(RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "replica");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops following (before promotion or exit) once the group being applied is done.
+    private void stop() {
+        stopped = true;
+        Socket socket = connection;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // One connection to the primary: a snapshot if needed, then changes until it drops.
+    private void follow() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), primaryPort);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            connection = socket;
+            if (stopped) {
+                return;
+            }
+            out.write("REPLICATE " + (feedId == null ? "-" : feedId) + " " + offset + " " + APPLY_BATCH + "\n");
+            out.flush();
+            String[] header = readLine(in).split(" ");
+            if (header[0].equals("SNAPSHOT") && header.length == 4) {
+                loadSnapshot(in, header[1], Long.parseLong(header[2]), Integer.parseInt(header[3]));
+            } else if (!header[0].equals("FEED") || header.length != 3) {
+                throw new IOException("unexpected reply from the primary: " + String.join(" ", header));
+            }
+            if (problem != null) {
+                System.out.println("Replication resumed from offset " + offset + ".");
+            }
+            problem = null;
+            List<String> group = new ArrayList<>(APPLY_BATCH);
+            while (!stopped) {
+                group.add(readLine(in));
+                while (group.size() < APPLY_BATCH && in.ready()) {
+                    group.add(readLine(in));
+                }
+                apply(group);
+                group.clear();
+            }
+        } finally {
+            connection = null;
+        }
+    }
+
+    private static String readLine(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new EOFException("the primary closed the connection");
+        }
+        return line;
+    }
+
+    // Replaces everything stored here with the primary's snapshot.
+    private void loadSnapshot(BufferedReader in, String primaryFeed, long at, int count) throws IOException {
+        System.out.println("Loading a snapshot of " + count + " bookings from the primary...");
+        BookingWriter writer = VacayStarBooking.writer();
+        writer.clear().join();
+        List<Booking> chunk = new ArrayList<>(BookingWriter.MAX_BATCH);
+        for (int i = 0; i < count; i++) {
+            Booking b = ChangeFeed.parseBooking(readLine(in), 0);
+            if (b != null) {
+                chunk.add(b);
+            }
+            if (chunk.size() == BookingWriter.MAX_BATCH || i == count - 1) {
+                writer.restore(chunk, true).join();
+                chunk = new ArrayList<>(BookingWriter.MAX_BATCH);
+            }
+        }
+        feedId = primaryFeed;
+        offset = at;
+        saveState();
+        System.out.println("Snapshot loaded; following the primary from offset " + at + ".");
+    }
+
+    // Applies a group of feed lines in order: runs of ADDED and MOVED lines go to the
+    // writer as one batch each. The state is saved once every change in the group is
+    // stored, and around a CLEARED, so a restart never replays one across a clear; any
+    // other replay is harmless (see BookingWriter.restore).
+    private void apply(List<String> lines) throws IOException {
+        BookingWriter writer = VacayStarBooking.writer();
+        List<CompletableFuture<Booking>> pending = new ArrayList<>();
+        List<Booking> adds = new ArrayList<>();
+        List<Booking> moves = new ArrayList<>();
+        for (String line : lines) {
+            long lineOffset = ChangeFeed.offsetOf(line);
+            if (lineOffset < offset) {
+                continue;
+            }
+            int kindStart = line.indexOf(',') + 1;
+            int kindEnd = line.indexOf(',', kindStart);
+            String kind = kindEnd < 0 ? line.substring(kindStart) : line.substring(kindStart, kindEnd);
+            Booking b = kindEnd < 0 ? null : ChangeFeed.parseBooking(line, kindStart);
+            if (b == null && !kind.equals("CLEARED")) {
+                throw new IOException("unreadable change at offset " + lineOffset);
+            }
+            if (!kind.equals("ADDED") && !adds.isEmpty()) {
+                pending.add(writer.restore(adds, false));
+                adds = new ArrayList<>();
+            }
+            if (!kind.equals("MOVED") && !moves.isEmpty()) {
+                pending.add(writer.move(moves));
+                moves = new ArrayList<>();
+            }
+            switch (kind) {
+                case "ADDED" -> adds.add(b);
+                case "MOVED" -> moves.add(b);
+                case "DELETED" -> pending.add(writer.delete(b));
+                case "CLEARED" -> {
+                    finish(pending, lineOffset);
+                    writer.clear().join();
+                    offset = lineOffset + 1;
+                    saveState();
+                }
+                default -> throw new IOException("unknown change at offset " + lineOffset + ": " + kind);
+            }
+            applied++;
+            offset = lineOffset + 1;
+        }
+        if (!adds.isEmpty()) {
+            pending.add(writer.restore(adds, false));
+        }
+        if (!moves.isEmpty()) {
+            pending.add(writer.move(moves));
+        }
+        finish(pending, offset);
+        lastApplied = LocalTime.now();
+    }
+
+    // Waits for the queued changes, then records that everything before 'next' is stored.
+    private void finish(List<CompletableFuture<Booking>> pending, long next) throws IOException {
+        for (CompletableFuture<Booking> change : pending) {
+            change.join();
+        }
+        pending.clear();
+        offset = next;
+        saveState();
+    }
+
+    // --- READ-ONLY SESSIONS ---
+    private void serveReads(int port) {
+        Thread accept = new Thread(() -> {
+            try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+                System.out.println("Read-only admin sessions on localhost:" + port);
+                while (true) {
+                    Socket client = server.accept();
+                    Thread.ofVirtual().name("reader-" + client.getPort()).start(() -> serveReader(client));
+                }
+            } catch (IOException e) {
+                System.out.println("Read-only sessions unavailable: " + e.getMessage());
+            }
+        }, "replica-reads");
+        accept.setDaemon(true);
+        accept.start();
+    }
+
+    private void serveReader(Socket client) {
+        try (client;
+             Scanner input = new Scanner(client.getInputStream(), StandardCharsets.UTF_8);
+             PrintStream output = new PrintStream(client.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            VacayStarBooking.setSessionOutput(output);
+            readMenu(input, false);
+        } catch (NoSuchElementException | IllegalStateException | IOException e) {
+            // reader hung up
+        } finally {
+            VacayStarBooking.setSessionOutput(null);
+        }
+    }
+
+    private void console(Scanner input) {
+        try {
+            readMenu(input, true);
+        } catch (NoSuchElementException e) {
+            // console input closed
+        }
+        if (!stopped) {
+            stop();
+        }
+    }
+
+    // --- FOLLOWER MENU ---
+    // Returns when the user exits, or (console only) after promotion ends.
+    private void readMenu(Scanner input, boolean console) {
+        PrintStream out = VacayStarBooking.out();
+        while (true) {
+            out.println("\n==============================================================");
+            out.println("------------------ Follower Menu (read-only) -----------------");
+            out.println("==============================================================");
+            out.println("1. View All Bookings");
+            out.println("--------------------------------------------------------------");
+            out.println("2. Find a Guest's Bookings");
+            out.println("--------------------------------------------------------------");
+            out.println("3. Revenue and Occupancy Report");
+            out.println("--------------------------------------------------------------");
+            out.println("4. Performance Statistics");
+            out.println("--------------------------------------------------------------");
+            out.println("5. Replication Status");
+            out.println("--------------------------------------------------------------");
+            if (console) {
+                out.println("6. Promote to Primary");
+                out.println("--------------------------------------------------------------");
+            }
+            out.println((console ? "7" : "6") + ". Exit");
+            out.println("--------------------------------------------------------------");
+            out.print("Choose an option: ");
+            out.println("\n==============================================================");
+            int option = VacayStarBooking.getIntInput(input);
+            if (!console && option == 6) {
+                option = 7;
+            }
+            switch (option) {
+                case 1 -> VacayStarBooking.viewBookings(input);
+                case 2 -> VacayStarBooking.findGuestBookings(input);
+                case 3 -> VacayStarBooking.showReport(input);
+                case 4 -> VacayStarBooking.showStatistics(input);
+                case 5 -> out.print(status());
+                case 6 -> {
+                    if (promote(input)) {
+                        return;
+                    }
+                }
+                case 7 -> {
+                    return;
+                }
+                default -> out.println("Invalid option. Try again.");
+            }
+        }
+    }
+
+    private String status() {
+        StringBuilder sb = new StringBuilder("\n");
+        sb.append(stopped ? "Promoted: no longer following a primary.\n"
+            : problem != null ? problem + "\n" : "Following the primary on localhost:" + primaryPort + "\n");
+        sb.append("Primary feed: ").append(feedId == null ? "(no snapshot yet)" : feedId).append('\n');
+        sb.append("Applied up to offset: ").append(offset).append('\n');
+        sb.append("Changes applied since start-up: ").append(applied);
+        if (lastApplied != null) {
+            sb.append(" (last at ").append(lastApplied.format(TIME_FORMAT)).append(')');
+        }
+        sb.append('\n');
+        try {
+            sb.append("Bookings stored here: ").append(VacayStarBooking.store().size()).append('\n');
+        } catch (IOException e) {
+            sb.append("Bookings stored here: unknown (").append(e.getMessage()).append(")\n");
+        }
+        return sb.toString();
+    }
+
+    // --- PROMOTION ---
+    // Stops following and starts taking bookings here. Only do this once the old primary
+    // is down: two primaries would each take bookings the other never sees.
+    private boolean promote(Scanner input) {
+        PrintStream out = VacayStarBooking.out();
+        out.print("\nStop following the primary and take bookings here? (Y/N): ");
+        if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+            out.println("\nOperation cancelled.");
+            return false;
+        }
+        int bookingPort = askPort(input, "Booking port", BookingServer.DEFAULT_PORT);
+        int feedPort = askPort(input, "Change feed port", ChangeFeedServer.DEFAULT_PORT);
+        stop();
+        try {
+            ChangeFeedServer.start(feedPort, VacayStarBooking.changes(), new File(VacayStarBooking.CHANGES_DIR).toPath());
+        } catch (IOException e) {
+            out.println("Error opening the change feed: " + e.getMessage());
+            return true;
+        }
+        out.println("\nPromoted at offset " + offset + " of the old primary's feed. Followers pointed here");
+        out.println("will take a fresh snapshot, since this store has its own change feed.");
+        BookingServer.run(bookingPort);
+        return true;
+    }
+
+    private static int askPort(Scanner input, String name, int defaultPort) {
+        VacayStarBooking.out().print(name + " (Enter for " + defaultPort + "): ");
+        String answer = input.nextLine().trim();
+        try {
+            return answer.isEmpty() ? defaultPort : Integer.parseInt(answer);
+        } catch (NumberFormatException e) {
+            return defaultPort;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.mycompany.vacaystarbooking;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Short-lived holds on a unit for the dates a guest has just picked, so no other
+ * session can book them while the guest reads the summary and confirms. A hold takes
+ * a unit the way a booking would (see UnitInventory.hold) and lasts for the TTL:
+ * confirming turns it into the booking on the writer thread, going back or cancelling
+ * releases it, and otherwise it expires.
+ *
+ * Expiry runs on a hashed timing wheel: a ring of WHEEL_SLOTS buckets, one per tick,
+ * each a doubly linked list of the holds that fall due when the hand next reaches it
+ * (with a count of full turns still to wait, for holds due further out than one turn).
+ * Placing and releasing a hold are O(1), and a tick only walks the one bucket under
+ * the hand, so thousands of open holds cost nothing until they fall due.
+ */
+final class ReservationHolds {
+
+    static final long TICK_MILLIS = 1000;
+    static final int WHEEL_SLOTS = 512; // a power of two, so a slot is a mask away
+
+    // One unit held for [inDay, outDay) until the wheel expires it.
+    static final class Hold {
+        private final ReservationHolds owner;
+        final int accIndex;
+        final int unit;
+        final long inDay;
+        final long outDay;
+        private int rounds;  // full turns of the wheel still to wait
+        private int slot = -1; // -1 once claimed, released or expired
+        private Hold prev;
+        private Hold next;
+
+        private Hold(ReservationHolds owner, int accIndex, int unit, long inDay, long outDay) {
+            this.owner = owner;
+            this.accIndex = accIndex;
+            this.unit = unit;
+            this.inDay = inDay;
+            this.outDay = outDay;
+        }
+
+        // Takes the hold off the wheel for the booking it becomes. False if it has already
+        // expired or been released, in which case the unit is no longer kept for it.
+        boolean claim() {
+            return owner.unschedule(this);
+        }
+    }
+
+    private final UnitInventory inventory;
+    private final long ttlTicks;
+    private final Hold[] wheel = new Hold[WHEEL_SLOTS];
+    private long hand;     // ticks since the wheel started
+    private int active;
+    private long released; // holds let go without becoming a booking
+
+    ReservationHolds(UnitInventory inventory, Duration ttl) {
+        this(inventory, ttl, true);
+    }
+
+    // Without the ticker thread the hand only moves when tick() is called (for tests).
+    ReservationHolds(UnitInventory inventory, Duration ttl, boolean ticking) {
+        this.inventory = inventory;
+        this.ttlTicks = Math.max(1, (ttl.toMillis() + TICK_MILLIS - 1) / TICK_MILLIS);
+        if (ticking) {
+            Thread ticker = new Thread(this::run, "hold-expiry");
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+    }
+
+    // --- HOLDS ---
+    // Holds a unit of the type for every night of [inDay, outDay), or returns null if
+    // every unit is booked or held for some of them.
+    Hold place(int accIndex, long inDay, long outDay, long today) {
+        int unit = inventory.hold(accIndex, inDay, outDay, today);
+        if (unit < 0) {
+            return null;
+        }
+        Hold hold = new Hold(this, accIndex, unit, inDay, outDay);
+        synchronized (this) {
+            long due = hand + ttlTicks;
+            hold.rounds = (int) ((ttlTicks - 1) / WHEEL_SLOTS);
+            link(hold, (int) (due & (WHEEL_SLOTS - 1)));
+            active++;
+        }
+        return hold;
+    }
+
+    // Gives the unit back. Does nothing for a hold that is null, claimed or already gone.
+    void release(Hold hold) {
+        if (hold != null && unschedule(hold)) {
+            inventory.release(hold.accIndex, hold.unit, hold.inDay, hold.outDay);
+            synchronized (this) {
+                released++;
+            }
+        }
+    }
+
+    synchronized boolean isActive(Hold hold) {
+        return hold != null && hold.slot >= 0;
+    }
+
+    synchronized int active() {
+        return active;
+    }
+
+    // How many holds have ended without a booking so far (released or expired).
+    synchronized long released() {
+        return released;
+    }
+
+    long ttlMinutes() {
+        return ttlTicks * TICK_MILLIS / 60_000;
+    }
+
+    // --- TIMING WHEEL ---
+    private synchronized boolean unschedule(Hold hold) {
+        if (hold.slot < 0) {
+            return false;
+        }
+        unlink(hold);
+        active--;
+        return true;
+    }
+
+    private void link(Hold hold, int slot) {
+        hold.slot = slot;
+        hold.prev = null;
+        hold.next = wheel[slot];
+        if (hold.next != null) {
+            hold.next.prev = hold;
+        }
+        wheel[slot] = hold;
+    }
+
+    private void unlink(Hold hold) {
+        if (hold.prev != null) {
+            hold.prev.next = hold.next;
+        } else {
+            wheel[hold.slot] = hold.next;
+        }
+        if (hold.next != null) {
+            hold.next.prev = hold.prev;
+        }
+        hold.prev = null;
+        hold.next = null;
+        hold.slot = -1;
+    }
+
+    // Moves the hand on one slot. Holds in it that have no turns left are expired; the
+    // units go back to the inventory once the wheel lock is let go.
+    void tick() {
+        List<Hold> expired = new ArrayList<>();
+        synchronized (this) {
+            hand++;
+            Hold hold = wheel[(int) (hand & (WHEEL_SLOTS - 1))];
+            while (hold != null) {
+                Hold next = hold.next;
+                if (hold.rounds > 0) {
+                    hold.rounds--;
+                } else {
+                    unlink(hold);
+                    active--;
+                    released++;
+                    expired.add(hold);
+                }
+                hold = next;
+            }
+        }
+        for (Hold hold : expired) {
+            inventory.release(hold.accIndex, hold.unit, hold.inDay, hold.outDay);
+        }
+    }
+
+    // Ticks at a steady rate; a late wake-up (e.g. after a long GC) catches up tick by tick.
+    private void run() {
+        long next = System.nanoTime() + TICK_MILLIS * 1_000_000;
+        while (true) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            tick();
+            next += TICK_MILLIS * 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Booking store partitioned by check-in month: one booking log per month
+ * (shards/2027-03.dat and its WAL and checkpoint), plus manifest.csv listing each
+ * shard and its row count. A shard is only opened when something needs its rows,
+ * so paging, date-range views and deletes touch the months they are about and
+ * not the whole history. Archiving a season moves its shards out whole.
+ *
+ * Booking numbers run through the shards in month order (so within a month they
+ * are in booking order). Ids are handed out by the store, not per shard, so they
+ * stay unique and each shard's ids stay in slot order.
+ *
+ * The manifest is marked unclean while the store is open and clean on close; after
+ * a crash the row counts cannot be trusted, so every shard is opened and recounted.
+ */
+final class ShardedBookingStore implements BookingStore {
+
+    static final String MANIFEST = "manifest.csv";
+    static final String SHARD_SUFFIX = ".dat";
+
+    // One month of bookings. 'log' is null until the shard is first used.
+    private static final class Shard {
+        final YearMonth month;
+        int rows;
+        BookingLog log;
+
+        Shard(YearMonth month, int rows) {
+            this.month = month;
+            this.rows = rows;
+        }
+    }
+
+    // A month and its row count, for the admin area.
+    record ShardInfo(YearMonth month, int rows) {
+    }
+
+    private final Path dir;
+    private final Path archiveDir;
+    private final TreeMap<YearMonth, Shard> shards = new TreeMap<>();
+    private long nextId = 1;
+
+    private ShardedBookingStore(Path dir, Path archiveDir) {
+        this.dir = dir;
+        this.archiveDir = archiveDir;
+    }
+
+    // --- OPEN / CLOSE ---
+    static ShardedBookingStore open(Path dir, Path archiveDir) throws IOException {
+        ShardedBookingStore store = new ShardedBookingStore(dir, archiveDir);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(dir);
+        Path cleared = clearedDir();
+        if (Files.exists(cleared)) {
+            // A clear was interrupted after moving the old shards aside: keep its id floor, finish it.
+            nextId = Math.max(nextId, readManifest(cleared.resolve(MANIFEST), new TreeMap<>()));
+            deleteDirectory(cleared);
+        }
+        Path manifest = dir.resolve(MANIFEST);
+        boolean clean = false;
+        if (Files.exists(manifest)) {
+            TreeMap<YearMonth, Shard> listed = new TreeMap<>();
+            long listedNextId = readManifest(manifest, listed);
+            clean = listedNextId > 0;
+            nextId = Math.max(nextId, Math.abs(listedNextId));
+            shards.putAll(listed);
+        }
+        if (!clean) {
+            recount();
+        }
+        writeManifest(false);
+    }
+
+    // Opens every shard file in the directory to rebuild the row counts and id floor.
+    private void recount() throws IOException {
+        shards.clear();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SHARD_SUFFIX)) {
+            for (Path file : files) {
+                YearMonth month = monthOf(file);
+                if (month != null) {
+                    Shard shard = new Shard(month, 0);
+                    shard.log = BookingLog.open(file);
+                    shard.rows = shard.log.size();
+                    nextId = Math.max(nextId, shard.log.nextId());
+                    shards.put(month, shard);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Shard shard : shards.values()) {
+            if (shard.log != null) {
+                shard.log.close();
+                shard.log = null;
+            }
+        }
+        writeManifest(true);
+    }
+
+    // --- SHARD ACCESS ---
+    private BookingLog log(Shard shard) throws IOException {
+        if (shard.log == null) {
+            shard.log = BookingLog.open(shardPath(shard.month));
+            shard.rows = shard.log.size();
+            nextId = Math.max(nextId, shard.log.nextId());
+        }
+        return shard.log;
+    }
+
+    private Shard shardFor(LocalDate inDate, boolean create) throws IOException {
+        YearMonth month = YearMonth.from(inDate);
+        Shard shard = shards.get(month);
+        if (shard == null && create) {
+            shard = new Shard(month, 0);
+            shards.put(month, shard);
+            log(shard);
+            writeManifest(false);
+        }
+        return shard;
+    }
+
+    // Number of bookings in the shards before this month.
+    private int offsetOf(YearMonth month) {
+        int offset = 0;
+        for (Shard shard : shards.headMap(month, false).values()) {
+            offset += shard.rows;
+        }
+        return offset;
+    }
+
+    private Path shardPath(YearMonth month) {
+        return dir.resolve(month + SHARD_SUFFIX);
+    }
+
+    private static YearMonth monthOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return YearMonth.parse(name.substring(0, name.length() - SHARD_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // --- READS ---
+    @Override
+    public synchronized int size() {
+        int total = 0;
+        for (Shard shard : shards.values()) {
+            total += shard.rows;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized Booking get(int n) throws IOException {
+        int remaining = n;
+        for (Shard shard : shards.values()) {
+            if (remaining < shard.rows) {
+                return log(shard).get(remaining);
+            }
+            remaining -= shard.rows;
+        }
+        throw new IndexOutOfBoundsException("No booking number " + (n + 1));
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Booking> action) throws IOException {
+        for (Shard shard : shards.values()) {
+            log(shard).forEach(action);
+        }
+    }
+
+    // Opens only the months in range.
+    @Override
+    public synchronized void forEachCheckIn(LocalDate from, LocalDate to, Consumer<Booking> action) throws IOException {
+        for (Shard shard : shards.subMap(YearMonth.from(from), true, YearMonth.from(to), true).values()) {
+            log(shard).forEach(b -> {
+                if (!b.inDate().isBefore(from) && !b.inDate().isAfter(to)) {
+                    action.accept(b);
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized int indexOf(Booking booking) throws IOException {
+        Shard shard = shardFor(booking.inDate(), false);
+        if (shard == null) {
+            return -1;
+        }
+        int local = log(shard).indexOf(booking.id());
+        return local < 0 ? -1 : offsetOf(shard.month) + local;
+    }
+
+    @Override
+    public synchronized int[] positionsForCheckIn(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return new int[] { 0, 0 };
+        }
+        int start = offsetOf(YearMonth.from(from));
+        int end = start;
+        for (Shard shard : shards.subMap(YearMonth.from(from), true, YearMonth.from(to), true).values()) {
+            end += shard.rows;
+        }
+        return new int[] { start, end };
+    }
+
+    // Scans only the months in range; holding the store keeps writes and archiving out meanwhile.
+    @Override
+    public synchronized <R> List<R> scanRecords(LocalDate from, LocalDate to, RecordScan<R> scan) throws IOException {
+        List<R> results = new ArrayList<>();
+        if (to.isBefore(from)) {
+            return results;
+        }
+        for (Shard shard : shards.subMap(YearMonth.from(from), true, YearMonth.from(to), true).values()) {
+            results.addAll(log(shard).scanRecords(from, to, scan));
+        }
+        return results;
+    }
+
+    synchronized List<ShardInfo> shardInfo() {
+        List<ShardInfo> info = new ArrayList<>(shards.size());
+        for (Shard shard : shards.values()) {
+            info.add(new ShardInfo(shard.month, shard.rows));
+        }
+        return info;
+    }
+
+    // --- WRITES ---
+    // New bookings get the next id; a booking that already has one (replicated from a
+    // primary, or moved from the old single-file log) keeps it.
+    private Booking assignId(Booking booking) {
+        if (booking.id() > 0) {
+            nextId = Math.max(nextId, booking.id() + 1);
+            return booking;
+        }
+        return booking.withId(nextId++);
+    }
+
+    @Override
+    public synchronized long nextId() {
+        return nextId;
+    }
+
+    @Override
+    public synchronized Booking append(Booking booking) throws IOException {
+        Shard shard = shardFor(booking.inDate(), true);
+        Booking stored = log(shard).append(assignId(booking));
+        shard.rows++;
+        return stored;
+    }
+
+    // Splits the batch by month; each shard touched gets one write and one sync.
+    @Override
+    public synchronized List<Booking> appendAll(List<Booking> bookings) throws IOException {
+        Map<Shard, List<Integer>> byShard = new LinkedHashMap<>();
+        List<Booking> withIds = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking b = assignId(bookings.get(i));
+            withIds.add(b);
+            byShard.computeIfAbsent(shardFor(b.inDate(), true), s -> new ArrayList<>()).add(i);
+        }
+        Booking[] stored = new Booking[bookings.size()];
+        for (Map.Entry<Shard, List<Integer>> entry : byShard.entrySet()) {
+            Shard shard = entry.getKey();
+            List<Booking> part = new ArrayList<>(entry.getValue().size());
+            for (int i : entry.getValue()) {
+                part.add(withIds.get(i));
+            }
+            List<Booking> written = log(shard).appendAll(part);
+            shard.rows += written.size();
+            for (int k = 0; k < written.size(); k++) {
+                stored[entry.getValue().get(k)] = written.get(k);
+            }
+        }
+        return List.of(stored);
+    }
+
+    // Each shard touched gets one write and one sync.
+    @Override
+    public synchronized int replaceAll(List<Booking> bookings) throws IOException {
+        Map<Shard, List<Booking>> byShard = new LinkedHashMap<>();
+        for (Booking b : bookings) {
+            Shard shard = shardFor(b.inDate(), false);
+            if (shard != null) {
+                byShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(b);
+            }
+        }
+        int replaced = 0;
+        for (Map.Entry<Shard, List<Booking>> entry : byShard.entrySet()) {
+            replaced += log(entry.getKey()).replaceAll(entry.getValue());
+        }
+        return replaced;
+    }
+
+    @Override
+    public synchronized Booking delete(int n) throws IOException {
+        int remaining = n;
+        for (Shard shard : shards.values()) {
+            if (remaining < shard.rows) {
+                Booking removed = log(shard).delete(remaining);
+                shard.rows--;
+                return removed;
+            }
+            remaining -= shard.rows;
+        }
+        throw new IndexOutOfBoundsException("No booking number " + (n + 1));
+    }
+
+    // Moves the whole shard directory aside in one rename, then deletes it, so a
+    // crash never leaves some months cleared and others not.
+    @Override
+    public synchronized void clear() throws IOException {
+        for (Shard shard : shards.values()) {
+            if (shard.log != null) {
+                shard.log.close();
+                shard.log = null;
+            }
+        }
+        shards.clear();
+        writeManifest(false);
+        Path cleared = clearedDir();
+        Files.move(dir, cleared, StandardCopyOption.ATOMIC_MOVE);
+        Files.createDirectories(dir);
+        writeManifest(false);
+        deleteDirectory(cleared);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        for (Shard shard : shards.values()) {
+            if (shard.log != null) {
+                shard.log.flush();
+            }
+        }
+    }
+
+    // Each month is rewritten and swapped in on its own, so a crash part-way through
+    // leaves some months done and the rest untouched, never a month half done.
+    @Override
+    public synchronized int removeIf(Predicate<Booking> match, Removal removal) throws IOException {
+        int removed = 0;
+        try {
+            for (Shard shard : shards.values()) {
+                int n = log(shard).removeIf(match, removal);
+                shard.rows -= n;
+                removed += n;
+            }
+        } finally {
+            writeManifest(false);
+        }
+        return removed;
+    }
+
+    // --- ARCHIVING ---
+    // Reads the bookings checking in before 'month' (so the caller can update its
+    // indexes), then moves those shards into the archive directory whole.
+    synchronized List<Booking> archiveBefore(YearMonth month) throws IOException {
+        List<Booking> archived = new ArrayList<>();
+        List<Shard> old = new ArrayList<>(shards.headMap(month, false).values());
+        if (old.isEmpty()) {
+            return archived;
+        }
+        Files.createDirectories(archiveDir);
+        for (Shard shard : old) {
+            log(shard).forEach(archived::add);
+            shard.log.close();
+            shard.log = null;
+            Path data = shardPath(shard.month);
+            for (String suffix : new String[] { "", ".wal", ".ckpt" }) {
+                Path file = data.resolveSibling(data.getFileName() + suffix);
+                if (Files.exists(file)) {
+                    Files.move(file, archiveDir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            shards.remove(shard.month);
+            writeManifest(false);
+        }
+        return archived;
+    }
+
+    // --- MAINTENANCE ---
+    @Override
+    public synchronized int compact() throws IOException {
+        int reclaimed = 0;
+        for (Shard shard : shards.values()) {
+            reclaimed += log(shard).compact();
+        }
+        return reclaimed;
+    }
+
+    // Counts only shards that are open; an unopened shard has not changed since it was compacted or closed.
+    @Override
+    public synchronized int garbageCount() {
+        int garbage = 0;
+        for (Shard shard : shards.values()) {
+            if (shard.log != null) {
+                garbage += shard.log.garbageCount();
+            }
+        }
+        return garbage;
+    }
+
+    // --- MANIFEST ---
+    // manifest.csv: "NextId,<n>", "Clean,<true|false>", then "Month,Rows" and one line per shard.
+    private void writeManifest(boolean clean) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("NextId,").append(nextId).append('\n');
+        sb.append("Clean,").append(clean).append('\n');
+        sb.append("Month,Rows\n");
+        for (Shard shard : shards.values()) {
+            sb.append(shard.month).append(',').append(shard.rows).append('\n');
+        }
+        Path manifest = dir.resolve(MANIFEST);
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(StandardCharsets.UTF_8.encode(sb.toString()));
+            out.force(true);
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Fills 'into' with the listed shards and returns the id floor, negated if the
+    // manifest was not written by a clean close (0 if it cannot be read).
+    private static long readManifest(Path manifest, TreeMap<YearMonth, Shard> into) throws IOException {
+        long nextId = 0;
+        boolean clean = false;
+        try (BufferedReader br = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length != 2) {
+                    continue;
+                }
+                try {
+                    switch (parts[0]) {
+                        case "NextId" -> nextId = Long.parseLong(parts[1].trim());
+                        case "Clean" -> clean = Boolean.parseBoolean(parts[1].trim());
+                        case "Month" -> { }
+                        default -> {
+                            YearMonth month = YearMonth.parse(parts[0].trim());
+                            into.put(month, new Shard(month, Integer.parseInt(parts[1].trim())));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    return 0;
+                }
+            }
+        }
+        return clean ? nextId : -nextId;
+    }
+
+    private Path clearedDir() {
+        return dir.resolveSibling(dir.getFileName() + ".cleared");
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.mycompany.vacaystarbooking;
+
+import java.util.Arrays;
+
+/**
+ * Offset index for the booking log: which record slots are live, and which slot
+ * holds "booking number N". A Fenwick tree over the live flags answers both the
+ * N-th lookup and a tombstone update in O(log n), so deleting one booking costs
+ * the same however many bookings are in the file.
+ */
+final class SlotIndex {
+
+    private long[] live = new long[16];   // one bit per slot
+    private int[] tree = new int[1025];   // Fenwick tree, 1-based, over the live bits
+    private int capacity = 1024;          // always a power of two
+    private int slotCount;
+    private int liveCount;
+
+    // Registers the next slot in the file (slots are always appended in order).
+    void append(boolean isLive) {
+        if (slotCount == capacity) {
+            grow();
+        }
+        int slot = slotCount++;
+        if (isLive) {
+            live[slot >>> 6] |= 1L << slot;
+            add(slot + 1, 1);
+            liveCount++;
+        }
+    }
+
+    // Marks a slot as deleted. Returns false if it was not live.
+    boolean kill(int slot) {
+        if (!isLive(slot)) {
+            return false;
+        }
+        live[slot >>> 6] &= ~(1L << slot);
+        add(slot + 1, -1);
+        liveCount--;
+        return true;
+    }
+
+    // Marks an existing slot live again (WAL replay rewriting a record). Returns false if it already was.
+    boolean revive(int slot) {
+        if (slot < 0 || slot >= slotCount || isLive(slot)) {
+            return false;
+        }
+        live[slot >>> 6] |= 1L << slot;
+        add(slot + 1, 1);
+        liveCount++;
+        return true;
+    }
+
+    boolean isLive(int slot) {
+        return slot >= 0 && slot < slotCount && (live[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    // Returns the slot of the n-th live record (0-based).
+    int select(int n) {
+        int pos = 0;
+        int remaining = n + 1;
+        for (int step = capacity; step > 0; step >>>= 1) {
+            int next = pos + step;
+            if (next <= capacity && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos; // 1-based position pos + 1 -> 0-based slot pos
+    }
+
+    // Returns how many live slots come before 'slot' (its booking number if it is live).
+    int rank(int slot) {
+        int count = 0;
+        for (int pos = Math.min(slot, capacity); pos > 0; pos -= pos & -pos) {
+            count += tree[pos];
+        }
+        return count;
+    }
+
+    // Returns the first live slot at or after 'from', or -1.
+    int nextLive(int from) {
+        if (from >= slotCount) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = live[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return slot < slotCount ? slot : -1;
+            }
+            if (++word >= (slotCount + 63) >>> 6) {
+                return -1;
+            }
+            bits = live[word];
+        }
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    int slotCount() {
+        return slotCount;
+    }
+
+    // The live bits of every slot, as saved in a checkpoint.
+    long[] liveBits() {
+        return Arrays.copyOf(live, (slotCount + 63) >>> 6);
+    }
+
+    // Replaces the index with saved live bits, building the tree in O(n).
+    void load(long[] bits, int slots) {
+        capacity = 1024;
+        while (capacity < slots) {
+            capacity <<= 1;
+        }
+        live = Arrays.copyOf(bits, capacity >>> 6);
+        if (slots % 64 != 0) {
+            live[slots >>> 6] &= (1L << slots) - 1; // nothing past the last slot
+        }
+        slotCount = slots;
+        liveCount = 0;
+        for (long word : live) {
+            liveCount += Long.bitCount(word);
+        }
+        rebuildTree();
+    }
+
+    void clear() {
+        Arrays.fill(live, 0L);
+        Arrays.fill(tree, 0);
+        slotCount = 0;
+        liveCount = 0;
+    }
+
+    // --- FENWICK INTERNALS ---
+    private void add(int pos, int delta) {
+        for (; pos <= capacity; pos += pos & -pos) {
+            tree[pos] += delta;
+        }
+    }
+
+    // Doubles the capacity and rebuilds the tree in O(n).
+    private void grow() {
+        capacity <<= 1;
+        live = Arrays.copyOf(live, capacity >>> 6);
+        rebuildTree();
+    }
+
+    private void rebuildTree() {
+        tree = new int[capacity + 1];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((live[slot >>> 6] & (1L << slot)) != 0) {
+                tree[slot + 1]++;
+            }
+        }
+        for (int pos = 1; pos <= capacity; pos++) {
+            int parent = pos + (pos & -pos);
+            if (parent <= capacity) {
+                tree[parent] += tree[pos];
+            }
+        }
+    }
+}
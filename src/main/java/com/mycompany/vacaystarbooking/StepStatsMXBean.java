@@ -0,0 +1,14 @@
+package com.mycompany.vacaystarbooking;
+
+/**
+ * JMX view of one booking step: its timings plus how many bookings reached it
+ * and how many were abandoned there.
+ */
+public interface StepStatsMXBean extends OperationStatsMXBean {
+
+    long getReached();
+
+    long getAbandoned();
+
+    double getAbandonmentRate();
+}
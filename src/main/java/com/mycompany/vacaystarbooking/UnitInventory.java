@@ -0,0 +1,282 @@
+package com.mycompany.vacaystarbooking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The individual units of each accommodation type (its lodges, apartments, cabins,
+ * sheds and caravans) and the stays booked on each. Every unit has its own tree in
+ * the stay index, so "is this unit free" and "what is booked either side of these
+ * dates" cost O(log n) for one unit, n being that unit's stays. Questions about a
+ * whole type (isAvailable, bookedUnits, allocate) ask every unit in turn, so they cost
+ * O(u log n) for a type of u units, and hold the stay index's lock throughout: a
+ * writer waits for the slowest of them.
+ *
+ * New bookings are placed best-fit: of the units free for the whole stay, the one
+ * whose free gap the stay fills most tightly, and never one where it would leave a
+ * one- or two-night gap if another unit avoids that. Re-packing reassigns future
+ * bookings in check-in order, each onto the unit that became free most recently,
+ * which puts as many stays as possible on as few units as possible and leaves the
+ * rest with long free runs.
+ *
+ * Units held for a guest who is still confirming (see ReservationHolds) sit in a
+ * second index of their own: they count as taken for availability and allocation,
+ * but are not bookings, so occupancy, pricing and re-packing never see them.
+ */
+final class UnitInventory {
+
+    // Free gaps this short are hard to sell, so the allocator avoids leaving them.
+    static final int SHORT_GAP_NIGHTS = 2;
+    private static final long SHORT_GAP_PENALTY = 1L << 40;
+    private static final long OPEN_GAP = 1L << 20; // nothing booked on that side
+
+    // A re-pack plan: the bookings whose unit changes (as stored now, and as they will be)
+    // and how many future stays still overlap another because every unit was taken.
+    record Plan(List<Booking> before, List<Booking> after, int overlaps) {
+    }
+
+    private final int[] units;
+    private final int[] firstKey;
+    private final IntervalIndex stays;
+    private final IntervalIndex held;
+
+    UnitInventory(int[] unitsPerType) {
+        units = unitsPerType.clone();
+        firstKey = new int[units.length];
+        int keys = 0;
+        for (int acc = 0; acc < units.length; acc++) {
+            if (units[acc] < 1 || units[acc] > 0xFFFF) {
+                throw new IllegalArgumentException("Each accommodation needs 1 to 65535 units");
+            }
+            firstKey[acc] = keys;
+            keys += units[acc];
+        }
+        stays = new IntervalIndex(keys);
+        held = new IntervalIndex(keys);
+    }
+
+    // --- UNITS ---
+    int units(int accIndex) {
+        return units[accIndex];
+    }
+
+    int totalUnits() {
+        return firstKey[units.length - 1] + units[units.length - 1];
+    }
+
+    int firstKey(int accIndex) {
+        return firstKey[accIndex];
+    }
+
+    // False for a unit number saved when the type had more units than it has now.
+    boolean hasUnit(int accIndex, int unit) {
+        return unit >= 0 && unit < units[accIndex];
+    }
+
+    // Stay index key of a unit; the unit must exist (see hasUnit).
+    int key(int accIndex, int unit) {
+        return firstKey[accIndex] + unit;
+    }
+
+    // --- STAYS ---
+    // A booking on a unit the type no longer has is left out and false returned: folding
+    // it onto another unit would overlap whatever is booked there. Re-packing gives it a
+    // real unit (see plan).
+    boolean add(Booking b) {
+        if (!hasUnit(b.accIndex(), b.unit())) {
+            return false;
+        }
+        stays.add(key(b.accIndex(), b.unit()), b.inDate().toEpochDay(), b.outDate().toEpochDay());
+        return true;
+    }
+
+    boolean remove(Booking b) {
+        if (!hasUnit(b.accIndex(), b.unit())) {
+            return false;
+        }
+        return stays.remove(key(b.accIndex(), b.unit()), b.inDate().toEpochDay(), b.outDate().toEpochDay());
+    }
+
+    void clear() {
+        stays.clear();
+    }
+
+    // True if at least one unit of the type is neither booked nor held for any night of [inDay, outDay).
+    boolean isAvailable(int accIndex, long inDay, long outDay) {
+        synchronized (stays) {
+            for (int unit = 0; unit < units[accIndex]; unit++) {
+                if (isFree(firstKey[accIndex] + unit, inDay, outDay)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private boolean isFree(int key, long inDay, long outDay) {
+        return !stays.overlaps(key, inDay, outDay) && !held.overlaps(key, inDay, outDay);
+    }
+
+    // How many units of the type have a stay covering the night starting on 'day'.
+    int bookedUnits(int accIndex, long day) {
+        synchronized (stays) {
+            int booked = 0;
+            for (int unit = 0; unit < units[accIndex]; unit++) {
+                if (stays.overlaps(firstKey[accIndex] + unit, day, day + 1)) {
+                    booked++;
+                }
+            }
+            return booked;
+        }
+    }
+
+    void forEachOverlap(int key, long startDay, long endDay, IntervalIndex.StayConsumer action) {
+        stays.forEachOverlap(key, startDay, endDay, action);
+    }
+
+    // --- HOLDS ---
+    // Holds the best-fit unit for [inDay, outDay) and returns it, or -1 if every unit is
+    // booked or held for some of it. Choosing and holding are one step, so two sessions
+    // can never be given the same unit.
+    int hold(int accIndex, long inDay, long outDay, long today) {
+        synchronized (stays) {
+            int unit = allocate(accIndex, inDay, outDay, today);
+            if (unit >= 0) {
+                held.add(firstKey[accIndex] + unit, inDay, outDay);
+            }
+            return unit;
+        }
+    }
+
+    void release(int accIndex, int unit, long inDay, long outDay) {
+        held.remove(firstKey[accIndex] + unit, inDay, outDay);
+    }
+
+    void forEachHold(int key, long startDay, long endDay, IntervalIndex.StayConsumer action) {
+        held.forEachOverlap(key, startDay, endDay, action);
+    }
+
+    // Gives a new booking its unit and adds it, or returns null if every unit is taken.
+    // 'heldUnit' is the unit the guest's own hold on these dates kept for them (or -1):
+    // it is let go in the same step, so the booking can have it (or a better fit) but
+    // nobody else can slip in between.
+    Booking place(Booking b, long today, int heldUnit) {
+        long in = b.inDate().toEpochDay();
+        long out = b.outDate().toEpochDay();
+        synchronized (stays) {
+            if (heldUnit >= 0) {
+                release(b.accIndex(), heldUnit, in, out);
+            }
+            int unit = allocate(b.accIndex(), in, out, today);
+            if (unit < 0) {
+                return null;
+            }
+            Booking placed = b.withUnit(unit);
+            add(placed);
+            return placed;
+        }
+    }
+
+    // --- BEST-FIT ALLOCATION ---
+    // Unit for a new stay of [inDay, outDay), or -1 if every unit is booked or held for some of it.
+    // 'today' is where gaps before the stay start counting (nights already past cannot be sold).
+    int allocate(int accIndex, long inDay, long outDay, long today) {
+        synchronized (stays) {
+            int best = -1;
+            long bestCost = Long.MAX_VALUE;
+            for (int unit = 0; unit < units[accIndex]; unit++) {
+                int key = firstKey[accIndex] + unit;
+                if (!isFree(key, inDay, outDay)) {
+                    continue;
+                }
+                long before = inDay - Math.max(stays.endBefore(key, inDay), today);
+                long next = stays.startFrom(key, outDay);
+                long after = next == Long.MAX_VALUE ? OPEN_GAP : next - outDay;
+                long cost = gapCost(before) + gapCost(after);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = unit;
+                }
+                if (cost == 0) {
+                    break; // fills a gap exactly on both sides: nothing fits better
+                }
+            }
+            return best;
+        }
+    }
+
+    // An exact fit costs nothing, a short gap costs more than any other, otherwise smaller is better.
+    private static long gapCost(long nights) {
+        if (nights <= 0) {
+            return 0;
+        }
+        if (nights <= SHORT_GAP_NIGHTS) {
+            return SHORT_GAP_PENALTY + nights;
+        }
+        return Math.min(nights, OPEN_GAP);
+    }
+
+    // --- RE-PACKING ---
+    // Plans new units for one type's bookings checking in after 'today'. Stays that have
+    // already started keep their units, which stay blocked until those check out.
+    // Each booking, in check-in order, goes to the unit that became free exactly on its
+    // check-in if there is one, else the most recently freed unit that leaves at least a
+    // three-night gap, else the most recently freed unit at all. A booking that fits no
+    // unit (only possible with overlapping stays from older data) takes the unit that
+    // frees up first and is counted as an overlap. Bookings on units the type no longer
+    // has always move, onto a unit that exists.
+    Plan plan(int accIndex, List<Booking> future, long today) {
+        int count = units[accIndex];
+        // Free units ordered by the day they became free (0 = open since before today),
+        // then by unit number; the low 16 bits hold 0xFFFF - unit so floor() prefers low units.
+        TreeSet<Long> free = new TreeSet<>();
+        synchronized (stays) {
+            for (int unit = 0; unit < count; unit++) {
+                long busyUntil = stays.endBefore(firstKey[accIndex] + unit, today + 1);
+                free.add(freeKey(Math.max(busyUntil - today, 0), unit));
+            }
+        }
+        List<Booking> sorted = new ArrayList<>(future);
+        sorted.sort(Comparator.comparing(Booking::inDate).thenComparing(Booking::outDate).thenComparingLong(Booking::id));
+
+        List<Booking> before = new ArrayList<>();
+        List<Booking> after = new ArrayList<>();
+        int overlaps = 0;
+        for (Booking b : sorted) {
+            long in = b.inDate().toEpochDay() - today;
+            Long chosen = free.floor(freeKey(in, 0));
+            if (chosen == null || freeDay(chosen) != in) {
+                chosen = in >= SHORT_GAP_NIGHTS + 1 ? free.floor(freeKey(in - SHORT_GAP_NIGHTS - 1, 0)) : null;
+                if (chosen == null) {
+                    chosen = free.floor(freeKey(in, 0));
+                }
+                if (chosen == null) {
+                    chosen = free.first();
+                    overlaps++;
+                }
+            }
+            free.remove(chosen);
+            int unit = freeUnit(chosen);
+            free.add(freeKey(Math.max(b.outDate().toEpochDay() - today, freeDay(chosen)), unit));
+            if (b.unit() != unit) {
+                before.add(b);
+                after.add(b.withUnit(unit));
+            }
+        }
+        return new Plan(before, after, overlaps);
+    }
+
+    private static long freeKey(long day, int unit) {
+        return (day << 16) | (0xFFFF - unit);
+    }
+
+    private static long freeDay(long key) {
+        return key >> 16;
+    }
+
+    private static int freeUnit(long key) {
+        return 0xFFFF - (int) (key & 0xFFFF);
+    }
+}
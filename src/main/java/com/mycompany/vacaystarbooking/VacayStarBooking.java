@@ -6,8 +6,19 @@
 package com.mycompany.vacaystarbooking;
 
 import java.io.*; // Import all classes for file operations
+import java.nio.file.Files; // Moves the old single-file log aside after migration
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList; // Collects pending deletes
+import java.util.List; // Lists of search results and listeners
+import java.util.Locale; // Case-insensitive email domains
 import java.util.Scanner; // Import for keyboard input
+import java.util.concurrent.CompletableFuture; // Results handed back by the writer thread.
+import java.util.concurrent.CompletionException; // Wraps errors coming back from the writer thread.
+import java.util.function.Predicate; // Which bookings a bulk delete removes
 import java.util.regex.Pattern; // Format validation
+import java.time.YearMonth; // Monthly storage shards
+import java.time.Duration; // How long picked dates are held
+import java.time.LocalDateTime; // Time-stamps bulk delete archives
 import java.time.LocalDate; // Import LocalDate to work with dates (e.g., check-in/check-out) without time information.
 import java.time.format.DateTimeFormatter; // Import DateTimeFormatter to format LocalDate objects as strings and parse strings as dates.
 import java.time.temporal.ChronoUnit; // Import ChronoUnit for calculations such as finding the number of days between dates.
@@ -23,22 +34,37 @@ public class VacayStarBooking {
     // --- GLOBAL CONSTANTS ---
     // Constants are used for fixed values that don't change, making the code more readable and easier to maintain.
     static final double VAT_RATE = 0.15;
-    static final String CSV_FILE = "bookings.csv";
+    // Booking data lives in bookings-data unless another directory is given with
+    // -Dvacaystar.data=<dir> (e.g. for a soak test); bookings.csv then sits inside it too.
+    static final String DATA_PROPERTY = "vacaystar.data";
+    static final String DATA_ROOT = System.getProperty(DATA_PROPERTY, "bookings-data");
+    static final String CSV_FILE = System.getProperty(DATA_PROPERTY) == null ? "bookings.csv" : DATA_ROOT + "/bookings.csv";
+    // Columnar export for reporting jobs, written next to the CSV export.
+    static final String COLUMNS_FILE = System.getProperty(DATA_PROPERTY) == null ? "bookings.vsc" : DATA_ROOT + "/bookings.vsc";
+    // Booking store: one binary booking log per check-in month. The CSV is only used for import/export.
+    static final String DATA_DIR = DATA_ROOT + "/shards";
+    static final String ARCHIVE_DIR = DATA_ROOT + "/archive";
+    // Change feed for downstream systems: every save, delete and clear, in order, with offsets.
+    static final String CHANGES_DIR = DATA_ROOT + "/changes";
+    // Single-file booking log used before the store was split by month; moved into the shards on first run.
+    static final String DATA_FILE = DATA_ROOT + "/bookings.dat";
     static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MM/yyyy");
+    static final DateTimeFormatter ARCHIVE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
     // --- CENTRALIZED ACCOMMODATION DATA ---
     // All accommodation info (names, prices, fees, discounts) in one place.
     // Using arrays avoids code duplication and simplifies updates.
-    private static final String[] ACCOMMODATION_NAMES = {
+    static final String[] ACCOMMODATION_NAMES = {
         "Imperial Lodge", "Sunshine Apt.", "Standard Cabin", "Rustic Shed", "Classic Caravan"
     };
 
     // Constants for the data array indices. This avoids using "magic numbers".
-    private static final int IDX_DAILY_RATE = 0;
-    private static final int IDX_CARD_FEE = 1;
-    private static final int IDX_DISCOUNT_RATE = 2;
+    static final int IDX_DAILY_RATE = 0;
+    static final int IDX_CARD_FEE = 1;
+    static final int IDX_DISCOUNT_RATE = 2;
 
-    private static final double[][] ACCOMMODATION_DATA = {
+    static final double[][] ACCOMMODATION_DATA = {
         {350.0, 4.00, 0.10}, // Option 1: Imperial Lodge
         {280.0, 3.50, 0.10}, // Option 2: Sunshine Apt.
         {200.0, 3.00, 0.05}, // Option 3: Standard Cabin
@@ -46,6 +72,24 @@ public class VacayStarBooking {
         {90.0,  2.00, 0.05}  // Option 5: Classic Caravan
     };
 
+    // How many units of each accommodation the site has (in the same order as the names).
+    // Each booking is given one unit; a type is fully booked only when all its units are.
+    static final int[] ACCOMMODATION_UNITS = {
+        4,  // Imperial Lodge
+        6,  // Sunshine Apt.
+        10, // Standard Cabin
+        8,  // Rustic Shed
+        12  // Classic Caravan
+    };
+
+    // --- PRICING RULES ---
+    // Seasonal, day-of-week and occupancy changes to the daily rates above, in basis points
+    // (+2500 = 25% dearer), e.g. new PricingRule.Season(PricingRule.ANY_ACCOMMODATION,
+    // MonthDay.of(7, 1), MonthDay.of(8, 31), 2500) for the summer holidays. Changes that apply
+    // to the same night add up. Discounts for 14+ days, card fees and VAT are then applied to
+    // the stay as before. None are set, so every night costs the daily rate above.
+    static final List<PricingRule> PRICING_RULES = List.of();
+
     // --- STATE MACHINE CONSTANTS ---
     // These constants represent each stage of the booking process,
     // making the state machine code more readable.
@@ -57,6 +101,37 @@ public class VacayStarBooking {
     private static final int STATE_CONFIRMING_BOOKING = 6;
     private static final int STATE_DONE = 7;
     private static final int STATE_CANCELLED = 8;    
+    private static final int STATE_FINDING_FREE_DATES = 9;
+
+    // How many free windows the "find me free dates" step offers.
+    private static final int FREE_WINDOW_CHOICES = 5;
+
+    // How long picked dates stay held for a guest before they must confirm.
+    static final Duration HOLD_TTL = Duration.ofMinutes(10);
+
+    // --- UNIT INVENTORY ---
+    // Every booked stay per accommodation unit, built once from the booking store
+    // and kept in sync on save/delete/clear so availability checks never rescan it.
+    private static UnitInventory inventory = null;
+    private static AvailabilityIndex availability = null;
+    private static DynamicPricing pricing = null;
+    private static ReservationHolds holds = null;
+
+    // --- GUEST LOOKUP INDEX ---
+    // Email, phone and name indexes over every booking, for the admin guest search.
+    private static GuestIndex guests = null;
+    // Lifetime totals per guest, for returning guests and the top guests view.
+    private static GuestProfiles profiles = null;
+
+    // --- BOOKING STORE ---
+    // Opened on first use; imports bookings.csv the first time the log is created.
+    private static ShardedBookingStore store = null;
+    private static BookingWriter writer = null;
+    private static ChangeFeed changes = null;
+
+    // --- CONSOLE OUTPUT ---
+    // In server mode every session prints to its own client; otherwise this is System.out.
+    private static final ThreadLocal<PrintStream> sessionOut = new ThreadLocal<>();
     
         // --- BOOKING CONTEXT DATA CLASS ---
     // This inner class stores all data related to one booking in a single object.
@@ -67,9 +142,12 @@ public class VacayStarBooking {
         String email = "";
         String accommodation = "";
         int accOption = -1;
+        int usualAccOption = -1; // a returning guest's most booked accommodation (1-based)
         int days = 0;
         LocalDate inDate = null;
         LocalDate outDate = null;
+        String unit = ""; // set once the booking is stored
+        ReservationHolds.Hold hold = null; // the unit kept for inDate-outDate while the guest confirms
     }
 
 
@@ -77,13 +155,69 @@ public class VacayStarBooking {
     * Main entry point for the program.
     * Displays a menu and routes user to booking or admin functions.
     * Loops until the user chooses to exit.
+    * Headless modes: "ingest <file> [rejects-file]" bulk-imports booking requests,
+    * "server [port] [feed-port]" serves booking sessions to many terminals over TCP
+    * and pushes the change feed to consumers, "changes [offset]" follows the change feed,
+    * "replica [primary-feed-port] [read-port]" runs a read-only follower of a primary,
+    * "report [from mm/yyyy] [to mm/yyyy]" prints the revenue and occupancy report,
+    * "query <query>" runs an ad-hoc booking query (see BookingQuery),
+    * "export-columns [file]" writes the columnar export and "report-columns <file> [from] [to]"
+    * prints the same report from one,
+    * "soak [workers] [seconds] [seed]" runs the load generator against a scratch data directory.
     */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("server")) {
+            try {
+                ChangeFeedServer.start(args.length > 2 ? Integer.parseInt(args[2]) : ChangeFeedServer.DEFAULT_PORT,
+                    changes(), new File(CHANGES_DIR).toPath());
+            } catch (IOException e) {
+                out().println("Error opening the change feed: " + e.getMessage());
+                return;
+            }
+            BookingServer.run(args.length > 1 ? Integer.parseInt(args[1]) : BookingServer.DEFAULT_PORT);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("replica")) {
+            Replica.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("changes")) {
+            try {
+                ChangeFeed.follow(new File(CHANGES_DIR).toPath(), args.length > 1 ? Long.parseLong(args[1]) : 0, System.out);
+            } catch (IOException | InterruptedException e) {
+                out().println("Error reading the change feed: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("report") || args[0].equals("report-columns"))) {
+            BookingAnalytics.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("query")) {
+            BookingQuery.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("export-columns")) {
+            exportColumns(args.length > 1 ? args[1] : COLUMNS_FILE);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("soak")) {
+            LoadGenerator.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("ingest")) {
+            if (args.length < 2) {
+                out().println("Usage: ingest <bookings.jsonl|bookings.csv> [rejects-file]");
+                return;
+            }
+            BulkIngest.run(args[1], args.length > 2 ? args[2] : null);
+            return;
+        }
         Scanner input = new Scanner(System.in);
-        System.out.println("\n==============================================================");
-        System.out.println("||||||||||||||||********** VacayStar *********||||||||||||||||");
-        System.out.println("||||||||||||||| Welcome to the Booking System! |||||||||||||||");
-        System.out.println("==============================================================\n");
+        out().println("\n==============================================================");
+        out().println("||||||||||||||||********** VacayStar *********||||||||||||||||");
+        out().println("||||||||||||||| Welcome to the Booking System! |||||||||||||||");
+        out().println("==============================================================\n");
 
         while (true) {
             showMainMenu();
@@ -99,16 +233,16 @@ public class VacayStarBooking {
                     }
                     break;
                 case 3:
-                    System.out.println("\n==============================================================");
-                    System.out.println("##########  Thank you for using the Booking System!  #########");
-                    System.out.println("                 #########  See you soon!  #########");
-                    System.out.println("==============================================================\n");
+                    out().println("\n==============================================================");
+                    out().println("##########  Thank you for using the Booking System!  #########");
+                    out().println("                 #########  See you soon!  #########");
+                    out().println("==============================================================\n");
                     return;
                 default:
-                    System.out.println("\n==============================================================");
-                    System.out.println("####### Oops! Looks like you chose an invalid option. ########");
-                    System.out.println("        #########  Try again with 1, 2 or 3.  #########");
-                    System.out.println("==============================================================\n");
+                    out().println("\n==============================================================");
+                    out().println("####### Oops! Looks like you chose an invalid option. ########");
+                    out().println("        #########  Try again with 1, 2 or 3.  #########");
+                    out().println("==============================================================\n");
             }
         }
     }
@@ -116,76 +250,99 @@ public class VacayStarBooking {
     // --- MAIN MENU DISPLAY ---
     // Shows the primary options to the user (booking, admin, exit).
     private static void showMainMenu() {
-        System.out.println("==============================================================");
-        System.out.println("------------------------  Main Menu  -------------------------");
-        System.out.println("==============================================================");
-        System.out.println("--------------------  1. Make a Booking  ---------------------");
-        System.out.println("----------------------  2. Admin Area  -----------------------");
-        System.out.println("------------------------- 3. Exit  ---------------------------");
-        System.out.print("Choose an option: ");
-        System.out.println("\n==============================================================\n");
+        out().println("==============================================================");
+        out().println("------------------------  Main Menu  -------------------------");
+        out().println("==============================================================");
+        out().println("--------------------  1. Make a Booking  ---------------------");
+        out().println("----------------------  2. Admin Area  -----------------------");
+        out().println("------------------------- 3. Exit  ---------------------------");
+        out().print("Choose an option: ");
+        out().println("\n==============================================================\n");
     }
     
     // --- ACCOMMODATION MENU DISPLAY ---
     // Shows all available accommodation options with details.
     private static void showAccommodationMenu() {
-        System.out.println("\n=====================================================================================");
-        System.out.println("------------------------------- Select Accommodation --------------------------------");
-        System.out.println("------------------- Please choose an option (or 00 to go back): ---------------------");
-        System.out.println("=====================================================================================");
+        out().println("\n=====================================================================================");
+        out().println("------------------------------- Select Accommodation --------------------------------");
+        out().println("------------------- Please choose an option (or 00 to go back): ---------------------");
+        out().println("=====================================================================================");
               for (int i = 0; i < ACCOMMODATION_NAMES.length; i++) {
             String name = ACCOMMODATION_NAMES[i];
             double dailyRate = ACCOMMODATION_DATA[i][IDX_DAILY_RATE];
             double cardFee = ACCOMMODATION_DATA[i][IDX_CARD_FEE];
             double discountPercentage = ACCOMMODATION_DATA[i][IDX_DISCOUNT_RATE] * 100;
-        System.out.println("-------------------------------------------------------------------------------------");
+        out().println("-------------------------------------------------------------------------------------");
 
             // Using String.format to align the text neatly.
-            System.out.printf("%d. %-18s (GBP %.2f/day, card fee GBP %.2f, %.0f%% discount for 14+ days)\n",
-                i + 1, name, dailyRate, cardFee, discountPercentage);  
+            out().printf("%d. %-18s (GBP %.2f/day base, card fee GBP %.2f, %.0f%% discount for 14+ days, %d units)\n",
+                i + 1, name, dailyRate, cardFee, discountPercentage, ACCOMMODATION_UNITS[i]);  
         }
-        System.out.println("-------------------------------------------------------------------------------------");   
-        System.out.print("Your choice: ");
-        System.out.println("\n=====================================================================================\n");  
+        out().println("-------------------------------------------------------------------------------------");   
+        out().print("Your choice: ");
+        out().println("\n=====================================================================================\n");  
     }
     // --- BOOKING SUMMARY DISPLAY ---
     // Shows a summary of the current booking, including all details and discounts.
-    private static void showBookingSummary(BookingContext context, double discount, double total) {
-        System.out.println("\n==============================================================");
-        System.out.println("---------------------  Booking Summary  ----------------------");
-        System.out.println("==============================================================");
-        System.out.println("Name: " + context.name);
-        System.out.println("Contact: " + context.contact);
-        System.out.println("Email: " + context.email);
-        System.out.println("Accommodation: " + context.accommodation);
-        System.out.println("Check-in: " + context.inDate.format(DATE_FORMAT));
-        System.out.println("Check-out: " + context.outDate.format(DATE_FORMAT));
-        System.out.println("Days: " + context.days);
-        if (discount > 0) {
-            System.out.printf("Great! You earned a discount of: GBP %.2f\n", discount);
+    private static void showBookingSummary(BookingContext context, long stayPence, long discountPence, long totalPence) {
+        out().println("\n==============================================================");
+        out().println("---------------------  Booking Summary  ----------------------");
+        out().println("==============================================================");
+        out().println("Name: " + context.name);
+        out().println("Contact: " + context.contact);
+        out().println("Email: " + context.email);
+        out().println("Accommodation: " + context.accommodation);
+        out().println("Check-in: " + context.inDate.format(DATE_FORMAT));
+        out().println("Check-out: " + context.outDate.format(DATE_FORMAT));
+        out().println("Days: " + context.days);
+        out().println("Nightly rates: GBP " + formatMoney(stayPence) + " (seasonal, weekend and demand pricing)");
+        if (discountPence > 0) {
+            out().println("Great! You earned a discount of: GBP " + formatMoney(discountPence));
         } else {
-             System.out.println("Did you know?");
-             System.out.println("Get special discount when you book 14 days or more!");
+             out().println("Did you know?");
+             out().println("Get special discount when you book 14 days or more!");
         }
-        System.out.printf("Total price: GBP %.2f", total);
+        out().print("Total price: GBP " + formatMoney(totalPence));
     }
     
     // --- ADMIN MENU DISPLAY ---
     // Lists admin operations: view, clear, delete bookings.
     private static void showAdminMenu() {
-        System.out.println("\n==============================================================");
-        System.out.println("------------------------- Admin Menu -------------------------");    
-        System.out.println("=============================================================="); 
-        System.out.println("1. View All Bookings");
-        System.out.println("--------------------------------------------------------------");
-        System.out.println("2. Delete All Bookings");
-        System.out.println("--------------------------------------------------------------");
-        System.out.println("3. Delete a Booking by Number");
-        System.out.println("--------------------------------------------------------------");
-        System.out.println("4. Return to Main Menu");
-        System.out.println("--------------------------------------------------------------");
-        System.out.print("Choose an option: ");
-        System.out.println("\n==============================================================");
+        out().println("\n==============================================================");
+        out().println("------------------------- Admin Menu -------------------------");    
+        out().println("=============================================================="); 
+        out().println("1. View All Bookings");
+        out().println("--------------------------------------------------------------");
+        out().println("2. Delete All Bookings");
+        out().println("--------------------------------------------------------------");
+        out().println("3. Delete a Booking by Number");
+        out().println("--------------------------------------------------------------");
+        out().println("4. Find a Guest's Bookings");
+        out().println("--------------------------------------------------------------");
+        out().println("5. Delete a Guest's Bookings");
+        out().println("--------------------------------------------------------------");
+        out().println("6. Export Bookings (CSV and columnar)");
+        out().println("--------------------------------------------------------------");
+        out().println("7. Compact Booking Storage");
+        out().println("--------------------------------------------------------------");
+        out().println("8. Re-pack Accommodation Units");
+        out().println("--------------------------------------------------------------");
+        out().println("9. Storage and Archiving");
+        out().println("--------------------------------------------------------------");
+        out().println("10. Bulk Delete and Archive");
+        out().println("--------------------------------------------------------------");
+        out().println("11. Top Guests by Spend");
+        out().println("--------------------------------------------------------------");
+        out().println("12. Query Bookings");
+        out().println("--------------------------------------------------------------");
+        out().println("13. Revenue and Occupancy Report");
+        out().println("--------------------------------------------------------------");
+        out().println("14. Performance Statistics");
+        out().println("--------------------------------------------------------------");
+        out().println("15. Return to Main Menu");
+        out().println("--------------------------------------------------------------");
+        out().print("Choose an option: ");
+        out().println("\n==============================================================");
     }
 
     // --- SAFE INTEGER INPUT ---
@@ -197,11 +354,11 @@ public class VacayStarBooking {
             try {
                 value = Integer.parseInt(input.nextLine());
                 break;
-            } catch (Exception e) {
-                System.out.println("\n==============================================================");
-                System.out.println("####### Oops! Looks like you chose an invalid input. ########");
-                System.out.println("############## Try again. Please enter a number #############");
-                System.out.println("==============================================================\n");
+            } catch (NumberFormatException e) {
+                out().println("\n==============================================================");
+                out().println("####### Oops! Looks like you chose an invalid input. ########");
+                out().println("############## Try again. Please enter a number #############");
+                out().println("==============================================================\n");
             }
         }
         return value;
@@ -211,36 +368,67 @@ public class VacayStarBooking {
     * BOOKING STATE MACHINE.
     * Controls the step-by-step user interaction for making a booking.
     * Each state is handled by a separate method for clarity.
+    * Returns true if a booking was saved, false if the guest cancelled.
     */
-    public static void makeBooking(Scanner input) {
+    public static boolean makeBooking(Scanner input) {
         int currentState = STATE_GETTING_NAME;
         BookingContext context = new BookingContext();
 
-        while (currentState != STATE_DONE && currentState != STATE_CANCELLED) {
-            currentState = switch (currentState) {
-                case STATE_GETTING_NAME -> handleGetNameState(input, context);
-                case STATE_GETTING_PHONE -> handleGetPhoneState(input, context);
-                case STATE_GETTING_EMAIL -> handleGetEmailState(input, context);
-                case STATE_SELECTING_ACCOMMODATION -> handleSelectAccommodationState(input, context);
-                case STATE_GETTING_DATES -> handleGetDatesState(input, context);
-                case STATE_CONFIRMING_BOOKING -> handleConfirmBookingState(input, context);
-                default -> STATE_CANCELLED;
-            };
+        int reachedSteps = 0; // bit per state, so each step counts a booking once
+
+        try {
+            while (currentState != STATE_DONE && currentState != STATE_CANCELLED) {
+                Metrics.StepStats step = Metrics.step(currentState);
+                if ((reachedSteps & (1 << currentState)) == 0) {
+                    reachedSteps |= 1 << currentState;
+                    step.reached();
+                }
+                long start = System.nanoTime();
+                int nextState;
+                try {
+                    nextState = switch (currentState) {
+                        case STATE_GETTING_NAME -> handleGetNameState(input, context);
+                        case STATE_GETTING_PHONE -> handleGetPhoneState(input, context);
+                        case STATE_GETTING_EMAIL -> handleGetEmailState(input, context);
+                        case STATE_SELECTING_ACCOMMODATION -> handleSelectAccommodationState(input, context);
+                        case STATE_GETTING_DATES -> handleGetDatesState(input, context);
+                        case STATE_CONFIRMING_BOOKING -> handleConfirmBookingState(input, context);
+                        case STATE_FINDING_FREE_DATES -> handleFindFreeDatesState(input, context);
+                        default -> STATE_CANCELLED;
+                    };
+                } catch (RuntimeException e) {
+                    // Input closed mid-booking (e.g. a server client hung up): counts as abandoned here.
+                    step.record(start, 0);
+                    step.abandoned();
+                    throw e;
+                }
+                step.record(start, 0);
+                if (nextState == STATE_CANCELLED) {
+                    step.abandoned();
+                }
+                currentState = nextState;
+            }
+        } finally {
+            // Cancelled or hung up with dates still held: give the unit back now rather than at expiry.
+            if (context.hold != null) {
+                holds().release(context.hold);
+            }
         }
         
         if (currentState == STATE_CANCELLED) {
-            System.out.println("\n==============================================================");
-            System.out.println("######## Booking cancelled. Returning to main menu. ##########");
-            System.out.println("==============================================================\n");
+            out().println("\n==============================================================");
+            out().println("######## Booking cancelled. Returning to main menu. ##########");
+            out().println("==============================================================\n");
         }
+        return currentState == STATE_DONE;
     }
     
     // --- NAME STATE HANDLER ---
     // Gets and validates the user's name. Returns next state or repeats on error.
     private static int handleGetNameState(Scanner input, BookingContext context) {
-        System.out.println("\n==============================================================");
-        System.out.println("------------- Enter your name (or 0 to cancel): --------------");
-        System.out.print("==============================================================\n");       
+        out().println("\n==============================================================");
+        out().println("------------- Enter your name (or 0 to cancel): --------------");
+        out().print("==============================================================\n");       
         String nameInput = input.nextLine().trim();
         if (nameInput.equals("0")) {
             return STATE_CANCELLED;
@@ -248,10 +436,15 @@ public class VacayStarBooking {
         if (isValidName(nameInput)) {
             context.name = nameInput;
             return STATE_GETTING_PHONE;
+        } else if (!BookingLog.fits(nameInput, BookingLog.NAME_BYTES)) {
+            out().println("\n==============================================================");
+            out().println("###### Name too long. Please use at most " + (BookingLog.NAME_BYTES - 1) + " characters. ######");
+            out().println("==============================================================\n");
+            return STATE_GETTING_NAME;
         } else {
-            System.out.println("\n==============================================================");
-            System.out.println("###### Invalid name. Please use only letters and spaces ######");
-            System.out.println("\n==============================================================\n");
+            out().println("\n==============================================================");
+            out().println("###### Invalid name. Please use only letters and spaces ######");
+            out().println("\n==============================================================\n");
             return STATE_GETTING_NAME;
         }
     }
@@ -260,45 +453,51 @@ public class VacayStarBooking {
     // Gets, formats, and validates a UK phone number.
     // Returns next state or repeats on error.
     private static int handleGetPhoneState(Scanner input, BookingContext context) {
-        System.out.println("\n==============================================================");
-        System.out.println("------- Enter your UK phone number (or 00 to go back): -------");
-        System.out.print("==============================================================\n");       
+        out().println("\n==============================================================");
+        out().println("------- Enter your UK phone number (or 00 to go back): -------");
+        out().print("==============================================================\n");       
         String phoneInput = input.nextLine().trim();
         if (phoneInput.equals("00")) {
             return STATE_GETTING_NAME;
         }
-        String processedPhone = phoneInput.replaceAll("[^0-9]", "");
-        if (processedPhone.length() == 10 && !processedPhone.startsWith("0")) {
-            processedPhone = "0" + processedPhone;
-        }
+        String processedPhone = normalizeUKPhone(phoneInput);
         if (isValidUKPhone(processedPhone)) {
             context.contact = processedPhone;
             return STATE_GETTING_EMAIL;
         }
-            System.out.println("\n==============================================================");
-            System.out.println("################## Invalid UK phone number. ##################");
-            System.out.println("#### Please enter a valid 11digit number starting with 0. ####");
-            System.out.println("==============================================================\n");
+            out().println("\n==============================================================");
+            out().println("################## Invalid UK phone number. ##################");
+            out().println("#### Please enter a valid 11digit number starting with 0. ####");
+            out().println("==============================================================\n");
         return STATE_GETTING_PHONE;
     }
     
     // --- EMAIL STATE HANDLER ---
     // Gets and validates user email. Returns next state or repeats on error.
     private static int handleGetEmailState(Scanner input, BookingContext context) {
-        System.out.println("\n==============================================================");
-        System.out.println("------------ Enter your email (or 00 to go back): ------------");
-        System.out.println("==============================================================\n");       
+        out().println("\n==============================================================");
+        out().println("------------ Enter your email (or 00 to go back): ------------");
+        out().println("==============================================================\n");       
         String emailInput = input.nextLine().trim();
         if (emailInput.equals("00")) {
             return STATE_GETTING_PHONE;
         }
         if (isValidEmail(emailInput)) {
             context.email = emailInput;
+            GuestProfiles.Profile known = profiles().find(emailInput, context.contact);
+            context.usualAccOption = known == null ? -1 : known.favouriteAccIndex() + 1;
+            if (known != null) {
+                out().println("\nWelcome back, " + known.name() + "! This will be stay number " + (known.stays() + 1) + " with us.");
+            }
             return STATE_SELECTING_ACCOMMODATION;
         }
-        System.out.println("\n==============================================================");
-        System.out.println("# Invalid email format. Please enter a valid email address. #");
-        System.out.println("==============================================================\n");
+        out().println("\n==============================================================");
+        if (!BookingLog.fits(emailInput, BookingLog.EMAIL_BYTES)) {
+            out().println("##### Email too long. Please use at most " + (BookingLog.EMAIL_BYTES - 1) + " characters. #####");
+        } else {
+            out().println("# Invalid email format. Please enter a valid email address. #");
+        }
+        out().println("==============================================================\n");
         return STATE_GETTING_EMAIL;
     }
     
@@ -306,10 +505,16 @@ public class VacayStarBooking {
     // Gets user's accommodation choice. Returns next state or repeats on error.
     private static int handleSelectAccommodationState(Scanner input, BookingContext context) {
         showAccommodationMenu();
+        if (context.usualAccOption > 0) {
+            out().println("Press Enter for " + ACCOMMODATION_NAMES[context.usualAccOption - 1] + ", your usual choice.");
+        }
         String accInputStr = input.nextLine().trim();
         if (accInputStr.equals("00")) {
             return STATE_GETTING_EMAIL;
         }
+        if (accInputStr.isEmpty() && context.usualAccOption > 0) {
+            accInputStr = String.valueOf(context.usualAccOption);
+        }
         try {
             int accOption = Integer.parseInt(accInputStr);
             if (accOption >= 1 && accOption <= ACCOMMODATION_NAMES.length) {
@@ -317,15 +522,15 @@ public class VacayStarBooking {
                 context.accommodation = ACCOMMODATION_NAMES[accOption - 1];
                 return STATE_GETTING_DATES;
             }
-            System.out.println("\n=====================================================================================");
-            System.out.println("############### Oops! Looks like you chose an invalid accommodation. ################");
-            System.out.println("######################### Please enter a number from 1 to 5 #########################");
-            System.out.println("=====================================================================================\n");
+            out().println("\n=====================================================================================");
+            out().println("############### Oops! Looks like you chose an invalid accommodation. ################");
+            out().println("######################### Please enter a number from 1 to 5 #########################");
+            out().println("=====================================================================================\n");
             } catch (NumberFormatException e) {
-            System.out.println("\n=====================================================================================");
-            System.out.println("################### Oops! Looks like you chose an invalid input. ####################");
-            System.out.println("######################### Try again. Please enter a number ##########################");
-            System.out.println("=====================================================================================\n");
+            out().println("\n=====================================================================================");
+            out().println("################### Oops! Looks like you chose an invalid input. ####################");
+            out().println("######################### Try again. Please enter a number ##########################");
+            out().println("=====================================================================================\n");
         }
         return STATE_SELECTING_ACCOMMODATION;
     }
@@ -333,22 +538,26 @@ public class VacayStarBooking {
     // --- DATES STATE HANDLER ---
     // Gets and validates check-in and check-out dates, calculates number of days.
     private static int handleGetDatesState(Scanner input, BookingContext context) {
-        System.out.println("\n==============================================================");
-        System.out.println("Enter check-in date (dd/mm/yyyy)/(ddmmyyyy) or 00 to go back: ");
-        System.out.print("==============================================================\n");
+        out().println("\n==============================================================");
+        out().println("Enter check-in date (dd/mm/yyyy)/(ddmmyyyy) or 00 to go back: ");
+        out().println("(or F to find free dates)");
+        out().print("==============================================================\n");
         String inDateStr = input.nextLine().trim();
         if (inDateStr.equals("00")) {
             return STATE_SELECTING_ACCOMMODATION;
         }
+        if (inDateStr.equalsIgnoreCase("F")) {
+            return STATE_FINDING_FREE_DATES;
+        }
         LocalDate inDate = parseDate(inDateStr, true);
         if (inDate == null) {
             return STATE_GETTING_DATES;
         }
         
         while (true) {
-            System.out.println("\n==============================================================");
-            System.out.println("Enter check-out date (dd/mm/yyyy)/(ddmmyyyy) or 00 to go back: ");
-            System.out.print("==============================================================\n");
+            out().println("\n==============================================================");
+            out().println("Enter check-out date (dd/mm/yyyy)/(ddmmyyyy) or 00 to go back: ");
+            out().print("==============================================================\n");
             String outDateStr = input.nextLine().trim();
             if (outDateStr.equals("00")) {
                 return STATE_GETTING_DATES;
@@ -360,56 +569,167 @@ public class VacayStarBooking {
             }
 
             if (outDate.isEqual(inDate)) {
-                System.out.println("\n==============================================================");
-                System.out.println("### Incorrect checkout date, please add at least one day. ####");
-                System.out.println("==============================================================\n");
+                out().println("\n==============================================================");
+                out().println("### Incorrect checkout date, please add at least one day. ####");
+                out().println("==============================================================\n");
                 continue;
             }
 
             if (!outDate.isAfter(inDate)) {
-                System.out.println("\n==============================================================");
-                System.out.println("######## Check-out date must be after check-in date. ########");
-                System.out.println("==============================================================\n");
+                out().println("\n==============================================================");
+                out().println("######## Check-out date must be after check-in date. ########");
+                out().println("==============================================================\n");
                 continue;
             }
             
-            context.inDate = inDate;
-            context.outDate = outDate;
+            if (!holdDates(context, inDate, outDate)) {
+                out().println("\n==============================================================");
+                out().println("###### Sorry, every " + context.accommodation + " is already booked ######");
+                out().println("########## for some of these dates. Try other dates. #########");
+                out().println("==============================================================\n");
+                return STATE_GETTING_DATES;
+            }
             break;
         }
 
-        context.days = (int) ChronoUnit.DAYS.between(context.inDate, context.outDate);
+        return STATE_CONFIRMING_BOOKING;
+    }
+
+    // Holds a unit for the picked dates and keeps them in the context. False (and nothing
+    // held) if every unit is booked, or held by another guest, for some of the nights.
+    private static boolean holdDates(BookingContext context, LocalDate inDate, LocalDate outDate) {
+        holds().release(context.hold);
+        context.hold = holds().place(context.accOption - 1, inDate.toEpochDay(), outDate.toEpochDay(),
+            LocalDate.now().toEpochDay());
+        if (context.hold == null) {
+            return false;
+        }
+        context.inDate = inDate;
+        context.outDate = outDate;
+        context.days = (int) ChronoUnit.DAYS.between(inDate, outDate);
+        out().println("\nThese dates are held for you for " + holds().ttlMinutes() + " minutes while you confirm.");
+        return true;
+    }
+
+    // Going back from the summary: the held unit is free for other guests again.
+    private static void releaseHold(BookingContext context) {
+        holds().release(context.hold);
+        context.hold = null;
+    }
+
+    // --- FIND FREE DATES STATE HANDLER ---
+    // Asks for a stay length (and optional earliest check-in), lists the earliest free
+    // windows for the chosen accommodation and lets the guest pick one.
+    private static int handleFindFreeDatesState(Scanner input, BookingContext context) {
+        out().println("\n==============================================================");
+        out().println("------ How many nights would you like? (or 00 to go back) ----");
+        out().print("==============================================================\n");
+        String nightsStr = input.nextLine().trim();
+        if (nightsStr.equals("00")) {
+            return STATE_GETTING_DATES;
+        }
+        int nights;
+        try {
+            nights = Integer.parseInt(nightsStr);
+        } catch (NumberFormatException e) {
+            nights = 0;
+        }
+        if (nights < 1 || nights > 365) {
+            out().println("\n==============================================================");
+            out().println("######## Please enter a number of nights from 1 to 365. ######");
+            out().println("==============================================================\n");
+            return STATE_FINDING_FREE_DATES;
+        }
+
+        out().println("\n==============================================================");
+        out().println("Earliest check-in date (dd/mm/yyyy), or press Enter for today: ");
+        out().print("==============================================================\n");
+        String fromStr = input.nextLine().trim();
+        LocalDate from = LocalDate.now();
+        if (!fromStr.isEmpty()) {
+            from = parseDate(fromStr, true);
+            if (from == null) {
+                return STATE_FINDING_FREE_DATES;
+            }
+        }
+
+        AvailabilityIndex index = availability();
+        List<AvailabilityIndex.Window> windows =
+            index.findFreeWindows(context.accOption - 1, nights, from, index.horizonEnd(), FREE_WINDOW_CHOICES);
+        if (windows.isEmpty()) {
+            out().println("\n==============================================================");
+            out().println("## Sorry, no free " + nights + "-night stay found for " + context.accommodation + ". ##");
+            out().println("==============================================================\n");
+            return STATE_GETTING_DATES;
+        }
+
+        out().println("\n==============================================================");
+        out().println("-------- Free dates for " + context.accommodation + " (" + nights + " nights) --------");
+        out().println("==============================================================");
+        DynamicPricing rates = pricing();
+        for (int i = 0; i < windows.size(); i++) {
+            AvailabilityIndex.Window w = windows.get(i);
+            long quote = rates.quote(context.accOption - 1, w.checkIn(), w.checkIn().plusDays(nights));
+            out().println((i + 1) + ". " + w.checkIn().format(DATE_FORMAT) + " - "
+                + w.checkIn().plusDays(nights).format(DATE_FORMAT)
+                + "   GBP " + formatMoney(PricingEngine.totalPence(quote))
+                + (w.freeUntil() != null ? "   (free until " + w.freeUntil().format(DATE_FORMAT) + ")" : ""));
+        }
+        out().println("--------------------------------------------------------------");
+        out().print("Choose an option (or 00 to type dates yourself): ");
+        out().println("\n==============================================================");
+        String choiceStr = input.nextLine().trim();
+        int choice;
+        try {
+            choice = Integer.parseInt(choiceStr);
+        } catch (NumberFormatException e) {
+            choice = 0;
+        }
+        if (choice < 1 || choice > windows.size()) {
+            return STATE_GETTING_DATES;
+        }
+        LocalDate checkIn = windows.get(choice - 1).checkIn();
+        if (!holdDates(context, checkIn, checkIn.plusDays(nights))) {
+            out().println("\n==============================================================");
+            out().println("#### Sorry, these dates were just taken by another guest. ####");
+            out().println("==============================================================\n");
+            return STATE_FINDING_FREE_DATES;
+        }
         return STATE_CONFIRMING_BOOKING;
     }
 
     // --- CONFIRM BOOKING STATE HANDLER ---
     //  Shows summary, confirms booking, or allows user to change dates
     private static int handleConfirmBookingState(Scanner input, BookingContext context) {
-        int optionIndex = context.accOption - 1;
-        double dailyRate = ACCOMMODATION_DATA[optionIndex][IDX_DAILY_RATE];
-        double cardFee = ACCOMMODATION_DATA[optionIndex][IDX_CARD_FEE];
-        double discountRate = ACCOMMODATION_DATA[optionIndex][IDX_DISCOUNT_RATE];
-        
-        double[] pricingResult = calculateTotal(context.days, cardFee, dailyRate, discountRate);
-        double total = pricingResult[0];
-        double discount = pricingResult[1];
+        int accIndex = context.accOption - 1;
+        long stay = pricing().stayPence(accIndex, context.inDate.toEpochDay(), context.outDate.toEpochDay());
+        long quote = PricingEngine.quoteStay(accIndex, context.days, stay);
+        long total = PricingEngine.totalPence(quote);
+        long discount = PricingEngine.discountPence(quote);
 
-        showBookingSummary(context, discount, total);
-        System.out.println("\n==============================================================");
-        System.out.print("Confirm booking? (Y = yes, N = change dates): ");
+        showBookingSummary(context, stay, discount, total);
+        out().println("\n==============================================================");
+        out().print("Confirm booking? (Y = yes, N = change dates): ");
         String confirm = input.nextLine().trim().toUpperCase();
 
         if (confirm.equals("Y")) {
-            saveBooking(context, discount, total);
-            System.out.println("\n==============================================================");
-            System.out.println("################ Booking saved successfully! ################"); 
-            System.out.println("==============================================================\n");
+            if (!holds().isActive(context.hold)) {
+                out().println("\nYour hold on these dates has expired; checking they are still free...");
+            }
+            if (!saveBooking(context, discount, total)) {
+                return STATE_GETTING_DATES;
+            }
+            out().println("\n==============================================================");
+            out().println("################ Booking saved successfully! ################"); 
+            out().println("Your accommodation: " + context.unit);
+            out().println("==============================================================\n");
             return STATE_DONE;
         } else if (confirm.equals("N") || confirm.equals("00")) {
+            releaseHold(context);
             return STATE_GETTING_DATES;
         }
         
-        System.out.println("Invalid option.");
+        out().println("Invalid option.");
         return STATE_CONFIRMING_BOOKING;
     }
 
@@ -419,19 +739,31 @@ public class VacayStarBooking {
         if (name == null || name.trim().isEmpty()) {
             return false;
         }
-        return name.matches("^[\\p{L}\\s]+$");
+        return name.matches("^[\\p{L}\\s]+$") && BookingLog.fits(name, BookingLog.NAME_BYTES);
     }
 
     public static boolean isValidUKPhone(String phone) {
         return phone.matches("^0\\d{10}$");
     }
 
+    // Strips everything but digits and restores a missing leading zero (10 digits -> 11).
+    public static String normalizeUKPhone(String phone) {
+        String digits = phone.replaceAll("[^0-9]", "");
+        if (digits.length() == 10 && !digits.startsWith("0")) {
+            digits = "0" + digits;
+        }
+        return digits;
+    }
+
     public static boolean isValidEmail(String email) {
-        return Pattern.matches("^[\\w\\.-]+@[\\w\\.-]+\\.[a-zA-Z]{2,}$", email);
+        return Pattern.matches("^[\\w\\.-]+@[\\w\\.-]+\\.[a-zA-Z]{2,}$", email)
+            && BookingLog.fits(email, BookingLog.EMAIL_BYTES);
     }
     
     // --- PRICE CALCULATION ---
-    // Returns final price and discount applied (if eligible).    
+    // Returns final price and discount applied (if eligible).
+    // Floating-point version kept for callers that want pounds; bookings are priced
+    // in exact pence by PricingEngine.
     public static double[] calculateTotal(int days, double cardFee, double dailyRate, double discountRate) {
         double subtotal = days * dailyRate;
         double discountAmount = 0.0;
@@ -444,40 +776,256 @@ public class VacayStarBooking {
         return new double[] { finalTotal, discountAmount };
     }
 
-    // --- SAVE BOOKING TO CSV FILE ---
-    // Adds booking record (with discount and price) to the CSV file.
-    public static void saveBooking(BookingContext context, double discount, double total) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(CSV_FILE, true))) {
-            File file = new File(CSV_FILE);
-            if (file.length() == 0) {
-                pw.println("Name,Contact,Email,Accommodation,Days,Check-in,Check-out,Discount,Total Price");
+    // --- SAVE BOOKING ---
+    // Queues the booking (with discount and price in pence) on the single writer and
+    // waits for it to be stored and given a unit. Returns false if it was not saved,
+    // e.g. because another session took the last free unit a moment earlier.
+    public static boolean saveBooking(BookingContext context, long discountPence, long totalPence) {
+        Booking booking = new Booking(0, context.name, context.contact, context.email, context.accOption - 1,
+            context.inDate, context.outDate, discountPence, totalPence);
+        long start = System.nanoTime();
+        try {
+            ReservationHolds.Hold hold = context.hold;
+            context.hold = null; // claimed by the save, or already gone
+            Booking stored = writer().add(booking, hold).join();
+            Metrics.SAVE.record(start, stored != null ? BookingLog.RECORD_SIZE : 0);
+            if (stored == null) {
+                out().println("\n==============================================================");
+                out().println("#### Sorry, these dates were just booked by another guest. ###");
+                out().println("################ Please choose other dates. ##################");
+                out().println("==============================================================\n");
+                return false;
+            }
+            context.unit = stored.unitName();
+            return true;
+        } catch (IOException | CompletionException e) {
+            out().println("Error saving booking: " + rootMessage(e));
+            return false;
+        }
+    }
+
+    // Unwraps errors reported back from the writer thread.
+    static String rootMessage(Exception e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+    }
+
+    // --- BOOKING STORE LOADING ---
+    // Opens the monthly booking store the first time it is needed. A brand new store
+    // takes over the old single-file log if there is one, otherwise it is seeded from
+    // bookings.csv so existing bookings carry over. The store is closed on exit so the
+    // next start can trust its manifest and checkpoints.
+    static synchronized ShardedBookingStore store() throws IOException {
+        if (store == null) {
+            File manifest = new File(DATA_DIR, ShardedBookingStore.MANIFEST);
+            boolean isNew = !manifest.exists();
+            store = ShardedBookingStore.open(new File(DATA_DIR).toPath(), new File(ARCHIVE_DIR).toPath());
+            ShardedBookingStore opened = store;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing the booking store: " + e.getMessage());
+                }
+            }, "booking-store-shutdown"));
+            File legacy = new File(DATA_FILE);
+            File csv = new File(CSV_FILE);
+            if (legacy.exists()) {
+                migrateLegacyLog(legacy);
+            } else if (isNew && csv.exists()) {
+                int[] result = BookingCsv.importFrom(csv.toPath(), store);
+                out().println("Imported " + result[0] + " bookings from " + CSV_FILE
+                    + (result[1] > 0 ? " (" + result[1] + " unreadable rows skipped)" : "") + ".");
+            }
+        }
+        return store;
+    }
+
+    // Copies the old single-file log into the monthly shards, then renames it (and its
+    // WAL and checkpoint) out of the way. Until that rename a restart simply starts over.
+    private static void migrateLegacyLog(File legacy) throws IOException {
+        store.clear();
+        int moved;
+        try (BookingLog old = BookingLog.open(legacy.toPath())) {
+            old.forEach(b -> {
+                try {
+                    store.append(b);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            moved = old.size();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        store.flush();
+        for (String suffix : new String[] { ".wal", ".ckpt", "" }) {
+            File file = new File(legacy.getPath() + suffix);
+            if (file.exists()) {
+                Files.move(file.toPath(), new File(file.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
-            pw.printf("%s,%s,%s,%s,%d,%s,%s,%.2f,%.2f\n",
-                context.name, context.contact, context.email, context.accommodation,
-                context.days, context.inDate.format(DATE_FORMAT), context.outDate.format(DATE_FORMAT),
-                discount, total);
+        }
+        out().println("Moved " + moved + " bookings from " + DATA_FILE + " into monthly storage.");
+    }
+
+    // All saves, deletes and clears go through this single writer.
+    static synchronized BookingWriter writer() throws IOException {
+        if (writer == null) {
+            writer = new BookingWriter(store(), inventory(), List.of(availability(), pricing(), guests(), profiles(), changes()));
+        }
+        return writer;
+    }
+
+    // --- CHANGE FEED ---
+    // Opened with the writer, which appends to it after every commit; closed on exit.
+    static synchronized ChangeFeed changes() throws IOException {
+        if (changes == null) {
+            changes = ChangeFeed.open(new File(CHANGES_DIR).toPath());
+            ChangeFeed opened = changes;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing the change feed: " + e.getMessage());
+                }
+            }, "change-feed-shutdown"));
+        }
+        return changes;
+    }
+
+    // --- SESSION OUTPUT ---
+    static PrintStream out() {
+        PrintStream session = sessionOut.get();
+        return session != null ? session : System.out;
+    }
+
+    // Sends everything the current thread prints to the given stream (null = back to System.out).
+    static void setSessionOutput(PrintStream stream) {
+        if (stream == null) {
+            sessionOut.remove();
+        } else {
+            sessionOut.set(stream);
+        }
+    }
+
+    // --- INDEX LOADING ---
+    // The unit inventory, guest index and guest profiles are built together in one pass
+    // over the booking store, the first time any of them is needed (the writer needs all
+    // three). The availability bitmaps and pricing are built from the inventory after that,
+    // so a start reads each stored booking once however many indexes sit on top.
+    private static void loadIndexes() {
+        UnitInventory units = new UnitInventory(ACCOMMODATION_UNITS);
+        GuestIndex index = new GuestIndex();
+        GuestProfiles built = new GuestProfiles();
+        int[] unplaced = new int[1];
+        try {
+            store().forEach(b -> {
+                if (!units.add(b)) {
+                    unplaced[0]++;
+                }
+                index.onAdded(b);
+                built.onAdded(b);
+            });
         } catch (IOException e) {
-            System.out.println("Error saving booking: " + e.getMessage());
+            out().println("Error loading bookings: " + e.getMessage());
+        }
+        if (unplaced[0] > 0) {
+            out().println("Warning: " + unplaced[0] + " bookings are on units that no longer exist and do not block"
+                + " any unit. Re-pack the accommodation units to move the future ones onto real units.");
+        }
+        inventory = units;
+        guests = index;
+        profiles = built;
+    }
+
+    // --- UNIT INVENTORY ---
+    // Every stored booking placed on its unit (see loadIndexes).
+    static synchronized UnitInventory inventory() {
+        if (inventory == null) {
+            loadIndexes();
+        }
+        return inventory;
+    }
+
+    // --- AVAILABILITY BITMAPS ---
+    // Built from the unit inventory the first time they are needed; kept current by the writer.
+    static synchronized AvailabilityIndex availability() {
+        if (availability == null) {
+            availability = new AvailabilityIndex(inventory());
+        }
+        return availability;
+    }
+
+    // --- DYNAMIC PRICING ---
+    // Rate calendar compiled from PRICING_RULES the first time it is needed; the writer
+    // keeps its occupancy prices current.
+    static synchronized DynamicPricing pricing() {
+        if (pricing == null) {
+            pricing = new DynamicPricing(inventory(), PRICING_RULES);
         }
+        return pricing;
+    }
+
+    // --- RESERVATION HOLDS ---
+    // Started with the inventory they hold units in; the wheel ticks on its own daemon thread.
+    static synchronized ReservationHolds holds() {
+        if (holds == null) {
+            holds = new ReservationHolds(inventory(), HOLD_TTL);
+        }
+        return holds;
+    }
+
+    // --- GUEST INDEX ---
+    // Built with the inventory (see loadIndexes); kept current by the writer.
+    static synchronized GuestIndex guests() {
+        if (guests == null) {
+            loadIndexes();
+        }
+        return guests;
+    }
+
+    // --- GUEST PROFILES ---
+    // Per-guest totals, built with the inventory (see loadIndexes); kept current by the writer.
+    static synchronized GuestProfiles profiles() {
+        if (profiles == null) {
+            loadIndexes();
+        }
+        return profiles;
+    }
+
+    // Returns the 0-based position of an accommodation name, or -1 if unknown.
+    static int accommodationIndex(String name) {
+        for (int i = 0; i < ACCOMMODATION_NAMES.length; i++) {
+            if (ACCOMMODATION_NAMES[i].equals(name.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Formats an amount in pence as pounds with two decimals (e.g. 543835 -> "5438.35").
+    static String formatMoney(long pence) {
+        String sign = pence < 0 ? "-" : "";
+        long abs = Math.abs(pence);
+        return sign + (abs / 100) + "." + (abs % 100 < 10 ? "0" : "") + (abs % 100);
     }
     
     // --- ADMIN LOGIN ---
     // Asks for credentials and checks if they match the admin account.
     public static boolean adminLogin(Scanner input) {
-        System.out.println("\n==============================================================");
-        System.out.println("----------------------- Admin Login ------------------------");  
-        System.out.println("==============================================================");
-        System.out.print("Admin username: ");
+        out().println("\n==============================================================");
+        out().println("----------------------- Admin Login ------------------------");  
+        out().println("==============================================================");
+        out().print("Admin username: ");
         String user = input.nextLine();
-        System.out.print("Admin password: ");
+        out().print("Admin password: ");
         String pass = input.nextLine();
         if (user.equals("admin") && pass.equals("1234")) {        
-            System.out.println("\nAdmin login successful!");
-             System.out.println("==============================================================\n");    
+            out().println("\nAdmin login successful!");
+             out().println("==============================================================\n");    
             return true;
         } else {
-            System.out.println("\nIncorrect username or password.");
-             System.out.println("==============================================================\n");    
+            out().println("\nIncorrect username or password.");
+             out().println("==============================================================\n");    
             return false;
         }
     }
@@ -489,150 +1037,574 @@ public class VacayStarBooking {
             showAdminMenu();
             int adminOption = getIntInput(input);
             switch (adminOption) {
-                case 1 -> viewBookings();
+                case 1 -> viewBookings(input);
                 case 2 -> confirmClearBookings(input);
                 case 3 -> confirmDeleteBookingByNumber(input);
-                case 4 -> { return; }
-                default -> System.out.println("Invalid option. Try again.");
+                case 4 -> findGuestBookings(input);
+                case 5 -> confirmDeleteGuestBookings(input);
+                case 6 -> exportBookings();
+                case 7 -> compactBookings();
+                case 8 -> repackUnits(input);
+                case 9 -> manageStorage(input);
+                case 10 -> bulkDelete(input);
+                case 11 -> showTopGuests(input);
+                case 12 -> queryBookings(input);
+                case 13 -> showReport(input);
+                case 14 -> showStatistics(input);
+                case 15 -> { return; }
+                default -> out().println("Invalid option. Try again.");
             }
         }
     }
  
     // --- VIEW BOOKINGS ---
-    // Prints all bookings from the CSV in a formatted table.
-    public static void viewBookings() {
-        System.out.println("\n==============================================================");
-        System.out.println("-----------------------  All Bookings  -----------------------");
-        System.out.println("==============================================================");
-        try (BufferedReader br = new BufferedReader(new FileReader(CSV_FILE))) {
-            String line = br.readLine();
-            if (line == null) {
-                System.out.println("Bookings file not found or is empty. Please make a booking first.");
+    // Opens the paged booking viewer (filters, sorting, jump to page). Returns the viewer,
+    // which remembers the booking behind each number it showed, or null if nothing was shown.
+    public static BookingBrowser viewBookings(Scanner input) {
+        try {
+            BookingStore log = store();
+            if (log.size() == 0) {
+                out().println("\nNo bookings available to display. Please make a booking first.");
+                return null;
+            }
+            BookingBrowser browser = new BookingBrowser(log);
+            browser.browse(input);
+            return browser;
+        } catch (IOException e) {
+            out().println("An error occurred while reading the bookings: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // --- CLEAR ALL BOOKINGS ---
+    // Removes all records from the booking log.
+    public static void clearBookings() {
+        long start = System.nanoTime();
+        try {
+            writer().clear().join();
+            Metrics.CLEAR.record(start, 0); // a clear truncates the logs rather than moving data
+        } catch (IOException | CompletionException e) {
+            out().println("Error clearing bookings: " + rootMessage(e));
+        }
+    }
+
+    // --- COMPACT BOOKING STORAGE ---
+    // Reclaims the space left by deleted bookings (also runs by itself in the background).
+    public static void compactBookings() {
+        try {
+            int reclaimed = store().compact();
+            out().println("\nCompaction finished. " + reclaimed + " deleted records removed from storage.");
+        } catch (IOException e) {
+            out().println("Error compacting bookings: " + e.getMessage());
+        }
+    }
+
+    // --- RE-PACK ACCOMMODATION UNITS ---
+    // Moves future bookings between units of the same type so stays sit back to back,
+    // leaving other units with long free runs. Guests keep their dates and accommodation.
+    public static void repackUnits(Scanner input) {
+        out().print("\nMove future bookings between units to close short gaps? (Y/N): ");
+        if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+            out().println("\nOperation cancelled.");
+            return;
+        }
+        try {
+            UnitInventory.Plan plan = writer().repack().join();
+            out().println("\n" + plan.after().size() + " bookings moved to another unit.");
+            if (plan.overlaps() > 0) {
+                out().println(plan.overlaps() + " bookings still share a unit with another stay: every unit was booked.");
+            }
+        } catch (IOException | CompletionException e) {
+            out().println("\nError re-packing bookings: " + rootMessage(e));
+        }
+    }
+
+    // --- STORAGE AND ARCHIVING ---
+    // Lists the monthly shards and archives whole past months on request.
+    public static void manageStorage(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("--------------------  Storage and Archiving  -----------------");
+        out().println("==============================================================");
+        try {
+            List<ShardedBookingStore.ShardInfo> shards = store().shardInfo();
+            if (shards.isEmpty()) {
+                out().println("No bookings stored yet.");
                 return;
             }
-            System.out.println("-".repeat(165));
-            System.out.printf("%-3s | %-20s | %-13s | %-35s | %-18s | %-5s | %-10s | %-10s | %-11s | %-13s\n", 
-                              "Nr.", "Name", "Contact", "Email", "Accommodation", "Days", "Check-in", "Check-out", "Discount", "Total Price");
-            System.out.println("-".repeat(165));
+            StringBuilder table = new StringBuilder();
+            table.append(String.format("%-10s | %s\n", "Check-in", "Bookings"));
+            table.append("-".repeat(25)).append('\n');
+            int total = 0;
+            for (ShardedBookingStore.ShardInfo shard : shards) {
+                table.append(String.format("%-10s | %d\n", shard.month().format(MONTH_FORMAT), shard.rows()));
+                total += shard.rows();
+            }
+            out().print(table);
+            out().println(total + " bookings in " + shards.size() + " monthly shards.");
 
-            int bookingNumber = 1;
-            boolean hasBookings = false;
-            
-            while ((line = br.readLine()) != null) {
-                hasBookings = true;
-                String[] data = line.split(",");
-                if (data.length == 9) {
-                    System.out.printf("%-3d | %-20s | %-13s | %-35s | %-18s | %-5s | %-10s | %-10s | GBP %-7s | GBP %-9s\n",
-                        bookingNumber, data[0], data[1], data[2], data[3], data[4], data[5], data[6], data[7], data[8]);
-                    System.out.println("-".repeat(165));
+            out().print("\nArchive every booking checking in before which month? (mm/yyyy, or Enter to go back): ");
+            String answer = input.nextLine().trim();
+            if (answer.isEmpty()) {
+                return;
+            }
+            YearMonth cutoff;
+            try {
+                cutoff = YearMonth.parse(answer, MONTH_FORMAT);
+            } catch (java.time.format.DateTimeParseException e) {
+                out().println("\nInvalid month. Please use mm/yyyy.");
+                return;
+            }
+            if (cutoff.isAfter(YearMonth.now())) {
+                out().println("\nOnly past months can be archived.");
+                return;
+            }
+            int count = 0;
+            int months = 0;
+            for (ShardedBookingStore.ShardInfo shard : shards) {
+                if (shard.month().isBefore(cutoff)) {
+                    count += shard.rows();
+                    months++;
                 }
-                bookingNumber++;
             }
-            
-            if (!hasBookings) {
-                System.out.println("No bookings available to display.");
+            if (months == 0) {
+                out().println("\nNothing checks in before " + cutoff.format(MONTH_FORMAT) + ".");
+                return;
             }
+            out().print("\nArchive " + count + " bookings from " + months + " months to " + ARCHIVE_DIR + "? (Y/N): ");
+            if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+                out().println("\nOperation cancelled.");
+                return;
+            }
+            writer().archiveBefore(cutoff).join();
+            out().println("\n" + count + " bookings archived.");
+        } catch (IOException | CompletionException e) {
+            out().println("\nError processing bookings: " + rootMessage(e));
+        }
+    }
+
+    // --- BULK DELETE AND ARCHIVE ---
+    // Deletes every booking matching one rule, after a dry-run count. The matches are
+    // archived to a gzip CSV and the store is rewritten in a single pass (see BookingStore.removeIf).
+    public static void bulkDelete(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("------------------  Bulk Delete and Archive  -----------------");
+        out().println("==============================================================");
+        out().println("Delete every booking that:");
+        out().println("1. Checks out before a date");
+        out().println("2. Is for one accommodation type");
+        out().println("3. Has an email address at a domain");
+        out().println("0. Go back");
+        out().print("Choose an option: ");
+        Predicate<Booking> match;
+        String rule;
+        switch (getIntInput(input)) {
+            case 1 -> {
+                out().print("\nCheck-out before (dd/mm/yyyy): ");
+                LocalDate date = parseDate(input.nextLine().trim(), false);
+                if (date == null) {
+                    return;
+                }
+                match = b -> b.outDate().isBefore(date);
+                rule = "checking out before " + date.format(DATE_FORMAT);
+            }
+            case 2 -> {
+                for (int i = 0; i < ACCOMMODATION_NAMES.length; i++) {
+                    out().println((i + 1) + ". " + ACCOMMODATION_NAMES[i]);
+                }
+                out().print("\nAccommodation: ");
+                int acc = getIntInput(input) - 1;
+                if (acc < 0 || acc >= ACCOMMODATION_NAMES.length) {
+                    out().println("\nInvalid option.");
+                    return;
+                }
+                match = b -> b.accIndex() == acc;
+                rule = "for " + ACCOMMODATION_NAMES[acc];
+            }
+            case 3 -> {
+                out().print("\nEmail domain (e.g. example.com): ");
+                String domain = input.nextLine().trim().toLowerCase(Locale.ROOT);
+                if (domain.startsWith("@")) {
+                    domain = domain.substring(1);
+                }
+                if (domain.isEmpty() || domain.contains("@")) {
+                    out().println("\nInvalid domain.");
+                    return;
+                }
+                String suffix = "@" + domain;
+                match = b -> b.email().toLowerCase(Locale.ROOT).endsWith(suffix);
+                rule = "with an email address at " + domain;
+            }
+            case 0 -> {
+                return;
+            }
+            default -> {
+                out().println("Invalid option.");
+                return;
+            }
+        }
+        try {
+            int[] count = { 0 };
+            store().forEach(b -> {
+                if (match.test(b)) {
+                    count[0]++;
+                }
+            });
+            out().println("\nDry run: " + count[0] + " of " + store().size() + " bookings " + rule + ".");
+            if (count[0] == 0) {
+                return;
+            }
+            File archive = new File(ARCHIVE_DIR, "deleted-" + LocalDateTime.now().format(ARCHIVE_STAMP) + ".csv.gz");
+            out().print("\nArchive them to " + archive.getPath() + " and delete them? (Y/N): ");
+            if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+                out().println("\nOperation cancelled.");
+                return;
+            }
+            long start = System.nanoTime();
+            int deleted = writer().deleteMatching(match, archive.toPath()).join();
+            Metrics.DELETE.record(start, (long) deleted * BookingLog.RECORD_SIZE);
+            out().println("\n" + deleted + (deleted == 1 ? " booking" : " bookings") + " deleted and archived.");
+        } catch (IOException | CompletionException e) {
+            out().println("\nError processing bookings: " + rootMessage(e));
+        }
+    }
 
-        } catch (FileNotFoundException e) {
-            System.out.println("Bookings file not found. Please make a booking to create one.");
+    // --- TOP GUESTS BY SPEND ---
+    // Lists the guests with the highest lifetime spend, from the running totals in GuestProfiles.
+    public static void showTopGuests(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("--------------------  Top Guests by Spend  -------------------");
+        out().println("==============================================================");
+        out().print("How many guests? (Enter for 10): ");
+        String answer = input.nextLine().trim();
+        int count;
+        try {
+            count = answer.isEmpty() ? 10 : Integer.parseInt(answer);
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count < 1) {
+            out().println("\nPlease enter a number above 0.");
+            return;
+        }
+        GuestProfiles guestProfiles = profiles();
+        List<GuestProfiles.Profile> top = guestProfiles.topBySpend(count);
+        if (top.isEmpty()) {
+            out().println("\nNo bookings available to display. Please make a booking first.");
+            return;
+        }
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-4s | %-20s | %-28s | %5s | %6s | %12s | %10s | %s\n",
+            "Rank", "Name", "Email", "Stays", "Nights", "Spend", "Discounts", "Usually"));
+        table.append("-".repeat(120)).append('\n');
+        int rank = 1;
+        for (GuestProfiles.Profile p : top) {
+            table.append(String.format("%-4d | %-20s | %-28s | %5d | %6d | %12s | %10s | %s\n", rank++, p.name(), p.email(),
+                p.stays(), p.nights(), formatMoney(p.spendPence()), formatMoney(p.discountPence()),
+                ACCOMMODATION_NAMES[p.favouriteAccIndex()]));
+        }
+        out().print(table);
+        out().println(guestProfiles.size() + " guests in total.");
+    }
+
+    // --- QUERY BOOKINGS ---
+    // Runs ad-hoc queries (see BookingQuery) until the admin enters a blank line.
+    public static void queryBookings(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("----------------------  Query Bookings  ----------------------");
+        out().println("==============================================================");
+        out().println("[SELECT columns] [WHERE conditions] [GROUP BY fields] [ORDER BY column [DESC]] [LIMIT n]");
+        out().println("Fields: " + BookingQuery.fieldList());
+        out().println("Aggregates: count, sum(field), avg(field), min(field), max(field)");
+        out().println("e.g. select name, days, total where accommodation = Imperial Lodge and days > 14 and month = 08/2027 order by total desc limit 10");
+        while (true) {
+            out().print("\nQuery (or Enter to go back): ");
+            String text = input.nextLine().trim();
+            if (text.isEmpty()) {
+                return;
+            }
+            try {
+                BookingQuery query = BookingQuery.parse(text);
+                long start = System.nanoTime();
+                BookingQuery.Result result = query.run(store());
+                Metrics.QUERY.record(start, result.scanned() * BookingLog.RECORD_SIZE);
+                out().println();
+                out().print(BookingQuery.render(result));
+                out().printf("%d rows (%d of %d bookings matched) in %.1f ms.\n", result.rows().size(),
+                    result.matched(), result.scanned(), (System.nanoTime() - start) / 1e6);
+            } catch (IllegalArgumentException e) {
+                out().println("\nQuery error: " + e.getMessage());
+            } catch (IOException e) {
+                out().println("\nError reading bookings: " + e.getMessage());
+            }
+        }
+    }
+
+    // --- REVENUE AND OCCUPANCY REPORT ---
+    // Asks for an optional range of check-in months, then prints the grouped totals.
+    public static void showReport(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("---------------  Revenue and Occupancy Report  ---------------");
+        out().println("==============================================================");
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            out().print("From check-in month (mm/yyyy, or Enter for all): ");
+            String answer = input.nextLine().trim();
+            if (!answer.isEmpty()) {
+                from = YearMonth.parse(answer, MONTH_FORMAT).atDay(1);
+                out().print("To check-in month (mm/yyyy, or Enter for the latest): ");
+                answer = input.nextLine().trim();
+                if (!answer.isEmpty()) {
+                    to = YearMonth.parse(answer, MONTH_FORMAT).atEndOfMonth();
+                }
+            }
+        } catch (java.time.format.DateTimeParseException e) {
+            out().println("\nInvalid month. Please use mm/yyyy.");
+            return;
+        }
+        try {
+            BookingStore log = store();
+            long start = System.nanoTime();
+            BookingAnalytics.Accumulator result = BookingAnalytics.aggregate(log, from, to);
+            out().println();
+            out().print(BookingAnalytics.render(result));
+            out().printf("%d bookings counted in %.1f ms.\n", result.scanned, (System.nanoTime() - start) / 1e6);
         } catch (IOException e) {
-            System.out.println("An error occurred while reading the bookings file: " + e.getMessage());
+            out().println("\nError reading bookings: " + e.getMessage());
         }
     }
-    
-    // --- CLEAR ALL BOOKINGS ---
-    // Removes all records from the bookings CSV (keeps the header  
-    public static void clearBookings() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(CSV_FILE))) {
-            pw.println("Name,Contact,Email,Accommodation,Days,Check-in,Check-out,Discount,Total Price");
+
+    // --- PERFORMANCE STATISTICS ---
+    // Shows step timings, drop-off and storage timings since start-up (or the last reset).
+    public static void showStatistics(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("-------------------  Performance Statistics  -----------------");
+        out().println("==============================================================");
+        out().print(Metrics.report());
+        out().print("\nType R to reset the statistics, or press Enter to go back: ");
+        if (input.nextLine().trim().equalsIgnoreCase("R")) {
+            Metrics.resetAll();
+            out().println("\nStatistics reset.");
+        }
+    }
+
+    // --- EXPORT BOOKINGS ---
+    // Writes every booking to bookings.csv (for backups and spreadsheets) and to the columnar export.
+    public static void exportBookings() {
+        try {
+            int rows = BookingCsv.exportTo(store(), new File(CSV_FILE).toPath());
+            out().println("\n" + rows + " bookings exported to " + CSV_FILE + ".");
         } catch (IOException e) {
-            System.out.println("Error clearing bookings: " + e.getMessage());
+            out().println("Error exporting bookings: " + e.getMessage());
+        }
+        exportColumns(COLUMNS_FILE);
+    }
+
+    // Writes the columnar export that reporting jobs read (see ColumnarBookings).
+    static void exportColumns(String file) {
+        try {
+            long start = System.nanoTime();
+            long rows = ColumnarBookings.export(store(), new File(file).toPath());
+            out().printf("%d bookings exported to %s (columnar, %.1f KB) in %.1f ms.\n", rows, file,
+                new File(file).length() / 1024.0, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            out().println("Error exporting bookings: " + e.getMessage());
         }
     }
 
     // --- CONFIRM AND DELETE ALL BOOKINGS ---
     // Asks for confirmation before deleting all bookings.
     public static void confirmClearBookings(Scanner input) {
-        System.out.println("\n==============================================================");
-        System.out.println("--------------------  Delete All Bookings  -------------------");
-        System.out.println("==============================================================");
-        System.out.print("Are you sure you want to DELETE ALL bookings? (Y/N): ");
+        out().println("\n==============================================================");
+        out().println("--------------------  Delete All Bookings  -------------------");
+        out().println("==============================================================");
+        out().print("Are you sure you want to DELETE ALL bookings? (Y/N): ");
         String confirmation = input.nextLine().trim().toUpperCase();
         if (confirmation.equals("Y")) {
             clearBookings();
-            System.out.println("\nAll bookings deleted. CSV cleared!");
+            out().println("\nAll bookings deleted!");
         } else {
-            System.out.println("\nOperation cancelled.");
+            out().println("\nOperation cancelled.");
         }
     }
 
     // --- CONFIRM AND DELETE SPECIFIC BOOKING ---
-    // Allows admin to delete a booking by its number.
+    // Allows admin to delete a booking by its number. The number is turned into the
+    // booking it was shown against, so changes made meanwhile by other sessions (which
+    // move the numbers) can never redirect the delete to a different booking.
     public static void confirmDeleteBookingByNumber(Scanner input) {
-        System.out.println("\n==============================================================");
-        System.out.println("-----------------  Delete a Specific Booking  ----------------");
-        System.out.println("==============================================================");
-        viewBookings();
+        out().println("\n==============================================================");
+        out().println("-----------------  Delete a Specific Booking  ----------------");
+        out().println("==============================================================");
+        BookingBrowser browser = viewBookings(input);
+        if (browser == null) return;
         try {
-            File inputFile = new File(CSV_FILE);
-            if (!inputFile.exists() || inputFile.length() == 0) return;
-            java.util.ArrayList<String> lines = new java.util.ArrayList<>();
-            try (BufferedReader br = new BufferedReader(new FileReader(inputFile))) {
-                 String line;
-                 while ((line = br.readLine()) != null) lines.add(line);
-            }
-            if (lines.size() <= 1) return;
-            
-            System.out.print("\nEnter the booking number to delete or 0 to cancel: ");
+            out().print("\nEnter the booking number to delete or 0 to cancel: ");
             int num = getIntInput(input);
             if (num == 0) {
-                System.out.println("\nOperation cancelled.");
+                out().println("\nOperation cancelled.");
                 return;
             }
-            if (num < 1 || num >= lines.size()) {
-                System.out.println("\nInvalid number.");
-                return;
+            Booking chosen = browser.shown(num);
+            if (chosen == null) {
+                // Not on a page that was shown: take the booking at that number now.
+                BookingStore log = store();
+                if (num < 1 || num > log.size()) {
+                    out().println("\nInvalid number.");
+                    return;
+                }
+                chosen = log.get(num - 1);
             }
 
-            System.out.print("\nAre you sure you want to delete booking number " + num + "? (Y/N): ");
+            StringBuilder row = new StringBuilder();
+            BookingBrowser.appendHeader(row);
+            BookingBrowser.appendRow(row, num, chosen);
+            out().print("\n" + row);
+            out().print("Are you sure you want to delete this booking? (Y/N): ");
             String confirmation = input.nextLine().trim().toUpperCase();
             if (confirmation.equals("Y")) {
-                lines.remove(num);
-                try (PrintWriter pw = new PrintWriter(new FileWriter(CSV_FILE))) {
-                    for (String line : lines) pw.println(line);
+                long start = System.nanoTime();
+                if (writer().delete(chosen).join() == null) {
+                    out().println("\nThat booking has already been deleted.");
+                    return;
                 }
-                System.out.println("\nBooking number " + num + " deleted successfully!");
+                Metrics.DELETE.record(start, BookingLog.RECORD_SIZE);
+                out().println("\nBooking number " + num + " deleted successfully!");
             } else {
-                System.out.println("\nOperation cancelled.");
+                out().println("\nOperation cancelled.");
             }
-        } catch (IOException e) {
-            System.out.println("\nError processing file: " + e.getMessage());
+        } catch (IOException | CompletionException e) {
+            out().println("\nError processing bookings: " + rootMessage(e));
         }
     }
     
+    // --- FIND A GUEST'S BOOKINGS ---
+    // Looks a guest up by email, phone number or the start of their name.
+    public static void findGuestBookings(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("------------------  Find a Guest's Bookings  -----------------");
+        out().println("==============================================================");
+        lookupGuest(input);
+    }
+
+    // Asks for a search and prints the matches; returns them (empty if none or on error).
+    private static List<Booking> lookupGuest(Scanner input) {
+        out().print("Enter an email, phone number or the start of a name: ");
+        String query = input.nextLine().trim();
+        if (query.isEmpty()) {
+            out().println("\nOperation cancelled.");
+            return List.of();
+        }
+        List<Booking> matches = guests().find(query);
+        if (matches.isEmpty()) {
+            out().println("\nNo bookings found for \"" + query + "\".");
+            return matches;
+        }
+        try {
+            BookingStore log = store();
+            StringBuilder table = new StringBuilder();
+            BookingBrowser.appendHeader(table);
+            for (Booking b : matches) {
+                BookingBrowser.appendRow(table, log.indexOf(b) + 1, b);
+            }
+            out().print(table);
+            out().println(matches.size() + (matches.size() == 1 ? " booking found." : " bookings found."));
+            return matches;
+        } catch (IOException e) {
+            out().println("An error occurred while reading the bookings: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    // --- DELETE A GUEST'S BOOKINGS ---
+    // Finds a guest's bookings through the guest index and deletes one or all of them.
+    public static void confirmDeleteGuestBookings(Scanner input) {
+        out().println("\n==============================================================");
+        out().println("-----------------  Delete a Guest's Bookings  ----------------");
+        out().println("==============================================================");
+        List<Booking> matches = lookupGuest(input);
+        if (matches.isEmpty()) {
+            return;
+        }
+        List<Booking> selected = matches;
+        if (matches.size() > 1) {
+            out().print("\nEnter the booking number to delete, A for all listed, or 0 to cancel: ");
+            String choice = input.nextLine().trim();
+            if (!choice.equalsIgnoreCase("A")) {
+                selected = selectByNumber(matches, choice);
+                if (selected == null) {
+                    return;
+                }
+            }
+        }
+        out().print("\nAre you sure you want to delete " + (selected.size() == 1 ? "this booking" : "these " + selected.size() + " bookings") + "? (Y/N): ");
+        if (!input.nextLine().trim().equalsIgnoreCase("Y")) {
+            out().println("\nOperation cancelled.");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<Booking>> pending = new ArrayList<>(selected.size());
+            for (Booking b : selected) {
+                pending.add(writer().delete(b));
+            }
+            int deleted = 0;
+            for (CompletableFuture<Booking> result : pending) {
+                if (result.join() != null) {
+                    deleted++;
+                }
+            }
+            Metrics.DELETE.record(start, (long) deleted * BookingLog.RECORD_SIZE);
+            out().println("\n" + deleted + (deleted == 1 ? " booking" : " bookings") + " deleted successfully!");
+        } catch (IOException | CompletionException e) {
+            out().println("\nError processing bookings: " + rootMessage(e));
+        }
+    }
+
+    // Picks the listed booking with the given booking number; null (after a message) if none.
+    private static List<Booking> selectByNumber(List<Booking> matches, String choice) {
+        if (choice.equals("0")) {
+            out().println("\nOperation cancelled.");
+            return null;
+        }
+        try {
+            int num = Integer.parseInt(choice);
+            BookingStore log = store();
+            for (Booking b : matches) {
+                if (log.indexOf(b) + 1 == num) {
+                    return List.of(b);
+                }
+            }
+        } catch (NumberFormatException | IOException e) {
+            // fall through to the message below
+        }
+        out().println("\nInvalid number.");
+        return null;
+    }
+
     // --- PARSE DATE INPUT ---
     // Parses various date formats and ensures valid/future dates as required.
     public static LocalDate parseDate(String dateStr, boolean mustBeFuture) {
-        if (dateStr.matches("\\d{8}")) {
-            dateStr = dateStr.substring(0, 2) + "/" + dateStr.substring(2, 4) + "/" + dateStr.substring(4, 8);
+        LocalDate date = tryParseDate(dateStr);
+        if (date == null) {
+            out().println("\n==============================================================");
+            out().println("################### Invalid date format. #####################");
+            out().println("############# Please use dd/mm/yyyy or ddmmyyyy. #############");
+            out().println("==============================================================\n");
+            return null;
         }
-        dateStr = dateStr.replaceAll("[\\-\\.\\s]", "/");
-        try {
-            LocalDate date = LocalDate.parse(dateStr, DATE_FORMAT);
-            if (mustBeFuture && date.isBefore(LocalDate.now())) {
-                System.out.println("\n==============================================================");
-                System.out.println("#################### Enter a valid date. #####################");
-                System.out.println("################# Date cannot be in the past. ################");
-                System.out.println("==============================================================\n");
-                return null;
-            }
-            return date;
-        } catch (Exception e) {
-            System.out.println("\n==============================================================");
-            System.out.println("################### Invalid date format. #####################");
-            System.out.println("############# Please use dd/mm/yyyy or ddmmyyyy. #############");
-            System.out.println("==============================================================\n");
-                        return null;
+        if (mustBeFuture && date.isBefore(LocalDate.now())) {
+            out().println("\n==============================================================");
+            out().println("#################### Enter a valid date. #####################");
+            out().println("################# Date cannot be in the past. ################");
+            out().println("==============================================================\n");
+            return null;
         }
+        return date;
+    }
+
+    // Same formats as parseDate, but silent: returns null if the text is not a valid date.
+    public static LocalDate tryParseDate(String dateStr) {
+        return DateParser.parse(dateStr);
     }
 }
@@ -0,0 +1,171 @@
+package com.mycompany.vacaystarbooking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log for the booking log's data file.
+ * Every change to the data file (a record written to a slot, a tombstone, a clear)
+ * is first appended here and synced; the data file itself is only synced at
+ * checkpoints. Entries name the slot they touch and carry the full record, so
+ * replaying them is idempotent: applying an entry twice leaves the same bytes.
+ * A torn entry at the end (crash mid-write) fails its checksum and is cut off;
+ * it was never acknowledged, because its sync had not returned.
+ *
+ * <pre>
+ * Entry: 0 LSN (8)  8 op (1)  9 reserved (3)  12 slot (4)  16 record (256, adds only)  then CRC32
+ * </pre>
+ */
+final class WriteAheadLog implements Closeable {
+
+    static final byte OP_ADD = 1;
+    static final byte OP_DELETE = 2;
+    static final byte OP_CLEAR = 3;
+
+    static final int ENTRY_HEADER = 16;
+    static final int ADD_ENTRY_SIZE = ENTRY_HEADER + BookingLog.RECORD_SIZE + 4;
+    static final int SMALL_ENTRY_SIZE = ENTRY_HEADER + 4;
+
+    // What replay calls back into, in log order.
+    interface Redo {
+        void add(int slot, ByteBuffer record, int offset) throws IOException;
+
+        void delete(int slot) throws IOException;
+
+        void clear() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024); // entries not yet written
+    private long size;
+
+    private WriteAheadLog(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static WriteAheadLog open(Path path) throws IOException {
+        return new WriteAheadLog(FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    // --- APPENDING ---
+    // Entries are buffered; write() puts them in the file and sync() also makes them durable.
+    void add(long lsn, int slot, ByteBuffer record) {
+        ensureRoom(ADD_ENTRY_SIZE);
+        int start = pending.position();
+        pending.putLong(lsn).put(OP_ADD).put((byte) 0).putShort((short) 0).putInt(slot);
+        pending.put(record.duplicate().position(0).limit(BookingLog.RECORD_SIZE));
+        seal(start);
+    }
+
+    void delete(long lsn, int slot) {
+        ensureRoom(SMALL_ENTRY_SIZE);
+        int start = pending.position();
+        pending.putLong(lsn).put(OP_DELETE).put((byte) 0).putShort((short) 0).putInt(slot);
+        seal(start);
+    }
+
+    void clear(long lsn) {
+        ensureRoom(SMALL_ENTRY_SIZE);
+        int start = pending.position();
+        pending.putLong(lsn).put(OP_CLEAR).put((byte) 0).putShort((short) 0).putInt(0);
+        seal(start);
+    }
+
+    private void seal(int start) {
+        crc.reset();
+        crc.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) crc.getValue());
+    }
+
+    private void ensureRoom(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    void write() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            size += channel.write(pending, size);
+        }
+        pending.clear();
+        if (pending.capacity() > 1 << 20) {
+            pending = ByteBuffer.allocate(64 * 1024); // don't hang on to a big ingest batch
+        }
+    }
+
+    void sync() throws IOException {
+        write();
+        channel.force(false);
+    }
+
+    long size() {
+        return size + pending.position();
+    }
+
+    // Empties the log once a checkpoint has made everything in it redundant.
+    void reset() throws IOException {
+        pending.clear();
+        channel.truncate(0);
+        channel.force(true);
+        size = 0;
+    }
+
+    // --- REPLAY ---
+    // Applies every intact entry with an LSN above 'afterLsn', cuts off a torn tail,
+    // and returns the highest LSN found (or 'afterLsn' if there is none).
+    long replay(long afterLsn, Redo redo) throws IOException {
+        long fileSize = channel.size();
+        long highest = afterLsn;
+        if (fileSize == 0) {
+            return highest;
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        int pos = 0;
+        while (pos + SMALL_ENTRY_SIZE <= fileSize) {
+            byte op = buf.get(pos + 8);
+            int length = op == OP_ADD ? ADD_ENTRY_SIZE : SMALL_ENTRY_SIZE;
+            if ((op != OP_ADD && op != OP_DELETE && op != OP_CLEAR) || pos + length > fileSize) {
+                break;
+            }
+            crc.reset();
+            crc.update(buf.slice(pos, length - 4));
+            if ((int) crc.getValue() != buf.getInt(pos + length - 4)) {
+                break;
+            }
+            long lsn = buf.getLong(pos);
+            if (lsn > afterLsn) {
+                int slot = buf.getInt(pos + 12);
+                switch (op) {
+                    case OP_ADD -> redo.add(slot, buf, pos + ENTRY_HEADER);
+                    case OP_DELETE -> redo.delete(slot);
+                    default -> redo.clear();
+                }
+            }
+            highest = Math.max(highest, lsn);
+            pos += length;
+        }
+        if (pos < fileSize) {
+            channel.truncate(pos);
+        }
+        size = pos;
+        return highest;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
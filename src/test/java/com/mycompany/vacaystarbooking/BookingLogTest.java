@@ -0,0 +1,169 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Durability of the booking log: what was saved comes back after a clean close and
+ * after a crash (simulated by copying the data file, WAL and checkpoint while the log
+ * is still open), a torn WAL tail costs only the change it belongs to, and compaction
+ * keeps every live booking with its id.
+ */
+class BookingLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static Booking booking(int i) {
+        LocalDate in = LocalDate.of(2030, 1, 1).plusDays(i * 3L);
+        return new Booking(0, "Guest " + (char) ('A' + i % 26), "0712345" + String.format("%04d", i),
+            "guest" + i + "@example.com", i % 5, in, in.plusDays(1 + i % 7), i * 10L, 10_000L + i, i % 3);
+    }
+
+    private static List<Booking> all(BookingLog log) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        log.forEach(bookings::add);
+        return bookings;
+    }
+
+    // Copies the log's files as they are on disk right now, as a crash would leave them.
+    private Path crashImage(Path data) throws IOException {
+        Path copy = Files.createDirectories(dir.resolve("crash")).resolve(data.getFileName());
+        for (String suffix : new String[] { "", ".wal", ".ckpt" }) {
+            Path from = data.resolveSibling(data.getFileName() + suffix);
+            if (Files.exists(from)) {
+                Files.copy(from, copy.resolveSibling(copy.getFileName() + suffix));
+            }
+        }
+        return copy;
+    }
+
+    @Test
+    void bookingsRoundTripThroughCloseAndReopen() throws IOException {
+        Path data = dir.resolve("bookings.dat");
+        List<Booking> stored;
+        try (BookingLog log = BookingLog.open(data)) {
+            stored = new ArrayList<>(log.appendAll(List.of(booking(0), booking(1), booking(2))));
+            stored.add(log.append(booking(3)));
+            log.flush();
+            assertEquals(stored.get(1), log.delete(1));
+            stored.remove(1);
+        }
+        try (BookingLog log = BookingLog.open(data)) {
+            assertEquals(stored, all(log));
+            assertEquals(5, log.nextId());
+            assertEquals(2, log.indexOf(4L));
+        }
+    }
+
+    @Test
+    void syncedChangesSurviveACrash() throws IOException {
+        Path data = dir.resolve("bookings.dat");
+        List<Booking> expected;
+        Path image;
+        try (BookingLog log = BookingLog.open(data)) {
+            expected = new ArrayList<>(log.appendAll(List.of(booking(0), booking(1), booking(2))));
+            log.delete(0);
+            expected.remove(0);
+            expected.addAll(log.appendAll(List.of(booking(3))));
+            image = crashImage(data);
+        }
+        try (BookingLog recovered = BookingLog.open(image)) {
+            assertEquals(expected, all(recovered));
+            assertEquals(5, recovered.nextId());
+        }
+        // Recovery ends with a checkpoint, so opening the image again gives the same log.
+        try (BookingLog reopened = BookingLog.open(image)) {
+            assertEquals(expected, all(reopened));
+        }
+    }
+
+    @Test
+    void tornWalTailLosesOnlyTheLastChange() throws IOException {
+        Path data = dir.resolve("bookings.dat");
+        List<Booking> kept;
+        Path image;
+        try (BookingLog log = BookingLog.open(data)) {
+            kept = log.appendAll(List.of(booking(0), booking(1), booking(2)));
+            log.appendAll(List.of(booking(3)));
+            image = crashImage(data);
+        }
+        Path wal = image.resolveSibling(image.getFileName() + ".wal");
+        try (FileChannel channel = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(wal) - 10); // the last entry was half written
+        }
+        try (BookingLog recovered = BookingLog.open(image)) {
+            assertEquals(kept, all(recovered));
+            Booking next = recovered.append(booking(4));
+            recovered.flush();
+            assertEquals(4, next.id());
+        }
+        try (BookingLog reopened = BookingLog.open(image)) {
+            assertEquals(4, reopened.size());
+        }
+    }
+
+    @Test
+    void compactionKeepsEveryLiveBookingAndItsId() throws IOException {
+        Path data = dir.resolve("bookings.dat");
+        List<Booking> survivors = new ArrayList<>();
+        try (BookingLog log = BookingLog.open(data)) {
+            List<Booking> batch = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                batch.add(booking(i));
+            }
+            survivors.addAll(log.appendAll(batch));
+            for (int n = survivors.size() - 1; n >= 0; n--) {
+                if (n % 3 != 1) {
+                    log.delete(n);
+                    survivors.remove(n);
+                }
+            }
+            assertEquals(27, log.garbageCount());
+            assertEquals(27, log.compact());
+            assertEquals(0, log.garbageCount());
+            assertEquals(survivors, all(log));
+            for (int n = 0; n < survivors.size(); n++) {
+                assertEquals(survivors.get(n), log.get(n));
+            }
+            // Crash straight after compaction: the renamed file and its checkpoint agree.
+            Path image = crashImage(data);
+            try (BookingLog recovered = BookingLog.open(image)) {
+                assertEquals(survivors, all(recovered));
+            }
+            survivors.add(log.append(booking(40)));
+            log.flush();
+        }
+        try (BookingLog log = BookingLog.open(data)) {
+            assertEquals(survivors, all(log));
+            assertEquals(41, survivors.get(survivors.size() - 1).id());
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(), files.filter(p -> p.toString().endsWith(".tmp")).toList());
+        }
+    }
+
+    @Test
+    void valuesTooLongForTheirFieldAreRefusedNotCut() throws IOException {
+        try (BookingLog log = BookingLog.open(dir.resolve("bookings.dat"))) {
+            Booking tooLong = new Booking(0, "A".repeat(BookingLog.NAME_BYTES), "07123456789", "a@example.com",
+                0, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 3), 0, 100);
+            assertThrows(IllegalArgumentException.class, () -> log.appendAll(List.of(booking(0), tooLong)));
+            assertEquals(0, log.size());
+            Booking longest = log.append(new Booking(0, "é".repeat((BookingLog.NAME_BYTES - 1) / 2), "07123456789",
+                "a@example.com", 0, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 3), 0, 100));
+            assertEquals(longest, log.get(0));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The query language: parse errors the admin can act on, and filtered, ordered, limited
+ * and grouped results that match the same question answered with a plain loop over the
+ * bookings, including when check-in bounds narrow the months scanned.
+ */
+class BookingQueryTest {
+
+    @TempDir
+    Path dir;
+
+    private ShardedBookingStore store;
+    private List<Booking> stored;
+
+    private static Booking booking(int i) {
+        LocalDate in = LocalDate.of(2030, 1, 1).plusDays(i * 2L);
+        return new Booking(0, "Guest " + (char) ('A' + i % 26), "0712345" + String.format("%04d", i),
+            "guest" + i + "@example.com", i % 5, in, in.plusDays(1 + i % 13), i % 4 * 500L, 10_000L + i * 37 % 1000 * 100, 0);
+    }
+
+    @BeforeEach
+    void fill() throws IOException {
+        store = ShardedBookingStore.open(dir.resolve("shards"), dir.resolve("archive"));
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            bookings.add(booking(i));
+        }
+        stored = store.appendAll(bookings);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.close();
+    }
+
+    private BookingQuery.Result run(String query) throws IOException {
+        return BookingQuery.parse(query).run(store);
+    }
+
+    private static long days(Booking b) {
+        return b.outDate().toEpochDay() - b.inDate().toEpochDay();
+    }
+
+    @Test
+    void invalidQueriesSayWhatIsWrong() {
+        String[][] cases = {
+            { "select colour", "Unknown field 'colour'" },
+            { "select name where days >", "ends too soon" },
+            { "select name where days is 3", "Expected a comparison after days, not 'is'" },
+            { "select name where days ~ 3", "Unexpected '~'" },
+            { "select name where name = \"open", "Missing closing quote" },
+            { "select name limit 0", "LIMIT needs a whole number above 0" },
+            { "select name, count group by accommodation", "name must be in GROUP BY" },
+            { "select sum(name)", "SUM does not work on name" },
+            { "select name where checkin >= 31/02/2030", "Invalid date '31/02/2030'" },
+            { "select name where accommodation > Rustic Shed", "accommodation can only be compared with = or !=" },
+            { "select name order by total desc extra", "Unexpected 'extra'" },
+        };
+        for (String[] c : cases) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BookingQuery.parse(c[0]), c[0]);
+            assertTrue(e.getMessage().contains(c[1]), c[0] + " gave: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void filterOrderAndLimitMatchALoop() throws IOException {
+        BookingQuery.Result result = run("select id, total where accommodation = Imperial Lodge and days > 3"
+            + " order by total desc limit 7");
+        List<Booking> expected = stored.stream()
+            .filter(b -> b.accIndex() == 0 && days(b) > 3)
+            .sorted(Comparator.comparingLong(Booking::totalPence).reversed().thenComparingLong(Booking::id))
+            .limit(7)
+            .toList();
+        assertEquals(expected.size(), result.rows().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id(), result.rows().get(i)[0]);
+            assertEquals(expected.get(i).totalPence(), result.rows().get(i)[1]);
+        }
+        assertEquals(stored.stream().filter(b -> b.accIndex() == 0 && days(b) > 3).count(), result.matched());
+        assertEquals(stored.size(), result.scanned());
+    }
+
+    @Test
+    void textConditionsIgnoreCase() throws IOException {
+        BookingQuery.Result result = run("select id where name = \"guest c\" or email starts GUEST1");
+        long expected = stored.stream()
+            .filter(b -> b.name().equals("Guest C") || b.email().startsWith("guest1"))
+            .count();
+        assertEquals(expected, result.rows().size());
+    }
+
+    @Test
+    void groupsMatchALoop() throws IOException {
+        BookingQuery.Result result = run("select accommodation, count, sum(total), max(days)"
+            + " where discount > 0 group by accommodation order by accommodation");
+        Map<Integer, long[]> expected = new TreeMap<>();
+        for (Booking b : stored) {
+            if (b.discountPence() > 0) {
+                long[] group = expected.computeIfAbsent(b.accIndex(), acc -> new long[3]);
+                group[0]++;
+                group[1] += b.totalPence();
+                group[2] = Math.max(group[2], days(b));
+            }
+        }
+        assertEquals(expected.size(), result.rows().size());
+        int row = 0;
+        for (Map.Entry<Integer, long[]> group : expected.entrySet()) {
+            Object[] values = result.rows().get(row++);
+            assertEquals((long) group.getKey(), values[0]);
+            assertEquals(group.getValue()[0], values[1]);
+            assertEquals(group.getValue()[1], values[2]);
+            assertEquals(group.getValue()[2], values[3]);
+        }
+    }
+
+    @Test
+    void checkInBoundsOnlyReadTheMonthsThatCanMatch() throws IOException {
+        BookingQuery.Result result = run("select count where checkin >= 01/03/2030 and checkin <= 31/03/2030");
+        long expected = stored.stream().filter(b -> b.inDate().getMonthValue() == 3 && b.inDate().getYear() == 2030).count();
+        assertEquals(expected, result.rows().get(0)[0]);
+        assertEquals(expected, result.scanned()); // only the March shard was read
+
+        // An OR can reach outside the bounds, so every month is read.
+        BookingQuery.Result wider = run("select count where checkin >= 01/03/2030 or days = 1");
+        long either = stored.stream()
+            .filter(b -> !b.inDate().isBefore(LocalDate.of(2030, 3, 1)) || days(b) == 1)
+            .count();
+        assertEquals(either, wider.rows().get(0)[0]);
+        assertEquals(stored.size(), wider.scanned());
+    }
+}
@@ -0,0 +1,67 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Splitting CSV lines in place: trimming, quoted fields with "" escapes, unclosed
+ * quotes, and pounds-and-pence amounts parsed without building a String.
+ */
+class CsvTokenizerTest {
+
+    @Test
+    void splitsAndTrimsFields() {
+        CsvTokenizer tokens = new CsvTokenizer();
+        assertEquals(4, tokens.tokenize(" Ann Smith , 07123456789,,last "));
+        assertEquals("Ann Smith", tokens.field(0));
+        assertEquals("07123456789", tokens.field(1));
+        assertEquals("", tokens.field(2));
+        assertEquals("last", tokens.field(3));
+        assertTrue(tokens.fieldEquals(3, "last"));
+        assertFalse(tokens.fieldEquals(3, "las"));
+
+        assertEquals(1, tokens.tokenize(""));
+        assertEquals(2, tokens.tokenize("a,"));
+        assertEquals("", tokens.field(1));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasAndUnescapeQuotes() {
+        CsvTokenizer tokens = new CsvTokenizer();
+        assertEquals(3, tokens.tokenize("\"Smith, Jr.\", \"say \"\"hi\"\"\" ,x"));
+        assertEquals("Smith, Jr.", tokens.field(0));
+        assertEquals("say \"hi\"", tokens.field(1));
+        assertEquals("x", tokens.field(2));
+        assertEquals(-1, tokens.tokenize("a,\"not closed"));
+    }
+
+    @Test
+    void reusedForLinesWithManyFields() {
+        CsvTokenizer tokens = new CsvTokenizer();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            line.append(i == 0 ? "" : ",").append(i == 70 ? "\"a\"\"b\"" : Integer.toString(i));
+        }
+        assertEquals(100, tokens.tokenize(line));
+        assertEquals("99", tokens.field(99));
+        assertEquals("a\"b", tokens.field(70)); // past the 64 fields tracked for escapes
+        assertEquals(2, tokens.tokenize("short,line"));
+        assertEquals("line", tokens.field(1));
+    }
+
+    @Test
+    void amountsAreParsedToThePennyHalfUp() {
+        CsvTokenizer tokens = new CsvTokenizer();
+        tokens.tokenize("5438.35,525,-0.5,1.005,1.004,0.995, 12.1 ,abc,1.2.3,,.,-,9999999999999999");
+        long[] expected = { 543_835, 52_500, -50, 101, 100, 100, 1_210 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], tokens.pence(i), "field " + i);
+        }
+        for (int i = expected.length; i < tokens.count(); i++) {
+            assertEquals(Long.MIN_VALUE, tokens.pence(i), "field " + i);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Day-first dates in every accepted shape, the ones that are rejected, and agreement
+ * with java.time for every day of a few years.
+ */
+class DateParserTest {
+
+    @Test
+    void acceptsEachSeparatorAndPackedDigits() {
+        LocalDate expected = LocalDate.of(2026, 9, 1);
+        for (String text : new String[] {
+            "01/09/2026", "1/9/2026", "1-9-2026", "01.09.2026", "1 9 2026", "01092026", "  1/09/2026\t"
+        }) {
+            assertEquals(expected, DateParser.parse(text), text);
+        }
+        assertEquals(LocalDate.of(2026, 12, 25), DateParser.parse("x25/12/2026y", 1, 11));
+    }
+
+    @Test
+    void rejectsImpossibleDaysAndOtherShapes() {
+        for (String text : new String[] {
+            "31/04/2026", "29/02/2027", "00/01/2026", "01/13/2026", "32012026", "1/9/26", "2026-09-01",
+            "001/09/2026", "1/9/20266", "1//9/2026", "a1/09/2026", "", "   ", "01/09/2026x"
+        }) {
+            assertNull(DateParser.parse(text), text);
+        }
+        assertEquals(LocalDate.of(2028, 2, 29), DateParser.parse("29/02/2028"));
+        assertNull(DateParser.parse("29/02/2100"));
+        assertEquals(LocalDate.of(2000, 2, 29), DateParser.parse("29/02/2000"));
+    }
+
+    @Test
+    void agreesWithJavaTimeOnEveryDay() {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        for (LocalDate d = LocalDate.of(2023, 1, 1); d.getYear() < 2030; d = d.plusDays(1)) {
+            assertEquals(d, DateParser.parse(d.format(format)));
+            assertEquals(d, DateParser.parse(d.getDayOfMonth() + "-" + d.getMonthValue() + "-" + d.getYear()));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The dynamic pricing engine: no rules means the flat daily rates, calendar rules add
+ * up night by night, and occupancy prices kept up to date booking by booking always
+ * match a calendar rebuilt from scratch.
+ */
+class DynamicPricingTest {
+
+    private static final int[] UNITS = { 4, 6, 10, 8, 12 };
+    private static final int LODGE = 0;
+
+    // The kind of rule set a season might use; none of these is configured by default.
+    static final List<PricingRule> EXAMPLE_RULES = List.of(
+        new PricingRule.Season(PricingRule.ANY_ACCOMMODATION, MonthDay.of(7, 1), MonthDay.of(8, 31), 2500),   // summer holidays
+        new PricingRule.Season(PricingRule.ANY_ACCOMMODATION, MonthDay.of(12, 20), MonthDay.of(1, 2), 3000),  // Christmas and New Year
+        new PricingRule.Season(PricingRule.ANY_ACCOMMODATION, MonthDay.of(1, 3), MonthDay.of(3, 15), -1500),  // winter low season
+        new PricingRule.Season(PricingRule.ANY_ACCOMMODATION, MonthDay.of(11, 1), MonthDay.of(12, 19), -1500),
+        new PricingRule.Weekdays(PricingRule.ANY_ACCOMMODATION, Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY), 1500),
+        new PricingRule.Occupancy(PricingRule.ANY_ACCOMMODATION, 75, 89, 1000),  // nearly full
+        new PricingRule.Occupancy(PricingRule.ANY_ACCOMMODATION, 90, 100, 2000)  // last few units
+    );
+
+    private static long percentOfRate(int accIndex, long percent) {
+        return PricingEngine.divideHalfUp(PricingEngine.dailyRatePence(accIndex) * percent, 100);
+    }
+
+    private static Booking stay(int unit, LocalDate in, int nights) {
+        return new Booking(0, "Guest", "07123456789", "guest@example.com", LODGE, in, in.plusDays(nights), 0, 0, unit);
+    }
+
+    // A Tuesday in June, so none of the calendar rules apply to it.
+    private static LocalDate plainNight() {
+        LocalDate june = LocalDate.now().plusYears(1).withMonth(6).withDayOfMonth(1);
+        return june.with(TemporalAdjusters.nextOrSame(DayOfWeek.TUESDAY));
+    }
+
+    @Test
+    void withoutRulesEveryStayCostsTheFlatRate() {
+        DynamicPricing pricing = new DynamicPricing(new UnitInventory(UNITS), List.of());
+        LocalDate in = LocalDate.now().plusDays(30);
+        for (int acc = 0; acc < UNITS.length; acc++) {
+            for (int nights : new int[] { 1, 7, 14, 30 }) {
+                assertEquals(PricingEngine.quote(acc, nights), pricing.quote(acc, in, in.plusDays(nights)));
+            }
+        }
+        LocalDate farOut = LocalDate.now().plusYears(10); // beyond the rate calendar
+        assertEquals(PricingEngine.quote(LODGE, 3), pricing.quote(LODGE, farOut, farOut.plusDays(3)));
+    }
+
+    @Test
+    void calendarRulesOnTheSameNightAddUp() {
+        DynamicPricing pricing = new DynamicPricing(new UnitInventory(UNITS), EXAMPLE_RULES);
+        LocalDate augustSaturday = LocalDate.now().plusYears(1).withMonth(8).withDayOfMonth(1)
+            .with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+        assertEquals(percentOfRate(LODGE, 140), pricing.nightlyPence(LODGE, augustSaturday));
+        LocalDate newYearsDay = LocalDate.of(LocalDate.now().getYear() + 1, Month.JANUARY, 1);
+        boolean weekend = Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY).contains(newYearsDay.getDayOfWeek());
+        assertEquals(percentOfRate(LODGE, weekend ? 145 : 130), pricing.nightlyPence(LODGE, newYearsDay));
+        assertEquals(percentOfRate(LODGE, 100), pricing.nightlyPence(LODGE, plainNight()));
+
+        LocalDate farOut = augustSaturday.plusYears(8).with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+        assertEquals(percentOfRate(LODGE, 140), pricing.nightlyPence(LODGE, farOut));
+    }
+
+    @Test
+    void occupancyPricesFollowEachSaveAndDelete() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        DynamicPricing pricing = new DynamicPricing(inventory, EXAMPLE_RULES);
+        LocalDate night = plainNight();
+
+        List<Booking> booked = new ArrayList<>();
+        long[] expectedPercent = { 100, 100, 100, 110, 120 }; // after 0..4 of the 4 lodges are booked
+        for (int unit = 0; unit < UNITS[LODGE]; unit++) {
+            assertEquals(percentOfRate(LODGE, expectedPercent[unit]), pricing.nightlyPence(LODGE, night));
+            Booking b = stay(unit, night.minusDays(unit), 1 + 2 * unit);
+            inventory.add(b);
+            pricing.onAdded(b);
+            booked.add(b);
+        }
+        assertEquals(percentOfRate(LODGE, 120), pricing.nightlyPence(LODGE, night));
+
+        // The writer drops a stay from the inventory before telling the listeners.
+        Booking cancelled = booked.remove(1);
+        inventory.remove(cancelled);
+        pricing.onDeleted(cancelled);
+        assertEquals(percentOfRate(LODGE, 110), pricing.nightlyPence(LODGE, night));
+
+        DynamicPricing rebuilt = new DynamicPricing(inventory, EXAMPLE_RULES);
+        for (LocalDate d = night.minusDays(5); d.isBefore(night.plusDays(10)); d = d.plusDays(1)) {
+            assertEquals(rebuilt.nightlyPence(LODGE, d), pricing.nightlyPence(LODGE, d), d.toString());
+        }
+        LocalDate in = night.minusDays(4);
+        LocalDate out = night.plusDays(9);
+        assertEquals(rebuilt.quote(LODGE, in, out), pricing.quote(LODGE, in, out));
+    }
+
+    @Test
+    void aLongStayIsQuotedAsTheSumOfItsNights() {
+        DynamicPricing pricing = new DynamicPricing(new UnitInventory(UNITS), EXAMPLE_RULES);
+        LocalDate in = LocalDate.now().plusDays(900);
+        LocalDate out = in.plusDays(400); // runs past the end of the rate calendar
+        long sum = 0;
+        for (LocalDate d = in; d.isBefore(out); d = d.plusDays(1)) {
+            sum += pricing.nightlyPence(LODGE, d);
+        }
+        assertEquals(sum, pricing.stayPence(LODGE, in.toEpochDay(), out.toEpochDay()));
+        assertEquals(PricingEngine.quoteStay(LODGE, 400, sum), pricing.quote(LODGE, in, out));
+    }
+}
@@ -0,0 +1,110 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The per-unit interval trees: half-open stays, overlap checks and neighbour lookups
+ * agreeing with a plain list scan through thousands of random adds and removes.
+ */
+class IntervalIndexTest {
+
+    @Test
+    void checkingOutOnTheDayAnotherGuestChecksInIsNoClash() {
+        IntervalIndex index = new IntervalIndex(2);
+        index.add(0, 10, 15);
+        assertFalse(index.overlaps(0, 15, 20));
+        assertFalse(index.overlaps(0, 5, 10));
+        assertTrue(index.overlaps(0, 14, 16));
+        assertTrue(index.overlaps(0, 11, 12));
+        assertTrue(index.overlaps(0, 0, 100));
+        assertFalse(index.overlaps(1, 10, 15)); // each key is its own unit
+    }
+
+    @Test
+    void removeTakesOneStayWithExactlyThoseDates() {
+        IntervalIndex index = new IntervalIndex(1);
+        index.add(0, 10, 15);
+        index.add(0, 10, 15);
+        assertFalse(index.remove(0, 10, 14));
+        assertTrue(index.remove(0, 10, 15));
+        assertEquals(1, index.size(0));
+        assertTrue(index.overlaps(0, 12, 13));
+        assertTrue(index.remove(0, 10, 15));
+        assertFalse(index.overlaps(0, 12, 13));
+        assertFalse(index.remove(0, 10, 15));
+    }
+
+    @Test
+    void agreesWithAListScan() {
+        Random random = new Random(42);
+        int keys = 3;
+        IntervalIndex index = new IntervalIndex(keys);
+        List<List<long[]>> expected = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            expected.add(new ArrayList<>());
+        }
+        for (int step = 0; step < 20_000; step++) {
+            int key = random.nextInt(keys);
+            List<long[]> stays = expected.get(key);
+            long start = random.nextInt(400);
+            long end = start + 1 + random.nextInt(20);
+            if (!stays.isEmpty() && random.nextInt(3) == 0) {
+                long[] gone = stays.remove(random.nextInt(stays.size()));
+                assertTrue(index.remove(key, gone[0], gone[1]));
+            } else {
+                stays.add(new long[] { start, end });
+                index.add(key, start, end);
+            }
+
+            long qStart = random.nextInt(420) - 10;
+            long qEnd = qStart + 1 + random.nextInt(30);
+            boolean clash = false;
+            int clashes = 0;
+            long latestStart = Long.MIN_VALUE;
+            long startFrom = Long.MAX_VALUE;
+            for (long[] s : stays) {
+                if (s[0] < qEnd && s[1] > qStart) {
+                    clash = true;
+                    clashes++;
+                }
+                if (s[0] < qStart) {
+                    latestStart = Math.max(latestStart, s[0]);
+                }
+                if (s[0] >= qStart) {
+                    startFrom = Math.min(startFrom, s[0]);
+                }
+            }
+            assertEquals(clash, index.overlaps(key, qStart, qEnd), "step " + step);
+            int[] found = new int[1];
+            index.forEachOverlap(key, qStart, qEnd, (s, e) -> {
+                assertTrue(s < qEnd && e > qStart);
+                found[0]++;
+            });
+            assertEquals(clashes, found[0], "step " + step);
+            assertEquals(startFrom, index.startFrom(key, qStart), "step " + step);
+            assertEquals(stays.size(), index.size(key));
+            // Stays sharing the latest check-in may be returned in either order.
+            long before = index.endBefore(key, qStart);
+            assertEquals(latestStart == Long.MIN_VALUE, before == Long.MIN_VALUE, "step " + step);
+            if (latestStart != Long.MIN_VALUE) {
+                assertTrue(hasStay(stays, latestStart, before), "step " + step);
+            }
+        }
+    }
+
+    private static boolean hasStay(List<long[]> stays, long start, long end) {
+        for (long[] s : stays) {
+            if (s[0] == start && s[1] == end) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fixed-point quotes: exact pence with half-up rounding, and the precomputed table
+ * agreeing with a quote worked out from scratch on both sides of its last day.
+ */
+class PricingEngineTest {
+
+    private static final int LODGE = 0;
+    private static final int CARAVAN = 4;
+
+    @Test
+    void quotesAreExactInPence() {
+        // 3 x 350.00 + 4.00 card fee, plus 15% VAT.
+        long shortStay = PricingEngine.quote(LODGE, 3);
+        assertEquals(121_210, PricingEngine.totalPence(shortStay));
+        assertEquals(0, PricingEngine.discountPence(shortStay));
+
+        // 14 nights earn the lodge's 10% discount: (4900.00 - 490.00 + 4.00) * 1.15.
+        long longStay = PricingEngine.quote(LODGE, 14);
+        assertEquals(49_000, PricingEngine.discountPence(longStay));
+        assertEquals(507_610, PricingEngine.totalPence(longStay));
+
+        // (1350.00 - 67.50 + 2.00) * 1.15 = 1477.175, rounded half-up.
+        long caravan = PricingEngine.quote(CARAVAN, 15);
+        assertEquals(6_750, PricingEngine.discountPence(caravan));
+        assertEquals(147_718, PricingEngine.totalPence(caravan));
+    }
+
+    @Test
+    void tableMatchesAQuoteWorkedOutFromScratch() {
+        for (int acc = 0; acc < VacayStarBooking.ACCOMMODATION_DATA.length; acc++) {
+            for (int days = 1; days <= PricingEngine.MAX_TABLE_DAYS + 35; days++) {
+                long fromScratch = PricingEngine.quoteStay(acc, days, days * PricingEngine.dailyRatePence(acc));
+                assertEquals(fromScratch, PricingEngine.quote(acc, days), "accommodation " + acc + ", " + days + " days");
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The hold timing wheel, ticked by hand: holds expire on exactly the tick their TTL
+ * ends, including TTLs longer than one turn of the wheel, and claiming or releasing
+ * takes a hold off the wheel once only.
+ */
+class ReservationHoldsTest {
+
+    private static final int[] UNITS = { 1, 6, 10, 8, 12 }; // a single lodge
+    private static final int LODGE = 0;
+    private static final long IN = 20_000;
+    private static final long OUT = IN + 3;
+
+    private static ReservationHolds holds(UnitInventory inventory, long ttlTicks) {
+        return new ReservationHolds(inventory, Duration.ofMillis(ttlTicks * ReservationHolds.TICK_MILLIS), false);
+    }
+
+    private static void tick(ReservationHolds holds, long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            holds.tick();
+        }
+    }
+
+    @Test
+    void aHoldExpiresOnTheTickItsTtlEnds() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        ReservationHolds holds = holds(inventory, 10);
+        tick(holds, 3); // start part-way round
+        ReservationHolds.Hold hold = holds.place(LODGE, IN, OUT, IN - 30);
+        assertNotNull(hold);
+        assertNull(holds.place(LODGE, IN + 1, OUT + 1, IN - 30)); // the only lodge is held
+
+        tick(holds, 9);
+        assertTrue(holds.isActive(hold));
+        assertFalse(inventory.isAvailable(LODGE, IN, OUT));
+        holds.tick();
+        assertFalse(holds.isActive(hold));
+        assertTrue(inventory.isAvailable(LODGE, IN, OUT));
+        assertEquals(0, holds.active());
+        assertEquals(1, holds.released());
+        assertFalse(hold.claim()); // too late to book on it
+    }
+
+    @Test
+    void aTtlLongerThanOneTurnWaitsOutTheExtraTurns() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        long ttl = 2L * ReservationHolds.WHEEL_SLOTS + 276;
+        ReservationHolds holds = holds(inventory, ttl);
+        ReservationHolds.Hold hold = holds.place(LODGE, IN, OUT, IN - 30);
+        tick(holds, ttl - 1);
+        assertTrue(holds.isActive(hold));
+        holds.tick();
+        assertFalse(holds.isActive(hold));
+        assertTrue(inventory.isAvailable(LODGE, IN, OUT));
+    }
+
+    @Test
+    void holdsPlacedAtDifferentTimesExpireInTurn() {
+        UnitInventory inventory = new UnitInventory(new int[] { 4, 6, 10, 8, 12 });
+        ReservationHolds holds = holds(inventory, 5);
+        ReservationHolds.Hold[] placed = new ReservationHolds.Hold[4];
+        for (int i = 0; i < placed.length; i++) {
+            placed[i] = holds.place(LODGE, IN, OUT, IN - 30);
+            holds.tick();
+        }
+        assertEquals(4, holds.active());
+        for (int i = 0; i < placed.length; i++) {
+            holds.tick();
+            assertFalse(holds.isActive(placed[i]), "hold " + i);
+            assertEquals(placed.length - 1 - i, holds.active());
+        }
+    }
+
+    @Test
+    void claimingOrReleasingEndsAHoldOnce() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        ReservationHolds holds = holds(inventory, 10);
+        ReservationHolds.Hold claimed = holds.place(LODGE, IN, OUT, IN - 30);
+        assertTrue(claimed.claim());
+        assertFalse(claimed.claim());
+        holds.release(claimed); // the booking has the unit now: nothing to give back
+        assertFalse(inventory.isAvailable(LODGE, IN, OUT));
+        assertEquals(0, holds.released());
+        tick(holds, 20);
+        assertFalse(inventory.isAvailable(LODGE, IN, OUT));
+        inventory.release(LODGE, claimed.unit, IN, OUT);
+
+        ReservationHolds.Hold released = holds.place(LODGE, IN, OUT, IN - 30);
+        holds.release(released);
+        holds.release(released);
+        holds.release(null);
+        assertEquals(1, holds.released());
+        assertEquals(0, holds.active());
+        assertTrue(inventory.isAvailable(LODGE, IN, OUT));
+    }
+}
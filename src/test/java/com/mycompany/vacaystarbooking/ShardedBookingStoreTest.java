@@ -0,0 +1,155 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The month-sharded store: each booking lands in its check-in month's shard, booking
+ * numbers run through the months in order, ids stay unique across reopens and crashes,
+ * and archiving moves whole months out without reusing their ids.
+ */
+class ShardedBookingStoreTest {
+
+    @TempDir
+    Path dir;
+
+    // Check-ins spread over 2030 in a shuffled order, so the shards fill out of order.
+    private static Booking booking(int i) {
+        LocalDate in = LocalDate.of(2030, 1, 1).plusDays(i * 37L % 365);
+        return new Booking(0, "Guest " + i, "0712345" + String.format("%04d", i), "guest" + i + "@example.com",
+            i % 5, in, in.plusDays(1 + i % 7), 0, 10_000L + i, i % 3);
+    }
+
+    private static List<Booking> bookings(int count) {
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            bookings.add(booking(i));
+        }
+        return bookings;
+    }
+
+    private static List<Booking> all(BookingStore store) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        store.forEach(bookings::add);
+        return bookings;
+    }
+
+    // Month order, then booking order within a month.
+    private static List<Booking> inNumberOrder(List<Booking> bookings) {
+        return bookings.stream()
+            .sorted(Comparator.comparing((Booking b) -> YearMonth.from(b.inDate())).thenComparingLong(Booking::id))
+            .toList();
+    }
+
+    private ShardedBookingStore open() throws IOException {
+        return ShardedBookingStore.open(dir.resolve("shards"), dir.resolve("archive"));
+    }
+
+    @Test
+    void bookingsAreRoutedToTheirCheckInMonth() throws IOException {
+        try (ShardedBookingStore store = open()) {
+            List<Booking> stored = new ArrayList<>(store.appendAll(bookings(100)));
+            stored.add(store.append(booking(100)));
+            List<Booking> expected = inNumberOrder(stored);
+
+            assertEquals(expected, all(store));
+            assertEquals(12, store.shardInfo().size());
+            for (ShardedBookingStore.ShardInfo shard : store.shardInfo()) {
+                long inMonth = stored.stream().filter(b -> YearMonth.from(b.inDate()).equals(shard.month())).count();
+                assertEquals(inMonth, shard.rows(), shard.month().toString());
+                assertTrue(Files.exists(dir.resolve("shards").resolve(shard.month() + ShardedBookingStore.SHARD_SUFFIX)));
+            }
+            for (int n = 0; n < expected.size(); n++) {
+                assertEquals(expected.get(n), store.get(n));
+                assertEquals(n, store.indexOf(expected.get(n)));
+            }
+
+            LocalDate from = LocalDate.of(2030, 3, 10);
+            LocalDate to = LocalDate.of(2030, 4, 20);
+            List<Booking> inRange = new ArrayList<>();
+            store.forEachCheckIn(from, to, inRange::add);
+            assertEquals(expected.stream().filter(b -> !b.inDate().isBefore(from) && !b.inDate().isAfter(to)).toList(), inRange);
+            int start = (int) expected.stream().filter(b -> b.inDate().getMonthValue() < 3).count();
+            int end = (int) expected.stream().filter(b -> b.inDate().getMonthValue() <= 4).count();
+            assertArrayEquals(new int[] { start, end }, store.positionsForCheckIn(from, to));
+
+            Booking deleted = store.delete(start);
+            assertEquals(expected.get(start), deleted);
+            assertEquals(-1, store.indexOf(deleted));
+            assertEquals(expected.size() - 1, store.size());
+        }
+    }
+
+    @Test
+    void idsStayUniqueAcrossReopenAndCrash() throws IOException {
+        List<Booking> stored;
+        try (ShardedBookingStore store = open()) {
+            stored = new ArrayList<>(store.appendAll(bookings(50)));
+            assertEquals(50, stored.stream().mapToLong(Booking::id).distinct().count());
+            stored.add(store.append(booking(50).withId(500))); // replicated: keeps its id
+            assertEquals(501, store.nextId());
+        }
+        try (ShardedBookingStore store = open()) {
+            assertEquals(inNumberOrder(stored), all(store));
+            assertEquals(501, store.nextId());
+            stored.add(store.append(booking(51)));
+            assertEquals(501, stored.get(stored.size() - 1).id());
+            store.flush();
+
+            // A crash leaves the manifest marked unclean: the copy is opened shard by shard.
+            Path crash = dir.resolve("crash");
+            Files.createDirectories(crash);
+            try (Stream<Path> files = Files.list(dir.resolve("shards"))) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, crash.resolve(file.getFileName()));
+                }
+            }
+            try (ShardedBookingStore recovered = ShardedBookingStore.open(crash, dir.resolve("archive"))) {
+                assertEquals(inNumberOrder(stored), all(recovered));
+                assertEquals(502, recovered.nextId());
+            }
+        }
+    }
+
+    @Test
+    void archivingMovesWholeMonthsOut() throws IOException {
+        List<Booking> stored;
+        List<Booking> archived;
+        try (ShardedBookingStore store = open()) {
+            stored = store.appendAll(bookings(120));
+            archived = store.archiveBefore(YearMonth.of(2030, 4));
+            List<Booking> early = stored.stream().filter(b -> b.inDate().getMonthValue() < 4).toList();
+            assertEquals(early.size(), archived.size());
+            assertTrue(archived.containsAll(early));
+            assertEquals(stored.size() - early.size(), store.size());
+            assertEquals(YearMonth.of(2030, 4), store.shardInfo().get(0).month());
+            assertTrue(store.archiveBefore(YearMonth.of(2030, 4)).isEmpty());
+        }
+        for (int month = 1; month <= 3; month++) {
+            String name = YearMonth.of(2030, month) + ShardedBookingStore.SHARD_SUFFIX;
+            assertTrue(Files.exists(dir.resolve("archive").resolve(name)), name);
+            assertFalse(Files.exists(dir.resolve("shards").resolve(name)), name);
+        }
+        try (ShardedBookingStore store = open()) {
+            assertEquals(inNumberOrder(stored.stream().filter(b -> !archived.contains(b)).toList()), all(store));
+            assertEquals(121, store.append(booking(0)).id()); // archived ids are not handed out again
+            try (BookingLog march = BookingLog.open(dir.resolve("archive").resolve("2030-03" + ShardedBookingStore.SHARD_SUFFIX))) {
+                assertEquals(stored.stream().filter(b -> b.inDate().getMonthValue() == 3).count(), march.size());
+            }
+        }
+    }
+}
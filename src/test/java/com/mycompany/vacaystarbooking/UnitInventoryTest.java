@@ -0,0 +1,174 @@
+package com.mycompany.vacaystarbooking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Units of each accommodation type: best-fit placement, holds, re-packing, and stays
+ * saved on a unit the type no longer has being left out rather than folded onto
+ * another unit.
+ */
+class UnitInventoryTest {
+
+    private static final int[] UNITS = { 4, 6, 10, 8, 12 };
+    private static final int LODGE = 0;
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+
+    // A lodge stay from 'in' to 'out' days after TODAY.
+    private static Booking stay(long id, int unit, int in, int out) {
+        return new Booking(id, "Guest", "07123456789", "guest@example.com", LODGE,
+            TODAY.plusDays(in), TODAY.plusDays(out), 0, 0, unit);
+    }
+
+    private static int staysOn(UnitInventory inventory, int unit, int in, int out) {
+        int[] found = new int[1];
+        inventory.forEachOverlap(inventory.key(LODGE, unit), TODAY.plusDays(in).toEpochDay(),
+            TODAY.plusDays(out).toEpochDay(), (start, end) -> found[0]++);
+        return found[0];
+    }
+
+    private static long day(int offset) {
+        return TODAY.plusDays(offset).toEpochDay();
+    }
+
+    // Each booking's unit once the plan has been applied.
+    private static Map<Long, Integer> finalUnits(List<Booking> bookings, UnitInventory.Plan plan) {
+        Map<Long, Integer> units = new HashMap<>();
+        for (Booking b : bookings) {
+            units.put(b.id(), b.unit());
+        }
+        for (Booking b : plan.after()) {
+            units.put(b.id(), b.unit());
+        }
+        return units;
+    }
+
+    @Test
+    void aNewStayGoesWhereItFillsAGapExactly() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        inventory.add(stay(1, 1, 0, 10));
+        inventory.add(stay(2, 1, 18, 30));
+        inventory.add(stay(3, 2, 0, 10));
+        inventory.add(stay(4, 2, 15, 30));
+        assertEquals(2, inventory.allocate(LODGE, day(10), day(15), day(0)));
+    }
+
+    @Test
+    void aStayAvoidsLeavingAShortGapIfAnotherUnitCan() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        inventory.add(stay(1, 0, 0, 10));
+        inventory.add(stay(2, 0, 17, 30)); // would leave two nights free after the stay
+        inventory.add(stay(3, 1, 0, 10));
+        inventory.add(stay(4, 1, 20, 30)); // would leave five
+        assertEquals(1, inventory.allocate(LODGE, day(10), day(15), day(0)));
+
+        // With every other lodge taken, the short gap is still better than no booking.
+        inventory.add(stay(5, 1, 10, 15));
+        inventory.add(stay(6, 2, 5, 12));
+        inventory.add(stay(7, 3, 12, 14));
+        assertEquals(0, inventory.allocate(LODGE, day(10), day(15), day(0)));
+    }
+
+    @Test
+    void heldUnitsAreTakenUntilTheGuestBooksOrLetsGo() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        int[] held = new int[UNITS[LODGE]];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = inventory.hold(LODGE, day(5), day(8), day(0));
+            assertTrue(held[i] >= 0);
+        }
+        assertEquals(-1, inventory.hold(LODGE, day(6), day(7), day(0)));
+        assertFalse(inventory.isAvailable(LODGE, day(5), day(8)));
+        assertTrue(inventory.isAvailable(LODGE, day(8), day(9)));
+        assertEquals(0, inventory.bookedUnits(LODGE, day(6))); // holds are not bookings
+
+        // The guest holding the last unit books it; nobody else could have taken it.
+        Booking placed = inventory.place(stay(1, -1, 5, 8), day(0), held[3]);
+        assertNotNull(placed);
+        assertEquals(held[3], placed.unit());
+        assertEquals(1, inventory.bookedUnits(LODGE, day(6)));
+        assertNull(inventory.place(stay(2, -1, 5, 8), day(0), -1));
+
+        inventory.release(LODGE, held[0], day(5), day(8));
+        assertTrue(inventory.isAvailable(LODGE, day(5), day(8)));
+    }
+
+    @Test
+    void repackingPutsStaysBackToBack() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        Booking started = stay(1, 0, -2, 4); // already checked in: keeps lodge 1
+        Booking a = stay(2, 3, 4, 6);
+        Booking b = stay(3, 1, 1, 3);
+        Booking c = stay(4, 2, 3, 7);
+        for (Booking x : List.of(started, a, b, c)) {
+            inventory.add(x);
+        }
+        UnitInventory.Plan plan = inventory.plan(LODGE, List.of(a, b, c), TODAY.toEpochDay());
+        assertEquals(0, plan.overlaps());
+        Map<Long, Integer> units = finalUnits(List.of(a, b, c), plan);
+        assertEquals(0, units.get(2L)); // lodge 1 frees up the day it checks in
+        assertEquals(units.get(3L), units.get(4L)); // c checks in the day b checks out
+        assertEquals(2, plan.before().size());
+        for (int i = 0; i < plan.before().size(); i++) {
+            assertEquals(plan.before().get(i).id(), plan.after().get(i).id());
+        }
+    }
+
+    @Test
+    void aRepackPlanNeverDoubleBooksAUnit() {
+        Random random = new Random(7);
+        UnitInventory inventory = new UnitInventory(UNITS);
+        List<Booking> future = new ArrayList<>();
+        for (int id = 1; id <= 400; id++) {
+            int in = 1 + random.nextInt(120);
+            Booking placed = inventory.place(stay(id, -1, in, in + 1 + random.nextInt(10)), day(0), -1);
+            if (placed != null) {
+                future.add(placed);
+            }
+        }
+        UnitInventory.Plan plan = inventory.plan(LODGE, future, TODAY.toEpochDay());
+        assertEquals(0, plan.overlaps());
+        Map<Long, Integer> units = finalUnits(future, plan);
+        for (Booking x : future) {
+            for (Booking y : future) {
+                if (x.id() < y.id() && units.get(x.id()).equals(units.get(y.id()))) {
+                    assertFalse(x.inDate().isBefore(y.outDate()) && y.inDate().isBefore(x.outDate()),
+                        "bookings " + x.id() + " and " + y.id());
+                }
+            }
+        }
+    }
+
+    @Test
+    void aUnitTheTypeNoLongerHasIsLeftOutNotWrapped() {
+        UnitInventory inventory = new UnitInventory(UNITS);
+        Booking onLodge2 = stay(1, 1, 10, 13);
+        Booking onLodge6 = stay(2, 5, 10, 13); // saved when there were six lodges
+        assertTrue(inventory.add(onLodge2));
+        assertFalse(inventory.hasUnit(LODGE, 5));
+        assertFalse(inventory.add(onLodge6));
+        assertEquals(1, staysOn(inventory, 1, 0, 30));
+        assertFalse(inventory.remove(onLodge6));
+        assertEquals(1, staysOn(inventory, 1, 0, 30));
+
+        // Re-packing moves it onto a lodge that exists, and not onto the one already taken.
+        UnitInventory.Plan plan = inventory.plan(LODGE, List.of(onLodge2, onLodge6), TODAY.toEpochDay());
+        assertEquals(0, plan.overlaps());
+        Booking moved = plan.after().stream().filter(b -> b.id() == 2).findFirst().orElseThrow();
+        assertTrue(inventory.hasUnit(LODGE, moved.unit()));
+        int lodge2Now = plan.after().stream().filter(b -> b.id() == 1).mapToInt(Booking::unit).findFirst().orElse(1);
+        assertNotEquals(lodge2Now, moved.unit());
+    }
+}